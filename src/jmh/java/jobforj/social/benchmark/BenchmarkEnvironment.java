@@ -0,0 +1,81 @@
+package jobforj.social.benchmark;
+
+import jobforj.social.SocialMediaApiApplication;
+import jobforj.social.index.SocialGraphIndex;
+import jobforj.social.index.UserAutocompleteIndex;
+import jobforj.social.service.CelebrityRegistry;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import javax.sql.DataSource;
+
+/**
+ * Окружение бенчмарка: PostgreSQL в Testcontainers и контекст приложения без веб-сервера.
+ * Схема создается по сущностям, затем применяются индексы из миграций
+ * и база заполняется {@link SocialGraphGenerator}.
+ */
+public final class BenchmarkEnvironment implements AutoCloseable {
+    private static final String[] INDEX_SCRIPTS = {
+            "db/scripts/009_ddl_create_indexes.sql",
+            "db/scripts/012_ddl_create_conversation_indexes.sql",
+            "db/scripts/015_ddl_create_users_trgm_indexes.sql"
+    };
+
+    private final PostgreSQLContainer<?> postgres;
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkEnvironment(PostgreSQLContainer<?> postgres, ConfigurableApplicationContext context) {
+        this.postgres = postgres;
+        this.context = context;
+    }
+
+    /**
+     * Запускает базу и приложение и заполняет базу синтетическими данными.
+     *
+     * @param config параметры генерируемого графа
+     * @return готовое окружение
+     */
+    public static BenchmarkEnvironment start(GeneratorConfig config) {
+        PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+                .withDatabaseName("benchmark")
+                .withUsername("benchmark")
+                .withPassword("benchmark")
+                .withCommand("postgres", "-c", "shared_buffers=512MB", "-c", "fsync=off");
+        postgres.start();
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(SocialMediaApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.profiles.active=benchmark",
+                        "--spring.datasource.url=" + postgres.getJdbcUrl(),
+                        "--spring.datasource.username=" + postgres.getUsername(),
+                        "--spring.datasource.password=" + postgres.getPassword(),
+                        "--spring.liquibase.enabled=false",
+                        "--spring.jpa.hibernate.ddl-auto=create",
+                        "--spring.jpa.show-sql=false",
+                        "--feed.celebrity-follower-threshold=" + config.celebrityThreshold());
+        DataSource dataSource = context.getBean(DataSource.class);
+        new SocialGraphGenerator(dataSource, config).generate();
+        ResourceDatabasePopulator indexes = new ResourceDatabasePopulator();
+        for (String script : INDEX_SCRIPTS) {
+            indexes.addScript(new ClassPathResource(script));
+        }
+        indexes.execute(dataSource);
+        context.getBean(SocialGraphIndex.class).rebuild();
+        context.getBean(UserAutocompleteIndex.class).rebuild();
+        context.getBean(CelebrityRegistry.class).refresh();
+        return new BenchmarkEnvironment(postgres, context);
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        postgres.stop();
+    }
+}
@@ -0,0 +1,87 @@
+package jobforj.social.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Общее для всех бенчмарков окружение, поднимаемое один раз на запуск.
+ * Размер графа задается параметрами JMH, например {@code -p users=100000}.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkState {
+
+    @Param("10000")
+    public int users;
+
+    @Param("50")
+    public int followsPerUser;
+
+    @Param("1.0")
+    public double zipfExponent;
+
+    @Param("5")
+    public int postsPerUser;
+
+    @Param("1")
+    public int imagesPerPost;
+
+    @Param("5")
+    public int friendshipsPerUser;
+
+    @Param("2")
+    public int threadsPerUser;
+
+    @Param("20")
+    public int messagesPerThread;
+
+    @Param("1000")
+    public long celebrityThreshold;
+
+    @Param("42")
+    public long seed;
+
+    private GeneratorConfig config;
+    private BenchmarkEnvironment environment;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        config = new GeneratorConfig(users, followsPerUser, zipfExponent, postsPerUser, imagesPerPost,
+                friendshipsPerUser, threadsPerUser, messagesPerThread, celebrityThreshold, seed);
+        environment = BenchmarkEnvironment.start(config);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.close();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return environment.getBean(type);
+    }
+
+    public GeneratorConfig config() {
+        return config;
+    }
+
+    /**
+     * @return идентификатор случайного сгенерированного пользователя
+     */
+    public long randomUserId() {
+        return 1 + ThreadLocalRandom.current().nextInt(users);
+    }
+
+    /**
+     * @param userId идентификатор пользователя
+     * @return идентификатор случайного пользователя, отличного от данного
+     */
+    public long randomOtherUserId(long userId) {
+        long other = 1 + ThreadLocalRandom.current().nextInt(users - 1);
+        return other >= userId ? other + 1 : other;
+    }
+}
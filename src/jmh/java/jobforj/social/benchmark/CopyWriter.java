@@ -0,0 +1,78 @@
+package jobforj.social.benchmark;
+
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+/**
+ * Потоковая запись строк в таблицу командой COPY в текстовом формате.
+ * Строки накапливаются в буфере и отправляются частями, поэтому объем
+ * загружаемых данных не ограничен памятью процесса.
+ */
+final class CopyWriter implements AutoCloseable {
+    private static final int FLUSH_THRESHOLD = 1 << 16;
+
+    private final CopyIn copyIn;
+    private final StringBuilder buffer = new StringBuilder(FLUSH_THRESHOLD + 1024);
+    private long rows;
+
+    CopyWriter(CopyManager copyManager, String table, String columns) throws SQLException {
+        this.copyIn = copyManager.copyIn("COPY " + table + " (" + columns + ") FROM STDIN");
+    }
+
+    /**
+     * Добавляет строку. Значения не должны содержать табуляций, переводов строк и обратных слешей.
+     */
+    void row(Object... values) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                buffer.append('\t');
+            }
+            append(values[i]);
+        }
+        buffer.append('\n');
+        rows++;
+        if (buffer.length() >= FLUSH_THRESHOLD) {
+            flush();
+        }
+    }
+
+    long rows() {
+        return rows;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            flush();
+            copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private void append(Object value) {
+        if (value == null) {
+            buffer.append("\\N");
+        } else if (value instanceof Boolean flag) {
+            buffer.append(flag ? 't' : 'f');
+        } else if (value instanceof LocalDateTime time) {
+            buffer.append(time.toLocalDate()).append(' ').append(time.toLocalTime());
+        } else {
+            buffer.append(value);
+        }
+    }
+
+    private void flush() throws SQLException {
+        if (buffer.length() > 0) {
+            byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            buffer.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package jobforj.social.benchmark;
+
+import jobforj.social.dto.CursorPage;
+import jobforj.social.dto.PostSummary;
+import jobforj.social.dto.PostWithImages;
+import jobforj.social.model.Post;
+import jobforj.social.service.PostService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение ленты пользователя: сущности постов, посты с изображениями и авторами
+ * и проекции для списков.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FeedBenchmark {
+
+    @Benchmark
+    public Page<Post> getFeedForUser(BenchmarkState state) {
+        return state.getBean(PostService.class)
+                .getFeedForUser(state.randomUserId(), PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public CursorPage<Post> getFeedForUserByCursor(BenchmarkState state) {
+        return state.getBean(PostService.class)
+                .getFeedForUser(state.randomUserId(), null, 20);
+    }
+
+    @Benchmark
+    public CursorPage<PostWithImages> getFeedWithImages(BenchmarkState state) {
+        return state.getBean(PostService.class)
+                .getFeedWithImages(state.randomUserId(), null, 20);
+    }
+
+    @Benchmark
+    public CursorPage<PostSummary> getFeedSummaries(BenchmarkState state) {
+        return state.getBean(PostService.class)
+                .getFeedSummaries(state.randomUserId(), null, 20);
+    }
+}
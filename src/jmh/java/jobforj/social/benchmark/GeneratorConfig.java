@@ -0,0 +1,71 @@
+package jobforj.social.benchmark;
+
+/**
+ * Параметры синтетического социального графа.
+ * Средние значения задают центр равномерного разброса от 0 до удвоенного среднего,
+ * кроме подписок: у каждого пользователя хотя бы одна подписка.
+ *
+ * @param users              количество пользователей
+ * @param followsPerUser     среднее количество подписок на пользователя
+ * @param zipfExponent       показатель распределения Ципфа для выбора авторов подписок
+ * @param postsPerUser       среднее количество постов на пользователя
+ * @param imagesPerPost      среднее количество изображений на пост
+ * @param friendshipsPerUser среднее количество заявок в друзья на пользователя
+ * @param threadsPerUser     количество переписок, начатых пользователем
+ * @param messagesPerThread  количество сообщений в переписке
+ * @param celebrityThreshold порог подписчиков, начиная с которого посты автора не раскладываются по лентам
+ * @param seed               зерно генератора случайных чисел
+ */
+public record GeneratorConfig(int users,
+                              int followsPerUser,
+                              double zipfExponent,
+                              int postsPerUser,
+                              int imagesPerPost,
+                              int friendshipsPerUser,
+                              int threadsPerUser,
+                              int messagesPerThread,
+                              long celebrityThreshold,
+                              long seed) {
+
+    public GeneratorConfig {
+        if (users < 2) {
+            throw new IllegalArgumentException("Нужно не меньше двух пользователей");
+        }
+        if (followsPerUser < 0 || postsPerUser < 0 || imagesPerPost < 0 || friendshipsPerUser < 0
+                || threadsPerUser < 1 || messagesPerThread < 0) {
+            throw new IllegalArgumentException("Параметры графа не могут быть отрицательными");
+        }
+        if (zipfExponent <= 0) {
+            throw new IllegalArgumentException("Показатель распределения Ципфа должен быть положительным");
+        }
+    }
+
+    /**
+     * Читает параметры из системных свойств с префиксом {@code generator.}.
+     *
+     * @return параметры графа
+     */
+    public static GeneratorConfig fromSystemProperties() {
+        return new GeneratorConfig(
+                Integer.getInteger("generator.users", 1_000_000),
+                Integer.getInteger("generator.followsPerUser", 50),
+                Double.parseDouble(System.getProperty("generator.zipfExponent", "1.0")),
+                Integer.getInteger("generator.postsPerUser", 5),
+                Integer.getInteger("generator.imagesPerPost", 1),
+                Integer.getInteger("generator.friendshipsPerUser", 5),
+                Integer.getInteger("generator.threadsPerUser", 2),
+                Integer.getInteger("generator.messagesPerThread", 20),
+                Long.getLong("generator.celebrityThreshold", 10_000L),
+                Long.getLong("generator.seed", 42L));
+    }
+
+    /**
+     * Собеседник пользователя в первой сгенерированной переписке.
+     *
+     * @param userId идентификатор пользователя
+     * @return идентификатор собеседника
+     */
+    public int conversationPartner(int userId) {
+        return userId % users + 1;
+    }
+}
@@ -0,0 +1,82 @@
+package jobforj.social.benchmark;
+
+import jobforj.social.dto.InboxEntry;
+import jobforj.social.dto.UserProfile;
+import jobforj.social.dto.UserSuggestion;
+import jobforj.social.model.Message;
+import jobforj.social.model.User;
+import jobforj.social.repository.MessageRepository;
+import jobforj.social.repository.UserRepository;
+import jobforj.social.service.MessageService;
+import jobforj.social.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запросы репозиториев: переписка двух пользователей, список входящих, поиск пользователей
+ * счетчик непрочитанных сообщений и шапка профиля. Автодополнение сравнивается в базе и в индексе в памяти.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class QueryBenchmark {
+
+    @Benchmark
+    public Page<Message> findConversation(BenchmarkState state) {
+        long userId = state.randomUserId();
+        long partnerId = state.config().conversationPartner((int) userId);
+        return state.getBean(MessageRepository.class)
+                .findConversation(userId, partnerId, PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public List<Message> findConversationHistory(BenchmarkState state) {
+        long userId = state.randomUserId();
+        long partnerId = state.config().conversationPartner((int) userId);
+        return state.getBean(MessageService.class).findConversation(userId, partnerId, null, 20);
+    }
+
+    @Benchmark
+    public List<InboxEntry> findInbox(BenchmarkState state) {
+        return state.getBean(MessageService.class).findInbox(state.randomUserId(), 20);
+    }
+
+    @Benchmark
+    public long countUnreadMessages(BenchmarkState state) {
+        return state.getBean(MessageService.class).countUnreadMessages(state.randomUserId());
+    }
+
+    @Benchmark
+    public UserProfile getProfile(BenchmarkState state) {
+        return state.getBean(UserService.class).getProfile(state.randomUserId());
+    }
+
+    @Benchmark
+    public Page<User> searchUsers(BenchmarkState state) {
+        String keyword = "user" + state.randomUserId() / 10;
+        return state.getBean(UserRepository.class)
+                .searchUsers(keyword, PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public List<UserSuggestion> autocompleteFromDatabase(BenchmarkState state) {
+        return state.getBean(UserRepository.class).autocomplete("user" + state.randomUserId() / 100, 10);
+    }
+
+    @Benchmark
+    public List<UserSuggestion> autocomplete(BenchmarkState state) {
+        return state.getBean(UserService.class).autocomplete("user" + state.randomUserId() / 100, 10);
+    }
+}
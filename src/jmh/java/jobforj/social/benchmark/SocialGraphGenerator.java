@@ -0,0 +1,347 @@
+package jobforj.social.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Генератор синтетического социального графа с перекосом, как в продакшене.
+ * <ul>
+ *     <li>пользователи получают идентификаторы 1..users;</li>
+ *     <li>авторы подписок выбираются по закону Ципфа, поэтому небольшое число
+ *     пользователей собирает большую часть подписчиков;</li>
+ *     <li>заявки в друзья создаются во всех статусах; как и в {@code SubscriptionService},
+ *     отправитель подписан на получателя, а после принятия подписка взаимная;</li>
+ *     <li>посты с изображениями, часть постов мягко удалена;</li>
+ *     <li>переписки: первая всегда с {@link GeneratorConfig#conversationPartner(int)};
+ *     сообщения нумеруются внутри переписки, отметки прочтения стоят перед первым непрочитанным.</li>
+ * </ul>
+ * Данные загружаются командой COPY по одному соединению, без сущностей JPA.
+ * Схема должна быть создана заранее и пуста. Ленты заполняются только постами авторов
+ * ниже порога {@link GeneratorConfig#celebrityThreshold()}.
+ * <p>
+ * Запуск для своей базы:
+ * {@code mvn -Pbenchmark test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=jobforj.social.benchmark.SocialGraphGenerator
+ * -Dexec.args="jdbc:postgresql://localhost:5432/social_media_dev postgres postgres" -Dgenerator.users=1000000}
+ */
+@Slf4j
+public class SocialGraphGenerator {
+    private static final int DAYS = 90;
+    private static final double DELETED_POSTS = 0.02;
+    private static final double READ_MESSAGES = 0.7;
+
+    private final DataSource dataSource;
+    private final GeneratorConfig config;
+    private final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+    public SocialGraphGenerator(DataSource dataSource, GeneratorConfig config) {
+        this.dataSource = dataSource;
+        this.config = config;
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 3) {
+            throw new IllegalArgumentException("Ожидаются аргументы: url username password");
+        }
+        new SocialGraphGenerator(new DriverManagerDataSource(args[0], args[1], args[2]),
+                GeneratorConfig.fromSystemProperties()).generate();
+    }
+
+    /**
+     * Заполняет пустую базу.
+     */
+    public void generate() {
+        long startedAt = System.currentTimeMillis();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            Random random = new Random(config.seed());
+            step("users", () -> copyUsers(copyManager, random));
+            step("subscriptions", () -> copySubscriptions(copyManager, random));
+            step("friendships", () -> copyFriendships(connection, copyManager, random));
+            long posts = step("posts", () -> copyPosts(copyManager, random));
+            step("images", () -> copyImages(copyManager, random, posts));
+            step("messages", () -> copyMessages(copyManager, random));
+            step("conversations", () -> groupConversations(connection));
+            step("feed_entries", () -> finish(connection));
+        } catch (SQLException e) {
+            throw new IllegalStateException("Не удалось загрузить синтетические данные", e);
+        }
+        log.info("Сгенерирован граф из {} пользователей за {} мс",
+                config.users(), System.currentTimeMillis() - startedAt);
+    }
+
+    private long copyUsers(CopyManager copyManager, Random random) throws SQLException {
+        try (CopyWriter users = new CopyWriter(copyManager, "users",
+                "id, username, email, password_hash, created_at, updated_at, is_active")) {
+            for (int id = 1; id <= config.users(); id++) {
+                LocalDateTime createdAt = randomTime(random);
+                users.row(id, "user" + id, "user" + id + "@example.com", "password", createdAt, createdAt, true);
+            }
+            return users.rows();
+        }
+    }
+
+    private long copySubscriptions(CopyManager copyManager, Random random) throws SQLException {
+        ZipfSampler popularity = new ZipfSampler(config.users(), config.zipfExponent(), random);
+        int maxFollows = Math.min(2 * config.followsPerUser(), config.users() - 1);
+        try (CopyWriter subscriptions = new CopyWriter(copyManager, "subscriptions",
+                "id, follower_id, following_id, created_at")) {
+            int id = 0;
+            for (int follower = 1; follower <= config.users(); follower++) {
+                int follows = maxFollows == 0 ? 0 : 1 + random.nextInt(maxFollows);
+                Set<Integer> targets = new HashSet<>(follows * 2);
+                while (targets.size() < follows) {
+                    int target = popularity.next(random);
+                    if (target != follower && targets.add(target)) {
+                        subscriptions.row(++id, follower, target, randomTime(random));
+                    }
+                }
+            }
+            return subscriptions.rows();
+        }
+    }
+
+    /**
+     * Заявки выбираются равномерно, каждая пара пользователей встречается не больше одного раза.
+     * Подписки, которые создал бы {@code SubscriptionService}, сначала пишутся во временную
+     * таблицу, а затем добавляются к уже загруженным без дубликатов.
+     */
+    private long copyFriendships(Connection connection, CopyManager copyManager, Random random)
+            throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TEMP TABLE generated_friend_subscriptions "
+                    + "(follower_id INTEGER, following_id INTEGER, created_at TIMESTAMP)");
+        }
+        Roaring64Bitmap pairs = new Roaring64Bitmap();
+        int maxRequests = 2 * config.friendshipsPerUser();
+        long friendships;
+        try (CopyWriter writer = new CopyWriter(copyManager, "friendships",
+                "id, requester_id, addressee_id, status, created_at, updated_at")) {
+            int id = 0;
+            for (int requester = 1; requester <= config.users(); requester++) {
+                int requests = maxRequests == 0 ? 0 : random.nextInt(maxRequests + 1);
+                for (int i = 0; i < requests; i++) {
+                    int addressee = 1 + random.nextInt(config.users());
+                    long pair = (long) Math.min(requester, addressee) << 32 | Math.max(requester, addressee);
+                    if (addressee == requester || pairs.contains(pair)) {
+                        continue;
+                    }
+                    pairs.addLong(pair);
+                    LocalDateTime createdAt = randomTime(random);
+                    writer.row(++id, requester, addressee, randomStatus(random), createdAt, createdAt);
+                }
+            }
+            friendships = writer.rows();
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    INSERT INTO generated_friend_subscriptions (follower_id, following_id, created_at)
+                    SELECT requester_id, addressee_id, created_at FROM friendships
+                    UNION ALL
+                    SELECT addressee_id, requester_id, updated_at FROM friendships WHERE status = 'ACCEPTED'
+                    """);
+            statement.execute("""
+                    INSERT INTO subscriptions (id, follower_id, following_id, created_at)
+                    SELECT (SELECT COALESCE(MAX(id), 0) FROM subscriptions) + ROW_NUMBER() OVER (),
+                           g.follower_id, g.following_id, g.created_at
+                    FROM generated_friend_subscriptions g
+                    WHERE NOT EXISTS (
+                        SELECT 1 FROM subscriptions s
+                        WHERE s.follower_id = g.follower_id AND s.following_id = g.following_id
+                    )
+                    """);
+            statement.execute("DROP TABLE generated_friend_subscriptions");
+        }
+        return friendships;
+    }
+
+    private long copyPosts(CopyManager copyManager, Random random) throws SQLException {
+        int maxPosts = 2 * config.postsPerUser();
+        try (CopyWriter posts = new CopyWriter(copyManager, "posts",
+                "id, user_id, title, content, created_at, updated_at, is_deleted")) {
+            int id = 0;
+            for (int author = 1; author <= config.users(); author++) {
+                int count = maxPosts == 0 ? 0 : random.nextInt(maxPosts + 1);
+                for (int i = 0; i < count; i++) {
+                    LocalDateTime createdAt = randomTime(random);
+                    id++;
+                    posts.row(id, author, "Post " + id, "Content of post " + id + " by user" + author,
+                            createdAt, createdAt, random.nextDouble() < DELETED_POSTS);
+                }
+            }
+            return posts.rows();
+        }
+    }
+
+    private long copyImages(CopyManager copyManager, Random random, long posts) throws SQLException {
+        int maxImages = 2 * config.imagesPerPost();
+        try (CopyWriter images = new CopyWriter(copyManager, "images",
+                "id, post_id, url, file_name, file_size, upload_date")) {
+            int id = 0;
+            for (long post = 1; post <= posts; post++) {
+                int count = maxImages == 0 ? 0 : random.nextInt(maxImages + 1);
+                for (int i = 0; i < count; i++) {
+                    id++;
+                    images.row(id, post, "https://cdn.example.com/images/" + id + ".jpg", id + ".jpg",
+                            10_000 + random.nextInt(5_000_000), randomTime(random));
+                }
+            }
+            return images.rows();
+        }
+    }
+
+    private long copyMessages(CopyManager copyManager, Random random) throws SQLException {
+        try (CopyWriter messages = new CopyWriter(copyManager, "messages",
+                "id, sender_id, receiver_id, content, is_read, created_at")) {
+            int id = 0;
+            for (int user = 1; user <= config.users(); user++) {
+                for (int thread = 0; thread < config.threadsPerUser(); thread++) {
+                    int partner = thread == 0 ? config.conversationPartner(user) : 1 + random.nextInt(config.users());
+                    if (partner == user) {
+                        continue;
+                    }
+                    for (int i = 0; i < config.messagesPerThread(); i++) {
+                        boolean outgoing = random.nextBoolean();
+                        id++;
+                        messages.row(id, outgoing ? user : partner, outgoing ? partner : user,
+                                "Message " + id, random.nextDouble() < READ_MESSAGES, randomTime(random));
+                    }
+                }
+            }
+            return messages.rows();
+        }
+    }
+
+    /**
+     * Группирует загруженные сообщения в переписки так же, как миграция {@code 011}.
+     */
+    private long groupConversations(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            long conversations = statement.executeUpdate("""
+                    INSERT INTO conversations (id, user_low_id, user_high_id, last_seq,
+                                               user_low_read_seq, user_high_read_seq, created_at)
+                    SELECT ROW_NUMBER() OVER (ORDER BY user_low_id, user_high_id), user_low_id, user_high_id,
+                           0, 0, 0, created_at
+                    FROM (SELECT LEAST(sender_id, receiver_id) AS user_low_id,
+                                 GREATEST(sender_id, receiver_id) AS user_high_id, MIN(created_at) AS created_at
+                          FROM messages GROUP BY 1, 2) pairs
+                    """);
+            statement.execute("""
+                    UPDATE messages m SET conversation_id = n.conversation_id, seq = n.seq
+                    FROM (SELECT msg.id, c.id AS conversation_id,
+                                 ROW_NUMBER() OVER (PARTITION BY c.id ORDER BY msg.created_at, msg.id) AS seq
+                          FROM messages msg
+                          JOIN conversations c ON c.user_low_id = LEAST(msg.sender_id, msg.receiver_id)
+                              AND c.user_high_id = GREATEST(msg.sender_id, msg.receiver_id)) n
+                    WHERE m.id = n.id
+                    """);
+            statement.execute("""
+                    UPDATE conversations c
+                    SET last_seq = l.seq, last_message_id = l.id, last_message_at = l.created_at
+                    FROM (SELECT DISTINCT ON (conversation_id) conversation_id, id, seq, created_at
+                          FROM messages ORDER BY conversation_id, seq DESC) l
+                    WHERE l.conversation_id = c.id
+                    """);
+            statement.execute("""
+                    UPDATE conversations c
+                    SET user_low_read_seq = COALESCE(u.low_unread - 1, c.last_seq),
+                        user_high_read_seq = COALESCE(u.high_unread - 1, c.last_seq)
+                    FROM (SELECT c2.id,
+                                 MIN(m.seq) FILTER (WHERE m.receiver_id = c2.user_low_id) AS low_unread,
+                                 MIN(m.seq) FILTER (WHERE m.receiver_id = c2.user_high_id) AS high_unread
+                          FROM conversations c2
+                          LEFT JOIN messages m ON m.conversation_id = c2.id AND m.is_read = false
+                          GROUP BY c2.id) u
+                    WHERE u.id = c.id
+                    """);
+            return conversations;
+        }
+    }
+
+    private long finish(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String table : List.of("users", "subscriptions", "posts", "images", "friendships", "messages",
+                    "conversations")) {
+                statement.execute("SELECT setval('" + table + "_id_seq', "
+                        + "(SELECT COALESCE(MAX(id), 1) FROM " + table + "))");
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    UPDATE users u SET unread_messages_count = r.unread
+                    FROM (SELECT m.receiver_id, COUNT(*) AS unread
+                          FROM messages m JOIN conversations c ON c.id = m.conversation_id
+                          WHERE m.seq > CASE WHEN m.receiver_id = c.user_low_id
+                                             THEN c.user_low_read_seq ELSE c.user_high_read_seq END
+                          GROUP BY m.receiver_id) r
+                    WHERE u.id = r.receiver_id
+                    """);
+            statement.execute("""
+                    UPDATE users u
+                    SET followers_count = (SELECT COUNT(*) FROM subscriptions s WHERE s.following_id = u.id),
+                        following_count = (SELECT COUNT(*) FROM subscriptions s WHERE s.follower_id = u.id),
+                        posts_count = (SELECT COUNT(*) FROM posts p WHERE p.user_id = u.id AND p.is_deleted = false)
+                    """);
+        }
+        long entries;
+        try (PreparedStatement statement = connection.prepareStatement("""
+                INSERT INTO feed_entries (user_id, post_id, author_id, created_at)
+                SELECT s.follower_id, p.id, p.user_id, p.created_at
+                FROM subscriptions s
+                JOIN posts p ON p.user_id = s.following_id
+                WHERE p.is_deleted = false
+                AND s.following_id NOT IN (
+                    SELECT following_id FROM subscriptions
+                    GROUP BY following_id HAVING COUNT(*) >= ?
+                )
+                ON CONFLICT DO NOTHING
+                """)) {
+            statement.setLong(1, config.celebrityThreshold());
+            entries = statement.executeUpdate();
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE");
+        }
+        return entries;
+    }
+
+    private String randomStatus(Random random) {
+        int roll = random.nextInt(100);
+        if (roll < 60) {
+            return "ACCEPTED";
+        }
+        return roll < 85 ? "PENDING" : "REJECTED";
+    }
+
+    private LocalDateTime randomTime(Random random) {
+        return now.minusSeconds(random.nextInt(DAYS * 24 * 3600));
+    }
+
+    private long step(String table, LoadStep step) throws SQLException {
+        long startedAt = System.currentTimeMillis();
+        long rows = step.run();
+        log.info("{}: {} строк за {} мс", table, rows, System.currentTimeMillis() - startedAt);
+        return rows;
+    }
+
+    @FunctionalInterface
+    private interface LoadStep {
+        long run() throws SQLException;
+    }
+}
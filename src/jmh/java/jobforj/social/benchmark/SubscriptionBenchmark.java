@@ -0,0 +1,117 @@
+package jobforj.social.benchmark;
+
+import jobforj.social.dto.FollowOutcome;
+import jobforj.social.model.Friendship;
+import jobforj.social.model.Subscription;
+import jobforj.social.service.SubscriptionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Операции записи: подписка, подписка одним запросом, пакетная подписка при онбординге,
+ * отправка и принятие заявки в друзья.
+ * Пары пользователей выбираются случайно; попытка повторить существующую
+ * подписку или заявку завершается IllegalArgumentException и тоже измеряется,
+ * так как включает те же проверки.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SubscriptionBenchmark {
+    private static final int ONBOARDING_TARGETS = 30;
+
+    /**
+     * Сгенерированные заявки в статусе PENDING, которые можно принять.
+     */
+    @State(Scope.Benchmark)
+    public static class PendingRequests {
+        final Queue<long[]> pairs = new ConcurrentLinkedQueue<>();
+
+        @Setup(Level.Trial)
+        public void setUp(BenchmarkState state) {
+            new JdbcTemplate(state.getBean(DataSource.class)).query(
+                    "SELECT requester_id, addressee_id FROM friendships WHERE status = 'PENDING'",
+                    row -> {
+                        pairs.add(new long[]{row.getLong(1), row.getLong(2)});
+                    });
+        }
+    }
+
+    @Benchmark
+    public Subscription subscribe(BenchmarkState state) {
+        long followerId = state.randomUserId();
+        try {
+            return state.getBean(SubscriptionService.class)
+                    .subscribe(followerId, state.randomOtherUserId(followerId));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public boolean follow(BenchmarkState state) {
+        long followerId = state.randomUserId();
+        return state.getBean(SubscriptionService.class).follow(followerId, state.randomOtherUserId(followerId));
+    }
+
+    @Benchmark
+    public List<FollowOutcome> followAll(BenchmarkState state) {
+        long followerId = state.randomUserId();
+        List<Long> targetIds = new ArrayList<>(ONBOARDING_TARGETS);
+        for (int i = 0; i < ONBOARDING_TARGETS; i++) {
+            targetIds.add(state.randomOtherUserId(followerId));
+        }
+        return state.getBean(SubscriptionService.class).followAll(followerId, targetIds);
+    }
+
+    @Benchmark
+    public Friendship sendFriendRequest(BenchmarkState state) {
+        long requesterId = state.randomUserId();
+        try {
+            return state.getBean(SubscriptionService.class)
+                    .sendFriendRequest(requesterId, state.randomOtherUserId(requesterId));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Принимает сгенерированную заявку. Когда такие заявки заканчиваются,
+     * перед принятием отправляется новая заявка.
+     */
+    @Benchmark
+    public boolean acceptFriendRequest(BenchmarkState state, PendingRequests pending) {
+        SubscriptionService subscriptionService = state.getBean(SubscriptionService.class);
+        long[] pair = pending.pairs.poll();
+        try {
+            if (pair == null) {
+                long requesterId = state.randomUserId();
+                pair = new long[]{requesterId, state.randomOtherUserId(requesterId)};
+                subscriptionService.sendFriendRequest(pair[0], pair[1]);
+            }
+            subscriptionService.acceptFriendRequest(pair[0], pair[1]);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
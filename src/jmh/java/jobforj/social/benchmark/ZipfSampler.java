@@ -0,0 +1,47 @@
+package jobforj.social.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Выбор пользователей по закону Ципфа: пользователь с рангом k выбирается
+ * с вероятностью, пропорциональной 1 / k^s. Ранги случайно перемешаны
+ * относительно идентификаторов, чтобы популярность не совпадала с порядком создания.
+ */
+final class ZipfSampler {
+    private final double[] cumulative;
+    private final int[] userIdByRank;
+
+    ZipfSampler(int users, double exponent, Random random) {
+        cumulative = new double[users];
+        double sum = 0;
+        for (int rank = 0; rank < users; rank++) {
+            sum += 1.0 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < users; rank++) {
+            cumulative[rank] /= sum;
+        }
+        userIdByRank = new int[users];
+        for (int rank = 0; rank < users; rank++) {
+            userIdByRank[rank] = rank + 1;
+        }
+        for (int i = users - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = userIdByRank[i];
+            userIdByRank[i] = userIdByRank[j];
+            userIdByRank[j] = swap;
+        }
+    }
+
+    /**
+     * @return идентификатор пользователя от 1 до users
+     */
+    int next(Random random) {
+        int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+        if (rank < 0) {
+            rank = -rank - 1;
+        }
+        return userIdByRank[Math.min(rank, userIdByRank.length - 1)];
+    }
+}
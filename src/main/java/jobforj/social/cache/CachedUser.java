@@ -0,0 +1,20 @@
+package jobforj.social.cache;
+
+import jobforj.social.model.User;
+
+/**
+ * Неизменяемый снимок пользователя для {@link UserCache}.
+ * Хранит только поля, нужные для проверок и поиска, без коллекций и хеша пароля.
+ *
+ * @param id       идентификатор пользователя
+ * @param username имя пользователя
+ * @param email    email пользователя
+ * @param active   false если пользователь деактивирован
+ */
+public record CachedUser(Integer id, String username, String email, boolean active) {
+
+    public static CachedUser of(User user) {
+        return new CachedUser(user.getId(), user.getUsername(), user.getEmail(),
+                Boolean.TRUE.equals(user.getIsActive()));
+    }
+}
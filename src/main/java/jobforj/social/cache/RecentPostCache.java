@@ -0,0 +1,281 @@
+package jobforj.social.cache;
+
+import jobforj.social.dto.FeedItem;
+import jobforj.social.dto.PostCursor;
+import jobforj.social.repository.PostRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Кэш последних постов авторов в памяти процесса.
+ * Для каждого автора хранится кольцевой буфер из последних N идентификаторов постов
+ * и их времени создания в примитивных массивах. Число авторов ограничено,
+ * давно не использованные буферы вытесняются.
+ * <p>
+ * Изменения применяются после фиксации транзакции. Буфер, загруженный из базы,
+ * устанавливается только если за время загрузки посты автора не менялись.
+ */
+@Component
+public class RecentPostCache {
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final PostRepository postRepository;
+    private final int capacity;
+    private final Map<Integer, AuthorRing> rings;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public RecentPostCache(PostRepository postRepository,
+                           @Value("${feed.recent-posts.capacity:64}") int capacity,
+                           @Value("${feed.recent-posts.max-authors:10000}") int maxAuthors) {
+        this.postRepository = postRepository;
+        this.capacity = capacity;
+        this.rings = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, AuthorRing> eldest) {
+                return size() > maxAuthors;
+            }
+        });
+    }
+
+    /**
+     * Возвращает посты автора, созданные раньше позиции, из кэша.
+     * При промахе буфер загружается из базы, если запрошенная страница в него помещается.
+     *
+     * @param authorId идентификатор автора
+     * @param position позиция, после которой начинается выборка
+     * @param limit    количество постов
+     * @return посты от новых к старым или пустой Optional, если страницу нужно читать из базы
+     */
+    public Optional<List<FeedItem>> findBefore(Integer authorId, PostCursor position, int limit) {
+        if (limit > capacity) {
+            return Optional.empty();
+        }
+        AuthorRing ring = rings.get(authorId);
+        if (ring == null) {
+            ring = load(authorId);
+        }
+        return Optional.ofNullable(ring.before(toMicros(position.createdAt()), position.id(), limit));
+    }
+
+    /**
+     * Добавляет новый пост автора в буфер после фиксации транзакции.
+     *
+     * @param authorId  идентификатор автора
+     * @param postId    идентификатор поста
+     * @param createdAt время создания поста
+     */
+    public void onPostCreated(Integer authorId, Integer postId, LocalDateTime createdAt) {
+        long micros = toMicros(createdAt);
+        afterCommit(authorId, () -> {
+            AuthorRing ring = rings.get(authorId);
+            if (ring != null) {
+                ring.push(postId, micros);
+            }
+        });
+    }
+
+    /**
+     * Убирает пост из буфера автора после фиксации транзакции.
+     *
+     * @param authorId идентификатор автора
+     * @param postId   идентификатор поста
+     */
+    public void onPostRemoved(Integer authorId, Integer postId) {
+        afterCommit(authorId, () -> {
+            AuthorRing ring = rings.get(authorId);
+            if (ring != null) {
+                ring.remove(postId);
+            }
+        });
+    }
+
+    /**
+     * Сбрасывает буфер автора после фиксации транзакции.
+     *
+     * @param authorId идентификатор автора
+     */
+    public void evictAuthor(Integer authorId) {
+        afterCommit(authorId, () -> rings.remove(authorId));
+    }
+
+    private AuthorRing load(Integer authorId) {
+        int stripe = stripe(authorId);
+        long generation = generations.get(stripe);
+        PostCursor start = PostCursor.decode(null);
+        List<FeedItem> items = postRepository.findItemsByAuthorBeforeCursor(Long.valueOf(authorId),
+                start.createdAt(), start.idAsLong(), PageRequest.of(0, capacity));
+        AuthorRing ring = new AuthorRing(capacity, items, items.size() < capacity);
+        synchronized (rings) {
+            if (generations.get(stripe) == generation) {
+                rings.putIfAbsent(authorId, ring);
+            }
+        }
+        return ring;
+    }
+
+    private void afterCommit(Integer authorId, Runnable change) {
+        Runnable apply = () -> {
+            synchronized (rings) {
+                generations.incrementAndGet(stripe(authorId));
+                change.run();
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    private static int stripe(Integer authorId) {
+        return authorId & (GENERATION_STRIPES - 1);
+    }
+
+    /**
+     * Переводит время в микросекунды с округлением, как это делает PostgreSQL для TIMESTAMP.
+     */
+    static long toMicros(LocalDateTime time) {
+        LocalDateTime rounded = time.plusNanos(500).truncatedTo(ChronoUnit.MICROS);
+        return rounded.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + rounded.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * Кольцевой буфер последних постов одного автора, упорядоченный от новых к старым.
+     * Элемент с логическим индексом i хранится в ячейке (head + i) % capacity.
+     */
+    static final class AuthorRing {
+        private final int[] postIds;
+        private final long[] createdAtMicros;
+        private int head;
+        private int size;
+        private boolean exhaustive;
+
+        /**
+         * @param capacity   максимальное количество постов
+         * @param newest     последние посты автора от новых к старым, не больше capacity
+         * @param exhaustive true если других постов у автора нет
+         */
+        AuthorRing(int capacity, List<FeedItem> newest, boolean exhaustive) {
+            this.postIds = new int[capacity];
+            this.createdAtMicros = new long[capacity];
+            this.exhaustive = exhaustive;
+            for (FeedItem item : newest) {
+                postIds[size] = item.postId();
+                createdAtMicros[size] = toMicros(item.createdAt());
+                size++;
+            }
+        }
+
+        /**
+         * Вставляет пост на его место по времени создания. Если буфер полон,
+         * вытесняется самый старый пост. Пост старше всех известных вставляется
+         * только в буфер, содержащий все посты автора.
+         */
+        synchronized void push(int postId, long micros) {
+            int capacity = postIds.length;
+            int position = 0;
+            while (position < size && isNewer(slot(position), micros, postId)) {
+                position++;
+            }
+            if (position < size && postIds[slot(position)] == postId) {
+                return;
+            }
+            if (position == size && (size == capacity || !exhaustive)) {
+                exhaustive = false;
+                return;
+            }
+            if (size == capacity) {
+                size--;
+                exhaustive = false;
+            }
+            head = (head - 1 + capacity) % capacity;
+            for (int i = 0; i < position; i++) {
+                copy(slot(i + 1), slot(i));
+            }
+            postIds[slot(position)] = postId;
+            createdAtMicros[slot(position)] = micros;
+            size++;
+        }
+
+        synchronized void remove(int postId) {
+            for (int i = 0; i < size; i++) {
+                if (postIds[slot(i)] == postId) {
+                    for (int j = i; j < size - 1; j++) {
+                        copy(slot(j + 1), slot(j));
+                    }
+                    size--;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return посты старше позиции или null, если буфер не покрывает страницу целиком
+         */
+        synchronized List<FeedItem> before(long micros, int postId, int limit) {
+            int start = 0;
+            while (start < size && !isOlder(slot(start), micros, postId)) {
+                start++;
+            }
+            int available = size - start;
+            if (available < limit && !exhaustive) {
+                return null;
+            }
+            int count = Math.min(available, limit);
+            List<FeedItem> items = new ArrayList<>(count);
+            for (int i = start; i < start + count; i++) {
+                int slot = slot(i);
+                items.add(new FeedItem(postIds[slot], fromMicros(createdAtMicros[slot])));
+            }
+            return items;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        private boolean isNewer(int slot, long micros, int postId) {
+            return createdAtMicros[slot] > micros
+                    || (createdAtMicros[slot] == micros && postIds[slot] > postId);
+        }
+
+        private boolean isOlder(int slot, long micros, int postId) {
+            return createdAtMicros[slot] < micros
+                    || (createdAtMicros[slot] == micros && postIds[slot] < postId);
+        }
+
+        private void copy(int from, int to) {
+            postIds[to] = postIds[from];
+            createdAtMicros[to] = createdAtMicros[from];
+        }
+
+        private int slot(int index) {
+            return (head + index) % postIds.length;
+        }
+    }
+}
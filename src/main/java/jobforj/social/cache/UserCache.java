@@ -0,0 +1,227 @@
+package jobforj.social.cache;
+
+import jobforj.social.event.UserChangedEvent;
+import jobforj.social.repository.UserRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Двухуровневый кэш пользователей по идентификатору, имени и email.
+ * Первый уровень — ограниченная по размеру LRU-таблица в памяти процесса,
+ * второй — подключаемое {@link UserCacheStore}. Промахи обоих уровней читаются из базы.
+ * Отсутствующие пользователи не кэшируются.
+ * <p>
+ * Записи сбрасываются событием {@link UserChangedEvent} после фиксации транзакции.
+ * Значение, прочитанное из базы, попадает в кэш только если за время чтения
+ * не было сброса этого пользователя, поэтому параллельное чтение не возвращает в кэш старые данные.
+ * Сбросы учитываются в полосах по идентификатору и не мешают загрузке других пользователей.
+ * <p>
+ * Счетчики попаданий и доля попаданий публикуются через JMX.
+ */
+@Component
+@ManagedResource(objectName = "jobforj.social:type=Cache,name=users", description = "Кэш пользователей")
+public class UserCache {
+    private static final String ID_KEY = "user:id:";
+    private static final String USERNAME_KEY = "user:username:";
+    private static final String EMAIL_KEY = "user:email:";
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final UserRepository userRepository;
+    private final UserCacheStore store;
+    private final Map<Integer, CachedUser> byId;
+    private final Map<String, Integer> idByUsername = new HashMap<>();
+    private final Map<String, Integer> idByEmail = new HashMap<>();
+    private final LongAdder l1Hits = new LongAdder();
+    private final LongAdder l2Hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final long[] generations = new long[GENERATION_STRIPES];
+
+    public UserCache(UserRepository userRepository,
+                     ObjectProvider<UserCacheStore> store,
+                     @Value("${user.cache.max-size:100000}") int maxSize) {
+        this.userRepository = userRepository;
+        this.store = store.getIfAvailable(() -> UserCacheStore.NONE);
+        this.byId = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, CachedUser> eldest) {
+                if (size() <= maxSize) {
+                    return false;
+                }
+                unlink(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @param id идентификатор пользователя
+     * @return пользователь или пустой Optional, если его нет в базе
+     */
+    public Optional<CachedUser> findById(Long id) {
+        Integer userId = id.intValue();
+        return find(() -> byId.get(userId), ID_KEY + userId,
+                () -> userRepository.findById(id).map(CachedUser::of));
+    }
+
+    /**
+     * @param username имя пользователя
+     * @return пользователь или пустой Optional, если его нет в базе
+     */
+    public Optional<CachedUser> findByUsername(String username) {
+        return find(() -> lookup(idByUsername, username), USERNAME_KEY + username,
+                () -> userRepository.findByUsername(username).map(CachedUser::of));
+    }
+
+    /**
+     * @param email email пользователя
+     * @return пользователь или пустой Optional, если его нет в базе
+     */
+    public Optional<CachedUser> findByEmail(String email) {
+        return find(() -> lookup(idByEmail, email), EMAIL_KEY + email,
+                () -> userRepository.findByEmail(email).map(CachedUser::of));
+    }
+
+    /**
+     * Сбрасывает записи пользователя на обоих уровнях после фиксации транзакции,
+     * включая ключи по прежним имени и email.
+     *
+     * @param event событие о пользователе
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        CachedUser previous;
+        synchronized (byId) {
+            generations[stripe(event.userId())]++;
+            previous = byId.remove(event.userId());
+            if (previous != null) {
+                unlink(previous);
+            }
+        }
+        if (previous == null) {
+            previous = store.get(ID_KEY + event.userId()).orElse(null);
+        }
+        store.evict(ID_KEY + event.userId());
+        if (previous != null) {
+            store.evict(USERNAME_KEY + previous.username());
+            store.evict(EMAIL_KEY + previous.email());
+        }
+        store.evict(USERNAME_KEY + event.username());
+        store.evict(EMAIL_KEY + event.email());
+    }
+
+    @ManagedAttribute(description = "Попадания в кэш первого уровня")
+    public long getL1Hits() {
+        return l1Hits.sum();
+    }
+
+    @ManagedAttribute(description = "Попадания в кэш второго уровня")
+    public long getL2Hits() {
+        return l2Hits.sum();
+    }
+
+    @ManagedAttribute(description = "Промахи обоих уровней")
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @ManagedAttribute(description = "Доля запросов без обращения к базе")
+    public double getHitRatio() {
+        long hits = getL1Hits() + getL2Hits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @ManagedAttribute(description = "Количество пользователей в кэше первого уровня")
+    public int getSize() {
+        synchronized (byId) {
+            return byId.size();
+        }
+    }
+
+    private Optional<CachedUser> find(Supplier<CachedUser> local, String storeKey,
+                                      Supplier<Optional<CachedUser>> database) {
+        long[] startedAt;
+        synchronized (byId) {
+            CachedUser user = local.get();
+            if (user != null) {
+                l1Hits.increment();
+                return Optional.of(user);
+            }
+            // при поиске по имени или email идентификатор заранее неизвестен, поэтому запоминаются все полосы
+            startedAt = generations.clone();
+        }
+        Optional<CachedUser> stored = store.get(storeKey);
+        if (stored.isPresent()) {
+            l2Hits.increment();
+            link(stored.get(), startedAt);
+            return stored;
+        }
+        misses.increment();
+        Optional<CachedUser> loaded = database.get();
+        loaded.ifPresent(user -> {
+            if (link(user, startedAt)) {
+                store.put(ID_KEY + user.id(), user);
+                store.put(USERNAME_KEY + user.username(), user);
+                store.put(EMAIL_KEY + user.email(), user);
+                if (!unchanged(user, startedAt)) {
+                    store.evict(ID_KEY + user.id());
+                    store.evict(USERNAME_KEY + user.username());
+                    store.evict(EMAIL_KEY + user.email());
+                }
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Кладет пользователя в первый уровень, если с начала чтения его записи не сбрасывались.
+     */
+    private boolean link(CachedUser user, long[] startedAt) {
+        synchronized (byId) {
+            if (generations[stripe(user.id())] != startedAt[stripe(user.id())]) {
+                return false;
+            }
+            CachedUser previous = byId.put(user.id(), user);
+            if (previous != null) {
+                unlink(previous);
+            }
+            idByUsername.put(user.username(), user.id());
+            idByEmail.put(user.email(), user.id());
+            return true;
+        }
+    }
+
+    /**
+     * Проверяет после записи во второй уровень, что сброс не прошел между {@link #link} и записью.
+     */
+    private boolean unchanged(CachedUser user, long[] startedAt) {
+        synchronized (byId) {
+            return generations[stripe(user.id())] == startedAt[stripe(user.id())];
+        }
+    }
+
+    private void unlink(CachedUser user) {
+        idByUsername.remove(user.username(), user.id());
+        idByEmail.remove(user.email(), user.id());
+    }
+
+    private CachedUser lookup(Map<String, Integer> index, String key) {
+        Integer id = index.get(key);
+        return id == null ? null : byId.get(id);
+    }
+
+    private static int stripe(Integer userId) {
+        return userId & (GENERATION_STRIPES - 1);
+    }
+}
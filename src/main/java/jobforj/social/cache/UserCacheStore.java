@@ -0,0 +1,38 @@
+package jobforj.social.cache;
+
+import java.util.Optional;
+
+/**
+ * Второй уровень {@link UserCache}: общее для нескольких экземпляров приложения хранилище,
+ * например Redis. Чтобы подключить хранилище, достаточно объявить бин этого типа;
+ * без него кэш работает только в памяти процесса.
+ * <p>
+ * Записи хранилища должны иметь ограниченное время жизни: инвалидация выполняется
+ * после фиксации транзакции и не атомарна относительно записи из параллельного чтения.
+ */
+public interface UserCacheStore {
+
+    /**
+     * Хранилище без записей.
+     */
+    UserCacheStore NONE = new UserCacheStore() {
+        @Override
+        public Optional<CachedUser> get(String key) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void put(String key, CachedUser user) {
+        }
+
+        @Override
+        public void evict(String key) {
+        }
+    };
+
+    Optional<CachedUser> get(String key);
+
+    void put(String key, CachedUser user);
+
+    void evict(String key);
+}
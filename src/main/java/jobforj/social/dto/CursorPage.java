@@ -0,0 +1,53 @@
+package jobforj.social.dto;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница keyset-пагинации: содержимое и курсор для запроса следующей страницы.
+ * В отличие от {@link org.springframework.data.domain.Page} не требует запроса COUNT.
+ *
+ * @param content    элементы страницы
+ * @param nextCursor курсор следующей страницы, null если страница последняя
+ * @param hasNext    есть ли следующая страница
+ * @param <T>        тип элементов
+ */
+public record CursorPage<T>(List<T> content, String nextCursor, boolean hasNext) {
+
+    public static final int MAX_LIMIT = 100;
+
+    /**
+     * Возвращает параметры выборки для страницы заданного размера.
+     * Запрашивается на одну строку больше, чтобы без COUNT узнать о наличии следующей страницы.
+     *
+     * @param limit размер страницы
+     * @return параметры выборки
+     * @throws IllegalArgumentException если размер страницы вне допустимого диапазона
+     */
+    public static Pageable fetchRequest(int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Размер страницы должен быть от 1 до " + MAX_LIMIT);
+        }
+        return PageRequest.of(0, limit + 1);
+    }
+
+    /**
+     * Собирает страницу из строк, выбранных с параметрами {@link #fetchRequest(int)}.
+     *
+     * @param rows     выбранные строки (не более limit + 1)
+     * @param limit    размер страницы
+     * @param cursorOf функция получения курсора по элементу
+     * @param <T>      тип элементов
+     * @return страница с курсором следующей страницы
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int limit, Function<T, String> cursorOf) {
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null, false);
+        }
+        List<T> content = List.copyOf(rows.subList(0, limit));
+        return new CursorPage<>(content, cursorOf.apply(content.get(limit - 1)), true);
+    }
+}
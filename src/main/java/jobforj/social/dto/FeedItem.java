@@ -0,0 +1,24 @@
+package jobforj.social.dto;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+/**
+ * Ключ поста в ленте без загрузки самой сущности: используется при слиянии источников ленты.
+ *
+ * @param postId    идентификатор поста
+ * @param createdAt время создания поста
+ */
+public record FeedItem(Integer postId, LocalDateTime createdAt) {
+
+    /**
+     * Порядок ленты: от новых к старым, при равном времени по убыванию идентификатора.
+     */
+    public static final Comparator<FeedItem> NEWEST_FIRST = Comparator
+            .comparing(FeedItem::createdAt, Comparator.reverseOrder())
+            .thenComparing(FeedItem::postId, Comparator.reverseOrder());
+
+    public PostCursor toCursor() {
+        return new PostCursor(createdAt, postId);
+    }
+}
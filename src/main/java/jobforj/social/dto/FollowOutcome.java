@@ -0,0 +1,37 @@
+package jobforj.social.dto;
+
+/**
+ * Результат пакетной подписки или отписки для одного пользователя.
+ *
+ * @param targetId идентификатор пользователя, на которого подписывались или от которого отписывались
+ * @param status   результат
+ */
+public record FollowOutcome(Long targetId, Status status) {
+
+    public enum Status {
+        /**
+         * Подписка создана.
+         */
+        CREATED,
+        /**
+         * Подписка уже существовала.
+         */
+        ALREADY_FOLLOWING,
+        /**
+         * Подписка удалена.
+         */
+        REMOVED,
+        /**
+         * Подписки не было.
+         */
+        NOT_FOLLOWING,
+        /**
+         * Пользователь не найден.
+         */
+        USER_NOT_FOUND,
+        /**
+         * Попытка подписаться на самого себя.
+         */
+        SELF
+    }
+}
@@ -0,0 +1,12 @@
+package jobforj.social.dto;
+
+import jobforj.social.model.User;
+
+/**
+ * Рекомендация в друзья.
+ *
+ * @param user          рекомендованный пользователь
+ * @param mutualFriends количество общих друзей
+ */
+public record FriendSuggestion(User user, int mutualFriends) {
+}
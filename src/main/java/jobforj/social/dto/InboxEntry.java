@@ -0,0 +1,36 @@
+package jobforj.social.dto;
+
+import jobforj.social.model.Conversation;
+import jobforj.social.model.Message;
+import jobforj.social.model.User;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+/**
+ * Строка списка входящих: переписка с собеседником и ее последнее сообщение.
+ *
+ * @param conversationId идентификатор переписки
+ * @param partner        собеседник
+ * @param lastMessage    последнее сообщение переписки
+ * @param lastMessageAt  время последнего сообщения
+ * @param hasUnread      последнее сообщение от собеседника и пользователь его еще не прочитал
+ */
+public record InboxEntry(Integer conversationId, User partner, Message lastMessage,
+                         LocalDateTime lastMessageAt, boolean hasUnread) {
+
+    /**
+     * Порядок списка входящих: от последней активности, при равном времени по убыванию идентификатора.
+     */
+    public static final Comparator<InboxEntry> MOST_RECENT_FIRST = Comparator
+            .comparing(InboxEntry::lastMessageAt, Comparator.reverseOrder())
+            .thenComparing(InboxEntry::conversationId, Comparator.reverseOrder());
+
+    public static InboxEntry of(Conversation conversation, Integer userId) {
+        Message lastMessage = conversation.getLastMessage();
+        boolean hasUnread = lastMessage != null && !lastMessage.getSender().getId().equals(userId)
+                && conversation.getLastSeq() > conversation.readSeqOf(userId);
+        return new InboxEntry(conversation.getId(), conversation.partnerOf(userId), lastMessage,
+                conversation.getLastMessageAt(), hasUnread);
+    }
+}
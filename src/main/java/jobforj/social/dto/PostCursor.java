@@ -0,0 +1,66 @@
+package jobforj.social.dto;
+
+import jobforj.social.model.Post;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Позиция в ленте, отсортированной по (created_at, id) по убыванию.
+ * Клиенту передается в виде непрозрачной строки, следующая страница
+ * начинается строго после этой позиции.
+ *
+ * @param createdAt время создания последнего полученного поста
+ * @param id        идентификатор последнего полученного поста
+ */
+public record PostCursor(LocalDateTime createdAt, Integer id) {
+
+    /**
+     * Позиция перед самым новым постом: используется для первой страницы,
+     * чтобы все варианты запроса выполнялись одним и тем же seek-условием.
+     */
+    private static final PostCursor START = new PostCursor(
+            LocalDateTime.of(9999, 12, 31, 23, 59, 59), Integer.MAX_VALUE);
+
+    private static final String SEPARATOR = "|";
+
+    public static PostCursor of(Post post) {
+        return new PostCursor(post.getCreatedAt(), post.getId());
+    }
+
+    /**
+     * Разбирает курсор, полученный от клиента.
+     *
+     * @param token строка курсора, null или пустая строка для первой страницы
+     * @return позиция, после которой начинается страница
+     * @throws IllegalArgumentException если курсор поврежден
+     */
+    public static PostCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return START;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Некорректный курсор");
+            }
+            return new PostCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Integer.valueOf(raw.substring(separator + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректный курсор", e);
+        }
+    }
+
+    public String encode() {
+        String raw = createdAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Long idAsLong() {
+        return Long.valueOf(id);
+    }
+}
@@ -0,0 +1,25 @@
+package jobforj.social.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Строка списка постов, выбранная проекцией без загрузки сущностей.
+ * Не попадает в контекст персистентности и не тянет ленивые связи автора и изображений.
+ *
+ * @param id             идентификатор поста
+ * @param authorId       идентификатор автора
+ * @param authorUsername имя автора
+ * @param title          заголовок
+ * @param preview        начало текста поста, не длиннее {@link #PREVIEW_LENGTH} символов
+ * @param createdAt      время создания
+ * @param imageCount     количество изображений
+ */
+public record PostSummary(Integer id, Integer authorId, String authorUsername, String title,
+                          String preview, LocalDateTime createdAt, Long imageCount) {
+
+    public static final int PREVIEW_LENGTH = 280;
+
+    public PostCursor toCursor() {
+        return new PostCursor(createdAt, id);
+    }
+}
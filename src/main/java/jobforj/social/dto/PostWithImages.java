@@ -0,0 +1,16 @@
+package jobforj.social.dto;
+
+import jobforj.social.model.Image;
+import jobforj.social.model.Post;
+
+import java.util.List;
+
+/**
+ * Пост вместе с изображениями, загруженными одним запросом на всю страницу.
+ * Изображения берутся из этой записи, а не из ленивой коллекции {@link Post#getImages()}.
+ *
+ * @param post   пост
+ * @param images изображения поста по возрастанию идентификатора
+ */
+public record PostWithImages(Post post, List<Image> images) {
+}
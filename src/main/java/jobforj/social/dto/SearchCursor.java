@@ -0,0 +1,52 @@
+package jobforj.social.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Позиция в результатах полнотекстового поиска, отсортированных по (rank, id) по убыванию.
+ * Клиенту передается в виде непрозрачной строки, как и {@link PostCursor}.
+ *
+ * @param rank релевантность последнего полученного поста
+ * @param id   идентификатор последнего полученного поста
+ */
+public record SearchCursor(double rank, Integer id) {
+
+    private static final SearchCursor START = new SearchCursor(Double.MAX_VALUE, Integer.MAX_VALUE);
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Разбирает курсор, полученный от клиента.
+     *
+     * @param token строка курсора, null или пустая строка для первой страницы
+     * @return позиция, после которой начинается страница
+     * @throws IllegalArgumentException если курсор поврежден
+     */
+    public static SearchCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return START;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Некорректный курсор");
+            }
+            return new SearchCursor(Double.parseDouble(raw.substring(0, separator)),
+                    Integer.valueOf(raw.substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректный курсор", e);
+        }
+    }
+
+    public String encode() {
+        String raw = rank + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Long idAsLong() {
+        return Long.valueOf(id);
+    }
+}
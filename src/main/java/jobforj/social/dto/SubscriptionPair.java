@@ -0,0 +1,10 @@
+package jobforj.social.dto;
+
+/**
+ * Пара идентификаторов подписки без загрузки сущностей.
+ *
+ * @param followerId  идентификатор подписчика
+ * @param followingId идентификатор пользователя, на которого подписаны
+ */
+public record SubscriptionPair(Integer followerId, Integer followingId) {
+}
@@ -0,0 +1,13 @@
+package jobforj.social.dto;
+
+/**
+ * Шапка профиля пользователя со счетчиками, читаемая одной строкой users.
+ *
+ * @param id             идентификатор пользователя
+ * @param username       имя пользователя
+ * @param followersCount количество подписчиков
+ * @param followingCount количество подписок
+ * @param postsCount     количество активных постов
+ */
+public record UserProfile(Integer id, String username, int followersCount, int followingCount, int postsCount) {
+}
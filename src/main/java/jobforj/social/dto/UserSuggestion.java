@@ -0,0 +1,10 @@
+package jobforj.social.dto;
+
+/**
+ * Подсказка автодополнения: пользователь без загрузки сущности.
+ *
+ * @param id       идентификатор пользователя
+ * @param username имя пользователя
+ */
+public record UserSuggestion(Integer id, String username) {
+}
@@ -0,0 +1,11 @@
+package jobforj.social.event;
+
+/**
+ * Событие о создании или удалении подписки.
+ *
+ * @param followerId  идентификатор подписчика
+ * @param followingId идентификатор пользователя, на которого подписаны
+ * @param created     true если подписка создана, false если удалена
+ */
+public record SubscriptionChangedEvent(Integer followerId, Integer followingId, boolean created) {
+}
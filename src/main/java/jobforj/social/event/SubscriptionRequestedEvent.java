@@ -0,0 +1,11 @@
+package jobforj.social.event;
+
+/**
+ * Событие о том, что подписка поставлена в очередь subscription_outbox
+ * и будет создана фоновым обработчиком.
+ *
+ * @param followerId  идентификатор подписчика
+ * @param followingId идентификатор пользователя, на которого подписываются
+ */
+public record SubscriptionRequestedEvent(Integer followerId, Integer followingId) {
+}
@@ -0,0 +1,12 @@
+package jobforj.social.event;
+
+/**
+ * Событие о создании, изменении или деактивации пользователя.
+ *
+ * @param userId   идентификатор пользователя
+ * @param username имя пользователя
+ * @param email    email пользователя
+ * @param active   false если пользователь деактивирован
+ */
+public record UserChangedEvent(Integer userId, String username, String email, boolean active) {
+}
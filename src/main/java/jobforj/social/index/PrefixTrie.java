@@ -0,0 +1,215 @@
+package jobforj.social.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Сжатое префиксное дерево (radix trie): цепочки узлов с одним потомком
+ * хранятся одним ребром со строковой меткой. Потомки узла лежат в массиве,
+ * отсортированном по первому символу метки, поэтому обход идет в лексикографическом порядке.
+ * <p>
+ * Ключ может соответствовать нескольким значениям. Класс не потокобезопасен.
+ *
+ * @param <V> тип значений
+ */
+public final class PrefixTrie<V> {
+    private static final Node<?>[] NO_CHILDREN = new Node<?>[0];
+    private static final char[] NO_FIRST_CHARS = new char[0];
+
+    private final Node<V> root = new Node<>("");
+    private int size;
+
+    /**
+     * @return количество пар ключ-значение
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Добавляет значение по ключу.
+     *
+     * @param key   ключ
+     * @param value значение
+     */
+    public void put(String key, V value) {
+        Node<V> node = root;
+        int position = 0;
+        while (position < key.length()) {
+            int index = node.indexOf(key.charAt(position));
+            if (index < 0) {
+                node.insertChild(-index - 1, new Node<>(key.substring(position)));
+                node = node.child(-index - 1);
+                position = key.length();
+                break;
+            }
+            Node<V> child = node.child(index);
+            int common = commonPrefix(child.label, key, position);
+            if (common < child.label.length()) {
+                Node<V> middle = new Node<>(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.insertChild(0, child);
+                node.children[index] = middle;
+                child = middle;
+            }
+            node = child;
+            position += common;
+        }
+        node.values.add(value);
+        size++;
+    }
+
+    /**
+     * Удаляет значение по ключу. Узлы без значений и потомков удаляются,
+     * а узел с единственным потомком сливается с ним.
+     *
+     * @param key   ключ
+     * @param value значение
+     * @return true если значение было найдено
+     */
+    public boolean remove(String key, V value) {
+        List<Node<V>> path = new ArrayList<>();
+        Node<V> node = root;
+        int position = 0;
+        path.add(node);
+        while (position < key.length()) {
+            int index = node.indexOf(key.charAt(position));
+            if (index < 0) {
+                return false;
+            }
+            Node<V> child = node.child(index);
+            if (!key.startsWith(child.label, position)) {
+                return false;
+            }
+            node = child;
+            position += child.label.length();
+            path.add(node);
+        }
+        if (!node.values.remove(value)) {
+            return false;
+        }
+        size--;
+        for (int i = path.size() - 1; i > 0; i--) {
+            Node<V> current = path.get(i);
+            Node<V> parent = path.get(i - 1);
+            if (!current.values.isEmpty()) {
+                break;
+            }
+            if (current.children.length == 0) {
+                parent.removeChild(current);
+                continue;
+            }
+            if (current.children.length == 1) {
+                Node<V> only = current.child(0);
+                only.label = current.label + only.label;
+                parent.children[parent.indexOf(only.label.charAt(0))] = only;
+            }
+            break;
+        }
+        return true;
+    }
+
+    /**
+     * Возвращает первые значения с ключами, начинающимися с префикса.
+     * Значения точного совпадения идут первыми, остальные в лексикографическом порядке ключей.
+     *
+     * @param prefix префикс
+     * @param limit  максимальное количество значений
+     * @param accept фильтр значений, например для исключения повторов
+     * @return не более limit значений
+     */
+    public List<V> findByPrefix(String prefix, int limit, Predicate<V> accept) {
+        Node<V> node = root;
+        int position = 0;
+        while (position < prefix.length()) {
+            int index = node.indexOf(prefix.charAt(position));
+            if (index < 0) {
+                return List.of();
+            }
+            Node<V> child = node.child(index);
+            int common = commonPrefix(child.label, prefix, position);
+            if (position + common < prefix.length() && common < child.label.length()) {
+                return List.of();
+            }
+            node = child;
+            position += common;
+        }
+        List<V> result = new ArrayList<>(Math.min(limit, 16));
+        collect(node, limit, accept, result);
+        return result;
+    }
+
+    private static <V> void collect(Node<V> node, int limit, Predicate<V> accept, List<V> result) {
+        for (V value : node.values) {
+            if (result.size() == limit) {
+                return;
+            }
+            if (accept.test(value)) {
+                result.add(value);
+            }
+        }
+        for (Node<V> child : node.children) {
+            if (result.size() == limit) {
+                return;
+            }
+            collect(child, limit, accept, result);
+        }
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static final class Node<V> {
+        private String label;
+        private final List<V> values = new ArrayList<>(1);
+        private char[] firstChars = NO_FIRST_CHARS;
+        @SuppressWarnings("unchecked")
+        private Node<V>[] children = (Node<V>[]) NO_CHILDREN;
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        /**
+         * @return позиция потомка с меткой на данный символ или (-(позиция вставки) - 1)
+         */
+        private int indexOf(char first) {
+            return Arrays.binarySearch(firstChars, first);
+        }
+
+        private Node<V> child(int index) {
+            return children[index];
+        }
+
+        private void insertChild(int index, Node<V> child) {
+            char[] chars = new char[firstChars.length + 1];
+            System.arraycopy(firstChars, 0, chars, 0, index);
+            System.arraycopy(firstChars, index, chars, index + 1, firstChars.length - index);
+            chars[index] = child.label.charAt(0);
+            Node<V>[] nodes = Arrays.copyOf(children, children.length + 1);
+            System.arraycopy(children, index, nodes, index + 1, children.length - index);
+            nodes[index] = child;
+            firstChars = chars;
+            children = nodes;
+        }
+
+        private void removeChild(Node<V> child) {
+            int index = indexOf(child.label.charAt(0));
+            char[] chars = new char[firstChars.length - 1];
+            System.arraycopy(firstChars, 0, chars, 0, index);
+            System.arraycopy(firstChars, index + 1, chars, index, chars.length - index);
+            Node<V>[] nodes = Arrays.copyOf(children, children.length - 1);
+            System.arraycopy(children, index + 1, nodes, index, nodes.length - index);
+            firstChars = chars;
+            children = nodes;
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package jobforj.social.index;
+
+import jobforj.social.dto.SubscriptionPair;
+import jobforj.social.event.SubscriptionChangedEvent;
+import jobforj.social.repository.SubscriptionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.IntConsumer;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Граф подписок в памяти процесса.
+ * Для каждого пользователя хранятся сжатые битовые множества идентификаторов
+ * тех, на кого он подписан, и его подписчиков. Граф строится из таблицы subscriptions
+ * при старте приложения и периодически перестраивается, а между перестроениями
+ * обновляется событиями {@link SubscriptionChangedEvent} после фиксации транзакции.
+ * <p>
+ * Друзьями считаются пользователи, подписанные друг на друга: множество друзей
+ * есть пересечение битовых множеств подписок и подписчиков, поэтому общие друзья
+ * и рекомендации считаются пересечениями в памяти, без соединений в SQL.
+ * <p>
+ * Пока граф не построен, {@link #isReady()} возвращает false и вызывающий код
+ * должен читать подписки из базы.
+ */
+@Slf4j
+@Component
+public class SocialGraphIndex {
+    private static final RoaringBitmap EMPTY = new RoaringBitmap();
+
+    /**
+     * Порядок рекомендаций: больше общих друзей выше, при равенстве меньший идентификатор выше.
+     */
+    private static final Comparator<Candidate> RANKING = Comparator
+            .comparingInt(Candidate::mutualFriends).reversed()
+            .thenComparingInt(Candidate::userId);
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Map<Integer, RoaringBitmap> following = new HashMap<>();
+    private Map<Integer, RoaringBitmap> followers = new HashMap<>();
+    private List<SubscriptionChangedEvent> pending;
+    private volatile boolean ready;
+
+    public SocialGraphIndex(SubscriptionRepository subscriptionRepository,
+                            PlatformTransactionManager transactionManager) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * @return true если граф построен и отражает зафиксированные подписки
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Строит граф при старте приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Перестраивает граф из таблицы subscriptions.
+     * Изменения, зафиксированные во время чтения таблицы, применяются к новому графу
+     * повторно в порядке поступления, поэтому итоговое состояние не теряет подписок.
+     */
+    @Scheduled(initialDelayString = "${graph.index.rebuild-interval:PT1H}",
+            fixedDelayString = "${graph.index.rebuild-interval:PT1H}")
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                return;
+            }
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Map<Integer, RoaringBitmap> newFollowing = new HashMap<>();
+        Map<Integer, RoaringBitmap> newFollowers = new HashMap<>();
+        long pairs;
+        try {
+            pairs = readOnlyTransaction.execute(status -> {
+                try (Stream<SubscriptionPair> stream = subscriptionRepository.streamAllPairs()) {
+                    long count = 0;
+                    for (SubscriptionPair pair : (Iterable<SubscriptionPair>) stream::iterator) {
+                        add(newFollowing, newFollowers, pair.followerId(), pair.followingId());
+                        count++;
+                    }
+                    return count;
+                }
+            });
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        newFollowing.values().forEach(RoaringBitmap::runOptimize);
+        newFollowers.values().forEach(RoaringBitmap::runOptimize);
+        lock.writeLock().lock();
+        try {
+            for (SubscriptionChangedEvent event : pending) {
+                apply(newFollowing, newFollowers, event);
+            }
+            following = newFollowing;
+            followers = newFollowers;
+            pending = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Граф подписок построен: {} подписок, {} пользователей", pairs, newFollowing.size());
+    }
+
+    /**
+     * Применяет зафиксированное изменение подписки к графу.
+     *
+     * @param event событие о создании или удалении подписки
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSubscriptionChanged(SubscriptionChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            apply(following, followers, event);
+            if (pending != null) {
+                pending.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Проверяет, подписан ли один пользователь на другого.
+     *
+     * @param followerId  идентификатор подписчика
+     * @param followingId идентификатор пользователя для проверки
+     * @return true если подписка существует
+     */
+    public boolean isFollowing(Integer followerId, Integer followingId) {
+        return read(following, followerId, bitmap -> bitmap.contains(followingId));
+    }
+
+    /**
+     * @param userId идентификатор пользователя
+     * @return количество подписчиков
+     */
+    public long countFollowers(Integer userId) {
+        return read(followers, userId, RoaringBitmap::getLongCardinality);
+    }
+
+    /**
+     * @param userId идентификатор пользователя
+     * @return количество пользователей, на которых подписан данный пользователь
+     */
+    public long countFollowing(Integer userId) {
+        return read(following, userId, RoaringBitmap::getLongCardinality);
+    }
+
+    /**
+     * Возвращает часть подписок пользователя в порядке возрастания идентификаторов.
+     *
+     * @param followerId идентификатор подписчика
+     * @param offset     количество пропускаемых идентификаторов
+     * @param limit      максимальное количество идентификаторов
+     * @return идентификаторы пользователей, на которых подписан данный пользователь
+     */
+    public List<Integer> findFollowingIds(Integer followerId, long offset, int limit) {
+        return read(following, followerId, bitmap -> {
+            List<Integer> ids = new ArrayList<>(Math.min(limit, bitmap.getCardinality()));
+            if (offset >= bitmap.getLongCardinality()) {
+                return ids;
+            }
+            PeekableIntIterator iterator = bitmap.getIntIterator();
+            iterator.advanceIfNeeded(bitmap.select((int) offset));
+            while (iterator.hasNext() && ids.size() < limit) {
+                ids.add(iterator.next());
+            }
+            return ids;
+        });
+    }
+
+    /**
+     * Оставляет из кандидатов только тех, на кого подписан пользователь.
+     *
+     * @param followerId   идентификатор подписчика
+     * @param candidateIds идентификаторы кандидатов
+     * @return идентификаторы кандидатов, на которых подписан пользователь
+     */
+    public List<Integer> filterFollowed(Integer followerId, Collection<Integer> candidateIds) {
+        return read(following, followerId, bitmap -> candidateIds.stream()
+                .filter(bitmap::contains)
+                .toList());
+    }
+
+    /**
+     * @param threshold минимальное количество подписчиков
+     * @return идентификаторы пользователей, у которых не меньше threshold подписчиков
+     */
+    public List<Integer> findUsersWithFollowersAtLeast(long threshold) {
+        return readLocked(() -> followers.entrySet().stream()
+                .filter(entry -> entry.getValue().getLongCardinality() >= threshold)
+                .map(Map.Entry::getKey)
+                .toList());
+    }
+
+    /**
+     * @param userId идентификатор пользователя
+     * @return идентификаторы друзей пользователя в порядке возрастания
+     */
+    public List<Integer> findFriendIds(Integer userId) {
+        return readLocked(() -> toList(friends(userId)));
+    }
+
+    /**
+     * @param userId  идентификатор первого пользователя
+     * @param otherId идентификатор второго пользователя
+     * @return идентификаторы общих друзей в порядке возрастания
+     */
+    public List<Integer> findMutualFriendIds(Integer userId, Integer otherId) {
+        return readLocked(() -> toList(RoaringBitmap.and(friends(userId), friends(otherId))));
+    }
+
+    /**
+     * @param userId  идентификатор первого пользователя
+     * @param otherId идентификатор второго пользователя
+     * @return количество общих друзей
+     */
+    public int countMutualFriends(Integer userId, Integer otherId) {
+        return readLocked(() -> RoaringBitmap.andCardinality(friends(userId), friends(otherId)));
+    }
+
+    /**
+     * Подбирает «людей, которых вы можете знать»: друзей друзей, на которых пользователь
+     * еще не подписан, ранжированных по количеству общих друзей.
+     *
+     * @param userId идентификатор пользователя
+     * @param limit  максимальное количество рекомендаций
+     * @return рекомендации от большего числа общих друзей к меньшему
+     */
+    public List<Candidate> suggestFriends(Integer userId, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        return readLocked(() -> {
+            RoaringBitmap own = friends(userId);
+            RoaringBitmap candidates = new RoaringBitmap();
+            IntIterator friendIds = own.getIntIterator();
+            while (friendIds.hasNext()) {
+                candidates.or(friends(friendIds.next()));
+            }
+            candidates.remove(userId);
+            candidates.andNot(following.getOrDefault(userId, EMPTY));
+            PriorityQueue<Candidate> top = new PriorityQueue<>(limit + 1, RANKING.reversed());
+            IntIterator candidateIds = candidates.getIntIterator();
+            while (candidateIds.hasNext()) {
+                int candidateId = candidateIds.next();
+                top.offer(new Candidate(candidateId, RoaringBitmap.andCardinality(own, friends(candidateId))));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+            return top.stream().sorted(RANKING).toList();
+        });
+    }
+
+    /**
+     * Пользователь, рекомендованный в друзья.
+     *
+     * @param userId        идентификатор пользователя
+     * @param mutualFriends количество общих друзей
+     */
+    public record Candidate(int userId, int mutualFriends) {
+    }
+
+    private RoaringBitmap friends(int userId) {
+        RoaringBitmap out = following.get(userId);
+        RoaringBitmap in = followers.get(userId);
+        if (out == null || in == null) {
+            return EMPTY;
+        }
+        return RoaringBitmap.and(out, in);
+    }
+
+    private static List<Integer> toList(RoaringBitmap bitmap) {
+        List<Integer> ids = new ArrayList<>(bitmap.getCardinality());
+        bitmap.forEach((IntConsumer) ids::add);
+        return ids;
+    }
+
+    private <T> T readLocked(Supplier<T> query) {
+        lock.readLock().lock();
+        try {
+            return query.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private <T> T read(Map<Integer, RoaringBitmap> adjacency, Integer userId, Function<RoaringBitmap, T> query) {
+        return readLocked(() -> query.apply(adjacency.getOrDefault(userId, EMPTY)));
+    }
+
+    private static void apply(Map<Integer, RoaringBitmap> following, Map<Integer, RoaringBitmap> followers,
+                              SubscriptionChangedEvent event) {
+        if (event.created()) {
+            add(following, followers, event.followerId(), event.followingId());
+        } else {
+            remove(following, event.followerId(), event.followingId());
+            remove(followers, event.followingId(), event.followerId());
+        }
+    }
+
+    private static void add(Map<Integer, RoaringBitmap> following, Map<Integer, RoaringBitmap> followers,
+                            int followerId, int followingId) {
+        following.computeIfAbsent(followerId, id -> new RoaringBitmap()).add(followingId);
+        followers.computeIfAbsent(followingId, id -> new RoaringBitmap()).add(followerId);
+    }
+
+    private static void remove(Map<Integer, RoaringBitmap> adjacency, Integer userId, int otherId) {
+        RoaringBitmap bitmap = adjacency.get(userId);
+        if (bitmap != null) {
+            bitmap.remove(otherId);
+            if (bitmap.isEmpty()) {
+                adjacency.remove(userId);
+            }
+        }
+    }
+}
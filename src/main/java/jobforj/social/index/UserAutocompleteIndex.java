@@ -0,0 +1,171 @@
+package jobforj.social.index;
+
+import jobforj.social.dto.UserSuggestion;
+import jobforj.social.event.UserChangedEvent;
+import jobforj.social.model.User;
+import jobforj.social.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Префиксный индекс активных пользователей в памяти процесса для автодополнения.
+ * Имена и email в нижнем регистре хранятся в {@link PrefixTrie}, поэтому подсказки
+ * отдаются без обращения к базе. Индекс строится при старте приложения
+ * из {@link UserRepository#findAllActiveUsers()} и обновляется событиями
+ * {@link UserChangedEvent} после фиксации транзакции.
+ * <p>
+ * Пока индекс не построен, {@link #isReady()} возвращает false и вызывающий код
+ * должен искать пользователей в базе.
+ */
+@Slf4j
+@Component
+public class UserAutocompleteIndex {
+    private final UserRepository userRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private PrefixTrie<UserSuggestion> trie = new PrefixTrie<>();
+    private Map<Integer, UserChangedEvent> indexed = new HashMap<>();
+    private List<UserChangedEvent> pending;
+    private volatile boolean ready;
+
+    public UserAutocompleteIndex(UserRepository userRepository, PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * @return true если индекс построен и отражает зафиксированных пользователей
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Строит индекс при старте приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Перестраивает индекс по активным пользователям.
+     * Изменения, зафиксированные во время чтения, применяются к новому индексу повторно.
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                return;
+            }
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        PrefixTrie<UserSuggestion> newTrie = new PrefixTrie<>();
+        Map<Integer, UserChangedEvent> newIndexed = new HashMap<>();
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                for (User user : userRepository.findAllActiveUsers()) {
+                    apply(newTrie, newIndexed,
+                            new UserChangedEvent(user.getId(), user.getUsername(), user.getEmail(), true));
+                }
+            });
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            for (UserChangedEvent event : pending) {
+                apply(newTrie, newIndexed, event);
+            }
+            trie = newTrie;
+            indexed = newIndexed;
+            pending = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Индекс автодополнения построен: {} пользователей, {} ключей", newIndexed.size(), newTrie.size());
+    }
+
+    /**
+     * Применяет зафиксированное изменение пользователя к индексу.
+     *
+     * @param event событие о пользователе
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            apply(trie, indexed, event);
+            if (pending != null) {
+                pending.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает подсказки по префиксу имени или email без учета регистра.
+     * Точное совпадение идет первым, остальные подсказки в лексикографическом порядке ключей.
+     *
+     * @param prefix префикс
+     * @param limit  максимальное количество подсказок
+     * @return подсказки без повторов пользователей
+     */
+    public List<UserSuggestion> autocomplete(String prefix, int limit) {
+        String key = prefix.toLowerCase(Locale.ROOT);
+        Set<Integer> seen = new HashSet<>();
+        lock.readLock().lock();
+        try {
+            return trie.findByPrefix(key, limit, suggestion -> seen.add(suggestion.id()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void apply(PrefixTrie<UserSuggestion> trie, Map<Integer, UserChangedEvent> indexed,
+                              UserChangedEvent event) {
+        UserChangedEvent previous = indexed.remove(event.userId());
+        if (previous != null) {
+            UserSuggestion suggestion = new UserSuggestion(previous.userId(), previous.username());
+            trie.remove(key(previous.username()), suggestion);
+            trie.remove(key(previous.email()), suggestion);
+        }
+        if (event.active()) {
+            UserSuggestion suggestion = new UserSuggestion(event.userId(), event.username());
+            trie.put(key(event.username()), suggestion);
+            trie.put(key(event.email()), suggestion);
+            indexed.put(event.userId(), event);
+        }
+    }
+
+    private static String key(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+}
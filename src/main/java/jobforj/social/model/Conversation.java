@@ -0,0 +1,95 @@
+package jobforj.social.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.ToString;
+import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.CreationTimestamp;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+
+/**
+ * Переписка двух пользователей. Пара хранится в каноническом виде:
+ * {@code userLow} всегда имеет меньший идентификатор, поэтому у каждой пары одна строка.
+ * Сообщения переписки нумеруются последовательно, {@code lastSeq} хранит номер последнего.
+ * Для каждого участника хранится номер последнего прочитанного им сообщения.
+ */
+@Entity
+@Table(name = "conversations",
+        uniqueConstraints = {
+                @UniqueConstraint(columnNames = {"user_low_id", "user_high_id"},
+                        name = "uk_conversations_users")
+        })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode(exclude = "lastMessage")
+@ToString(exclude = "lastMessage")
+public class Conversation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "conversations_id_seq")
+    @SequenceGenerator(name = "conversations_id_seq", sequenceName = "conversations_id_seq", allocationSize = 50)
+    private Integer id;
+
+    @NotNull(message = "User is required")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_low_id", nullable = false,
+            foreignKey = @ForeignKey(name = "fk_conversations_user_low_id"))
+    private User userLow;
+
+    @NotNull(message = "User is required")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_high_id", nullable = false,
+            foreignKey = @ForeignKey(name = "fk_conversations_user_high_id"))
+    private User userHigh;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "last_message_id",
+            foreignKey = @ForeignKey(name = "fk_conversations_last_message_id"))
+    private Message lastMessage;
+
+    @Column(name = "last_message_at")
+    private LocalDateTime lastMessageAt;
+
+    @ColumnDefault("0")
+    @Column(name = "last_seq", nullable = false)
+    @Builder.Default
+    private Long lastSeq = 0L;
+
+    @ColumnDefault("0")
+    @Column(name = "user_low_read_seq", nullable = false)
+    @Builder.Default
+    private Long userLowReadSeq = 0L;
+
+    @ColumnDefault("0")
+    @Column(name = "user_high_read_seq", nullable = false)
+    @Builder.Default
+    private Long userHighReadSeq = 0L;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * @param userId идентификатор участника
+     * @return второй участник переписки
+     */
+    public User partnerOf(Integer userId) {
+        return userLow.getId().equals(userId) ? userHigh : userLow;
+    }
+
+    /**
+     * @param userId идентификатор участника
+     * @return номер последнего сообщения, прочитанного участником
+     */
+    public Long readSeqOf(Integer userId) {
+        return userLow.getId().equals(userId) ? userLowReadSeq : userHighReadSeq;
+    }
+}
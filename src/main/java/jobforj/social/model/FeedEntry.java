@@ -0,0 +1,67 @@
+package jobforj.social.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.ToString;
+import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+
+/**
+ * Запись материализованной ленты: пост автора, доставленный подписчику.
+ * Время создания поста дублируется, чтобы лента читалась по индексу (user_id, created_at).
+ */
+@Entity
+@Table(name = "feed_entries",
+        uniqueConstraints = {
+                @UniqueConstraint(columnNames = {"user_id", "post_id"},
+                        name = "uk_feed_entries_user_post")
+        },
+        indexes = {
+                @Index(columnList = "user_id, created_at DESC, post_id DESC",
+                        name = "idx_feed_entries_user_created"),
+                @Index(columnList = "user_id, author_id",
+                        name = "idx_feed_entries_user_author")
+        })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode(exclude = {"user", "post", "author"})
+@ToString(exclude = {"user", "post", "author"})
+public class FeedEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull(message = "Feed owner is required")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @JoinColumn(name = "user_id", nullable = false,
+            foreignKey = @ForeignKey(name = "fk_feed_entries_user_id"))
+    private User user;
+
+    @NotNull(message = "Post is required")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @JoinColumn(name = "post_id", nullable = false,
+            foreignKey = @ForeignKey(name = "fk_feed_entries_post_id"))
+    private Post post;
+
+    @NotNull(message = "Author is required")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @JoinColumn(name = "author_id", nullable = false,
+            foreignKey = @ForeignKey(name = "fk_feed_entries_author_id"))
+    private User author;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
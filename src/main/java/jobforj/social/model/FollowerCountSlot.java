@@ -0,0 +1,50 @@
+package jobforj.social.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+
+/**
+ * Одна из ячеек распределенного счетчика подписчиков пользователя.
+ * Подписки на популярных авторов меняют случайную ячейку, а не строку users,
+ * поэтому параллельные подписки не ждут одну блокировку строки.
+ * Полное число подписчиков равно {@code users.followers_count} плюс сумма ячеек.
+ */
+@Entity
+@Table(name = "follower_count_slots")
+@IdClass(FollowerCountSlot.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FollowerCountSlot {
+
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Id
+    @Column(nullable = false)
+    private Short slot;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer delta = 0;
+
+    /**
+     * Составной ключ ячейки.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Integer userId;
+        private Short slot;
+    }
+}
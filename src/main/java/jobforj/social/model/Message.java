@@ -4,6 +4,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 
 import jakarta.persistence.*;
@@ -11,7 +12,11 @@ import jakarta.validation.constraints.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "messages")
+@Table(name = "messages",
+        uniqueConstraints = {
+                @UniqueConstraint(columnNames = {"conversation_id", "seq"},
+                        name = "uk_messages_conversation_seq")
+        })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -19,7 +24,8 @@ import java.time.LocalDateTime;
 public class Message {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "messages_id_seq")
+    @SequenceGenerator(name = "messages_id_seq", sequenceName = "messages_id_seq", allocationSize = 50)
     private Integer id;
 
     @NotNull(message = "Sender is required")
@@ -38,11 +44,34 @@ public class Message {
     @Column(nullable = false, columnDefinition = "TEXT")
     private String content;
 
-    @Column(name = "is_read", nullable = false)
+    /**
+     * Флаг прочтения из модели до отметок прочтения переписок. Только для чтения и не отражает
+     * прочтение: сообщение прочитано, если его номер не больше отметки прочтения получателя
+     * в {@link Conversation}.
+     *
+     * @deprecated используйте отметки прочтения {@link Conversation}
+     */
+    @Deprecated
+    @Column(name = "is_read", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("false")
     @Builder.Default
     private Boolean isRead = false;
 
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
+
+    /**
+     * Переписка, к которой относится сообщение. Заполняется {@code MessageService}
+     * вместе с порядковым номером сообщения в переписке.
+     */
+    @NotNull(message = "Conversation is required")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "conversation_id", nullable = false,
+            foreignKey = @ForeignKey(name = "fk_messages_conversation_id"))
+    private Conversation conversation;
+
+    @NotNull(message = "Sequence number is required")
+    @Column(name = "seq", nullable = false)
+    private Long seq;
 }
\ No newline at end of file
@@ -22,8 +22,13 @@ import java.time.LocalDateTime;
 @Builder
 public class Subscription {
 
+    /**
+     * Подписки в основном создаются запросами SQL, которые берут nextval сами,
+     * поэтому последовательность выдает идентификаторы по одному, а не блоками.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "subscriptions_id_seq")
+    @SequenceGenerator(name = "subscriptions_id_seq", sequenceName = "subscriptions_id_seq", allocationSize = 1)
     private Integer id;
 
     @NotNull(message = "Follower is required")
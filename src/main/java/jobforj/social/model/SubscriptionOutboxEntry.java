@@ -0,0 +1,50 @@
+package jobforj.social.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Отложенная подписка, записанная в одной транзакции с заявкой в друзья.
+ * Саму подписку, счетчики, ленту и граф подписок обновляет
+ * {@link jobforj.social.service.SubscriptionOutboxDispatcher} после фиксации транзакции.
+ */
+@Entity
+@Table(name = "subscription_outbox",
+        indexes = {
+                @Index(columnList = "available_at, id", name = "idx_subscription_outbox_available"),
+                @Index(columnList = "follower_id, following_id", name = "idx_subscription_outbox_pair")
+        })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SubscriptionOutboxEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "follower_id", nullable = false)
+    private Integer followerId;
+
+    @Column(name = "following_id", nullable = false)
+    private Integer followingId;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt;
+}
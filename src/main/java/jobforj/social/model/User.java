@@ -6,6 +6,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.ToString;
 import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -36,7 +37,8 @@ import java.util.Set;
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_id_seq")
+    @SequenceGenerator(name = "users_id_seq", sequenceName = "users_id_seq", allocationSize = 50)
     private Integer id;
 
     @NotBlank(message = "Username is required")
@@ -66,6 +68,36 @@ public class User {
     @Builder.Default
     private Boolean isActive = true;
 
+    /**
+     * Число непрочитанных входящих сообщений. Меняется только запросами
+     * {@code UserRepository#addUnreadMessages} и {@code MessageRepository#markMessagesAsRead},
+     * поэтому сущность его не записывает.
+     */
+    @ColumnDefault("0")
+    @Column(name = "unread_messages_count", nullable = false, insertable = false, updatable = false)
+    @Builder.Default
+    private Integer unreadMessagesCount = 0;
+
+    /**
+     * Счетчики подписчиков, подписок и активных постов. Меняются запросами
+     * {@code UserRepository} вместе с подписками и постами и сверяются с таблицами
+     * {@code CounterReconciler}, поэтому сущность их не записывает.
+     */
+    @ColumnDefault("0")
+    @Column(name = "followers_count", nullable = false, insertable = false, updatable = false)
+    @Builder.Default
+    private Integer followersCount = 0;
+
+    @ColumnDefault("0")
+    @Column(name = "following_count", nullable = false, insertable = false, updatable = false)
+    @Builder.Default
+    private Integer followingCount = 0;
+
+    @ColumnDefault("0")
+    @Column(name = "posts_count", nullable = false, insertable = false, updatable = false)
+    @Builder.Default
+    private Integer postsCount = 0;
+
     // Relationships
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @Builder.Default
@@ -0,0 +1,105 @@
+package jobforj.social.repository;
+
+import jobforj.social.model.Conversation;
+import jobforj.social.model.Message;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ConversationRepository extends JpaRepository<Conversation, Long> {
+
+    @Query("SELECT c FROM Conversation c WHERE c.userLow.id = :userLowId AND c.userHigh.id = :userHighId")
+    Optional<Conversation> findByUsers(@Param("userLowId") Long userLowId, @Param("userHighId") Long userHighId);
+
+    /**
+     * Резервирует номер следующего сообщения, создавая переписку, если ее еще нет.
+     * Строка переписки остается заблокированной до конца транзакции,
+     * поэтому сообщения одной переписки записываются строго по порядку номеров.
+     * Номер сначала резервируется обновлением существующей строки, и только для новой пары
+     * выполняется INSERT, чтобы каждое сообщение не расходовало значения {@code conversations_id_seq}.
+     *
+     * @param userLowId  меньший идентификатор участника
+     * @param userHighId больший идентификатор участника
+     * @return идентификатор переписки и номер нового сообщения
+     */
+    @Transactional
+    default MessageSlot reserveMessageSlot(Long userLowId, Long userHighId) {
+        return incrementMessageSlot(userLowId, userHighId)
+                .orElseGet(() -> createMessageSlot(userLowId, userHighId));
+    }
+
+    /**
+     * Резервирует номер следующего сообщения в существующей переписке.
+     *
+     * @param userLowId  меньший идентификатор участника
+     * @param userHighId больший идентификатор участника
+     * @return идентификатор переписки и номер нового сообщения или пустой результат, если переписки нет
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE conversations SET last_seq = last_seq + 1
+            WHERE user_low_id = :userLowId AND user_high_id = :userHighId
+            RETURNING id AS "conversationId", last_seq AS "seq"
+            """, nativeQuery = true)
+    Optional<MessageSlot> incrementMessageSlot(@Param("userLowId") Long userLowId,
+                                               @Param("userHighId") Long userHighId);
+
+    /**
+     * Создает переписку с первым сообщением. Если ее параллельно создала другая транзакция,
+     * резервирует следующий номер в ней.
+     *
+     * @param userLowId  меньший идентификатор участника
+     * @param userHighId больший идентификатор участника
+     * @return идентификатор переписки и номер нового сообщения
+     */
+    @Transactional
+    @Query(value = """
+            INSERT INTO conversations (id, user_low_id, user_high_id, last_seq,
+                                       user_low_read_seq, user_high_read_seq, created_at)
+            VALUES (nextval('conversations_id_seq'), :userLowId, :userHighId, 1, 0, 0, CURRENT_TIMESTAMP)
+            ON CONFLICT (user_low_id, user_high_id)
+            DO UPDATE SET last_seq = conversations.last_seq + 1
+            RETURNING id AS "conversationId", last_seq AS "seq"
+            """, nativeQuery = true)
+    MessageSlot createMessageSlot(@Param("userLowId") Long userLowId, @Param("userHighId") Long userHighId);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Conversation c SET c.lastMessage = :message, c.lastMessageAt = :createdAt "
+            + "WHERE c.id = :conversationId")
+    int updateLastMessage(@Param("conversationId") Long conversationId,
+                          @Param("message") Message message,
+                          @Param("createdAt") LocalDateTime createdAt);
+
+    /**
+     * Переписки, в которых пользователь имеет меньший идентификатор, от последней активности.
+     * Вместе с {@link #findInboxAsUserHigh} дает список входящих без {@code OR} по двум колонкам.
+     */
+    @Query("SELECT c FROM Conversation c JOIN FETCH c.userHigh LEFT JOIN FETCH c.lastMessage "
+            + "WHERE c.userLow.id = :userId AND c.lastMessageAt IS NOT NULL "
+            + "ORDER BY c.lastMessageAt DESC, c.id DESC")
+    List<Conversation> findInboxAsUserLow(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("SELECT c FROM Conversation c JOIN FETCH c.userLow LEFT JOIN FETCH c.lastMessage "
+            + "WHERE c.userHigh.id = :userId AND c.lastMessageAt IS NOT NULL "
+            + "ORDER BY c.lastMessageAt DESC, c.id DESC")
+    List<Conversation> findInboxAsUserHigh(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Результат резервирования номера сообщения в переписке.
+     */
+    interface MessageSlot {
+        Integer getConversationId();
+
+        Long getSeq();
+    }
+}
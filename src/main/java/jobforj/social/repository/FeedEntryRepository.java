@@ -0,0 +1,215 @@
+package jobforj.social.repository;
+
+import jobforj.social.dto.FeedItem;
+import jobforj.social.model.FeedEntry;
+import jobforj.social.model.Post;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface FeedEntryRepository extends JpaRepository<FeedEntry, Long> {
+
+    @Query(value = "SELECT p FROM FeedEntry fe JOIN fe.post p WHERE fe.user.id = :userId "
+            + "AND p.isDeleted = false ORDER BY fe.createdAt DESC, fe.post.id DESC",
+            countQuery = "SELECT COUNT(fe) FROM FeedEntry fe JOIN fe.post p WHERE fe.user.id = :userId "
+                    + "AND p.isDeleted = false")
+    Page<Post> findFeedPosts(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("SELECT p FROM FeedEntry fe JOIN fe.post p WHERE fe.user.id = :userId AND p.isDeleted = false "
+            + "AND (fe.createdAt < :createdAt OR (fe.createdAt = :createdAt AND fe.post.id < :id)) "
+            + "ORDER BY fe.createdAt DESC, fe.post.id DESC")
+    List<Post> findFeedPostsBeforeCursor(@Param("userId") Long userId,
+                                         @Param("createdAt") LocalDateTime createdAt,
+                                         @Param("id") Long id,
+                                         Pageable pageable);
+
+    @Query("SELECT new jobforj.social.dto.FeedItem(fe.post.id, fe.createdAt) FROM FeedEntry fe JOIN fe.post p "
+            + "WHERE fe.user.id = :userId AND p.isDeleted = false "
+            + "AND (fe.createdAt < :createdAt OR (fe.createdAt = :createdAt AND fe.post.id < :id)) "
+            + "ORDER BY fe.createdAt DESC, fe.post.id DESC")
+    List<FeedItem> findFeedItemsBeforeCursor(@Param("userId") Long userId,
+                                             @Param("createdAt") LocalDateTime createdAt,
+                                             @Param("id") Long id,
+                                             Pageable pageable);
+
+    @Query("SELECT COUNT(fe) FROM FeedEntry fe JOIN fe.post p WHERE fe.user.id = :userId AND p.isDeleted = false")
+    long countFeedPosts(@Param("userId") Long userId);
+
+    /**
+     * Возвращает страницу ленты, слитой из материализованных записей и постов pull-авторов, одним запросом.
+     * Записи ленты от pull-авторов пропускаются: их посты берутся из posts, поэтому посты,
+     * разложенные до того, как автор стал pull-автором, не повторяются.
+     *
+     * @param userId    идентификатор владельца ленты
+     * @param authorIds идентификаторы pull-авторов, на которых подписан пользователь
+     * @param offset    количество пропускаемых строк
+     * @param limit     размер страницы
+     * @return ключи постов страницы от новых к старым
+     */
+    @Query(value = """
+            SELECT f.post_id AS "postId", f.created_at AS "createdAt"
+            FROM (SELECT fe.post_id, fe.created_at
+                  FROM feed_entries fe
+                           JOIN posts p ON p.id = fe.post_id AND p.is_deleted = false
+                  WHERE fe.user_id = :userId AND fe.author_id NOT IN (:authorIds)
+                  UNION ALL
+                  SELECT p.id, p.created_at
+                  FROM posts p
+                  WHERE p.user_id IN (:authorIds) AND p.is_deleted = false) f
+            ORDER BY f.created_at DESC, f.post_id DESC
+            OFFSET :offset LIMIT :limit
+            """, nativeQuery = true)
+    List<MergedFeedRow> findMergedFeedRows(@Param("userId") Long userId,
+                                           @Param("authorIds") Collection<Integer> authorIds,
+                                           @Param("offset") long offset,
+                                           @Param("limit") int limit);
+
+    /**
+     * Считает посты ленты, слитой из материализованных записей и постов pull-авторов,
+     * так же, как {@link #findMergedFeedRows}.
+     *
+     * @param userId    идентификатор владельца ленты
+     * @param authorIds идентификаторы pull-авторов, на которых подписан пользователь
+     * @return количество постов ленты
+     */
+    @Query(value = """
+            SELECT (SELECT COUNT(*)
+                    FROM feed_entries fe
+                             JOIN posts p ON p.id = fe.post_id AND p.is_deleted = false
+                    WHERE fe.user_id = :userId AND fe.author_id NOT IN (:authorIds))
+                 + (SELECT COUNT(*)
+                    FROM posts p
+                    WHERE p.user_id IN (:authorIds) AND p.is_deleted = false)
+            """, nativeQuery = true)
+    long countMergedFeed(@Param("userId") Long userId, @Param("authorIds") Collection<Integer> authorIds);
+
+    default List<FeedItem> findMergedFeedItems(Long userId, Collection<Integer> authorIds, Pageable pageable) {
+        return findMergedFeedRows(userId, authorIds, pageable.getOffset(), pageable.getPageSize()).stream()
+                .map(row -> new FeedItem(row.getPostId(), row.getCreatedAt()))
+                .toList();
+    }
+
+    /**
+     * Раскладывает пост по лентам всех подписчиков автора одним запросом.
+     * @param postId идентификатор поста
+     * @param authorId идентификатор автора
+     * @param createdAt время создания поста
+     * @return количество созданных записей ленты
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO feed_entries (user_id, post_id, author_id, created_at)
+            SELECT s.follower_id, :postId, :authorId, :createdAt
+            FROM subscriptions s
+            WHERE s.following_id = :authorId
+            ON CONFLICT (user_id, post_id) DO NOTHING
+            """, nativeQuery = true)
+    int fanOutPost(@Param("postId") Long postId,
+                   @Param("authorId") Long authorId,
+                   @Param("createdAt") LocalDateTime createdAt);
+
+    /**
+     * Дополняет ленту подписчика последними опубликованными постами автора.
+     * @param followerId идентификатор подписчика
+     * @param authorId идентификатор автора
+     * @param limit наибольшее число постов автора
+     * @return количество созданных записей ленты
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO feed_entries (user_id, post_id, author_id, created_at)
+            SELECT :followerId, p.id, p.user_id, COALESCE(p.created_at, CURRENT_TIMESTAMP)
+            FROM posts p
+            WHERE p.user_id = :authorId AND p.is_deleted = false
+            ORDER BY p.created_at DESC, p.id DESC
+            LIMIT :limit
+            ON CONFLICT (user_id, post_id) DO NOTHING
+            """, nativeQuery = true)
+    int backfillFromAuthor(@Param("followerId") Long followerId,
+                           @Param("authorId") Long authorId,
+                           @Param("limit") int limit);
+
+    /**
+     * Дополняет ленту подписчика последними опубликованными постами нескольких авторов одним запросом.
+     * @param followerId идентификатор подписчика
+     * @param authorIds идентификаторы авторов
+     * @param limit наибольшее число постов каждого автора
+     * @return количество созданных записей ленты
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO feed_entries (user_id, post_id, author_id, created_at)
+            SELECT :followerId, p.id, p.user_id, COALESCE(p.created_at, CURRENT_TIMESTAMP)
+            FROM users a
+                     CROSS JOIN LATERAL (
+                         SELECT p.id, p.user_id, p.created_at
+                         FROM posts p
+                         WHERE p.user_id = a.id AND p.is_deleted = false
+                         ORDER BY p.created_at DESC, p.id DESC
+                         LIMIT :limit
+                     ) p
+            WHERE a.id IN (:authorIds)
+            ON CONFLICT (user_id, post_id) DO NOTHING
+            """, nativeQuery = true)
+    int backfillFromAuthors(@Param("followerId") Long followerId,
+                            @Param("authorIds") Collection<Integer> authorIds,
+                            @Param("limit") int limit);
+
+    /**
+     * Раскладывает последние посты автора по лентам его подписчиков.
+     * Используется, когда автор перестает быть источником pull-ленты.
+     * @param authorId идентификатор автора
+     * @param limit наибольшее число постов автора
+     * @return количество созданных записей ленты
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO feed_entries (user_id, post_id, author_id, created_at)
+            SELECT s.follower_id, p.id, p.user_id, COALESCE(p.created_at, CURRENT_TIMESTAMP)
+            FROM subscriptions s
+                     CROSS JOIN (
+                         SELECT p.id, p.user_id, p.created_at
+                         FROM posts p
+                         WHERE p.user_id = :authorId AND p.is_deleted = false
+                         ORDER BY p.created_at DESC, p.id DESC
+                         LIMIT :limit
+                     ) p
+            WHERE s.following_id = :authorId
+            ON CONFLICT (user_id, post_id) DO NOTHING
+            """, nativeQuery = true)
+    int backfillFollowersOfAuthor(@Param("authorId") Long authorId, @Param("limit") int limit);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM FeedEntry fe WHERE fe.user.id = :followerId AND fe.author.id = :authorId")
+    int deleteByFollowerAndAuthor(@Param("followerId") Long followerId, @Param("authorId") Long authorId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM FeedEntry fe WHERE fe.user.id = :followerId AND fe.author.id IN :authorIds")
+    int deleteByFollowerAndAuthors(@Param("followerId") Long followerId,
+                                   @Param("authorIds") Collection<Integer> authorIds);
+
+    /**
+     * Строка слитой ленты.
+     */
+    interface MergedFeedRow {
+        Integer getPostId();
+
+        LocalDateTime getCreatedAt();
+    }
+}
@@ -0,0 +1,33 @@
+package jobforj.social.repository;
+
+import jobforj.social.model.FollowerCountSlot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface FollowerCountSlotRepository extends JpaRepository<FollowerCountSlot, FollowerCountSlot.Key> {
+
+    /**
+     * Прибавляет изменение к ячейке счетчика, создавая ее при первом обращении.
+     *
+     * @param userId идентификатор пользователя
+     * @param slot   номер ячейки
+     * @param delta  изменение числа подписчиков
+     * @return количество измененных записей
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO follower_count_slots (user_id, slot, delta)
+            VALUES (:userId, :slot, :delta)
+            ON CONFLICT (user_id, slot) DO UPDATE SET delta = follower_count_slots.delta + EXCLUDED.delta
+            """, nativeQuery = true)
+    int addDelta(@Param("userId") Integer userId, @Param("slot") short slot, @Param("delta") int delta);
+
+    @Query("SELECT COALESCE(SUM(s.delta), 0) FROM FollowerCountSlot s WHERE s.userId = :userId")
+    long sumDelta(@Param("userId") Long userId);
+}
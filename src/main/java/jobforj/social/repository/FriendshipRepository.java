@@ -43,6 +43,11 @@ public interface FriendshipRepository extends JpaRepository<Friendship, Long> {
             + "(f.requester = :user2 AND f.addressee = :user1)) AND f.status = 'ACCEPTED'")
     boolean areFriends(@Param("user1") User user1, @Param("user2") User user2);
 
+    @Query("SELECT f.id FROM Friendship f WHERE f.status = :status AND f.id > :afterId ORDER BY f.id")
+    List<Integer> findIdsByStatusAfter(@Param("status") FriendshipStatus status,
+                                       @Param("afterId") Integer afterId,
+                                       Pageable pageable);
+
     @Query("SELECT f.requester FROM Friendship f WHERE f.addressee = :user AND f.status = 'PENDING'")
     List<User> findPendingRequestsFromUsers(@Param("user") User user);
 
@@ -32,21 +32,124 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
                                    @Param("user2Id") Long user2Id,
                                    Pageable pageable);
 
-    @Query("SELECT COUNT(m) FROM Message m WHERE m.receiver.id = :userId AND m.isRead = false")
+    /**
+     * История переписки от новых сообщений к старым: диапазон индекса (conversation_id, seq).
+     *
+     * @param conversationId идентификатор переписки
+     * @param beforeSeq      номер сообщения, с которого (не включая) продолжить
+     * @param pageable       размер порции
+     * @return сообщения с номерами меньше {@code beforeSeq}
+     */
+    @Query("SELECT m FROM Message m WHERE m.conversation.id = :conversationId AND m.seq < :beforeSeq "
+            + "ORDER BY m.seq DESC")
+    List<Message> findConversationHistory(@Param("conversationId") Long conversationId,
+                                          @Param("beforeSeq") Long beforeSeq,
+                                          Pageable pageable);
+
+    /**
+     * Считает сообщения пользователю с номером больше его отметки прочтения переписки.
+     * Для бейджа непрочитанных используется счетчик пользователя, этот запрос его пересчитывает.
+     *
+     * @param userId идентификатор получателя
+     * @return количество непрочитанных сообщений
+     */
+    @Query("SELECT COUNT(m) FROM Message m JOIN m.conversation c WHERE m.receiver.id = :userId "
+            + "AND m.seq > CASE WHEN c.userLow.id = :userId THEN c.userLowReadSeq ELSE c.userHighReadSeq END")
     long countUnreadMessages(@Param("userId") Long userId);
 
-    @Modifying
+    /**
+     * Отмечает переписку с отправителем прочитанной: отметка прочтения получателя сдвигается
+     * на последнее сообщение переписки, строки сообщений не изменяются.
+     * Тем же запросом счетчик непрочитанных сообщений получателя уменьшается на число
+     * сообщений между старой и новой отметкой.
+     *
+     * @param receiverId идентификатор получателя
+     * @param senderId   идентификатор отправителя
+     * @return количество сообщений, ставших прочитанными
+     */
     @Transactional
-    @Query("UPDATE Message m SET m.isRead = true WHERE m.receiver.id = :receiverId "
-            + "AND m.sender.id = :senderId AND m.isRead = false")
+    @Query(value = """
+            WITH conversation AS (
+                SELECT id, last_seq,
+                       CASE WHEN user_low_id = :receiverId THEN user_low_read_seq ELSE user_high_read_seq END AS read_seq
+                FROM conversations
+                WHERE user_low_id = LEAST(:receiverId, :senderId) AND user_high_id = GREATEST(:receiverId, :senderId)
+                FOR UPDATE
+            ), unread AS (
+                SELECT COUNT(*) AS messages
+                FROM conversation c
+                JOIN messages m ON m.conversation_id = c.id AND m.seq > c.read_seq
+                WHERE m.receiver_id = :receiverId
+            ), watermark AS (
+                UPDATE conversations c
+                SET user_low_read_seq = CASE WHEN c.user_low_id = :receiverId THEN cur.last_seq ELSE c.user_low_read_seq END,
+                    user_high_read_seq = CASE WHEN c.user_high_id = :receiverId THEN cur.last_seq ELSE c.user_high_read_seq END
+                FROM conversation cur
+                WHERE c.id = cur.id AND cur.read_seq < cur.last_seq
+            ), counter AS (
+                UPDATE users
+                SET unread_messages_count = GREATEST(unread_messages_count - (SELECT messages FROM unread), 0)
+                WHERE id = :receiverId AND (SELECT messages FROM unread) > 0
+            )
+            SELECT messages FROM unread
+            """, nativeQuery = true)
     int markMessagesAsRead(@Param("receiverId") Long receiverId, @Param("senderId") Long senderId);
 
+    /**
+     * Отмечает сообщения прочитанными: для каждой переписки отметка прочтения получателя
+     * сдвигается на наибольший номер среди указанных сообщений, поэтому прочитанными
+     * становятся и все более ранние сообщения этому получателю.
+     * Счетчики непрочитанных сообщений получателей уменьшаются тем же запросом.
+     *
+     * @param messageIds идентификаторы сообщений
+     */
+    default void markMessagesAsRead(List<Long> messageIds) {
+        if (!messageIds.isEmpty()) {
+            markMessagesAsReadById(messageIds);
+        }
+    }
+
     @Modifying
     @Transactional
-    @Query("UPDATE Message m SET m.isRead = true WHERE m.id IN :messageIds")
-    void markMessagesAsRead(@Param("messageIds") List<Long> messageIds);
+    @Query(value = """
+            WITH locked AS (
+                SELECT id, user_low_id, user_high_id, user_low_read_seq, user_high_read_seq
+                FROM conversations
+                WHERE id IN (SELECT conversation_id FROM messages WHERE id IN (:messageIds))
+                FOR UPDATE
+            ), target AS (
+                SELECT l.id, l.user_low_id, l.user_high_id,
+                       l.user_low_read_seq AS low_read, l.user_high_read_seq AS high_read,
+                       GREATEST(l.user_low_read_seq,
+                                COALESCE(MAX(m.seq) FILTER (WHERE m.receiver_id = l.user_low_id), 0)) AS low_seq,
+                       GREATEST(l.user_high_read_seq,
+                                COALESCE(MAX(m.seq) FILTER (WHERE m.receiver_id = l.user_high_id), 0)) AS high_seq
+                FROM locked l
+                JOIN messages m ON m.conversation_id = l.id
+                WHERE m.id IN (:messageIds)
+                GROUP BY l.id, l.user_low_id, l.user_high_id, l.user_low_read_seq, l.user_high_read_seq
+            ), watermark AS (
+                UPDATE conversations c
+                SET user_low_read_seq = t.low_seq, user_high_read_seq = t.high_seq
+                FROM target t
+                WHERE c.id = t.id AND (t.low_seq > t.low_read OR t.high_seq > t.high_read)
+            ), newly_read AS (
+                SELECT m.receiver_id, COUNT(*) AS messages
+                FROM target t
+                JOIN messages m ON m.conversation_id = t.id
+                WHERE (m.receiver_id = t.user_low_id AND m.seq > t.low_read AND m.seq <= t.low_seq)
+                   OR (m.receiver_id = t.user_high_id AND m.seq > t.high_read AND m.seq <= t.high_seq)
+                GROUP BY m.receiver_id
+            )
+            UPDATE users u
+            SET unread_messages_count = GREATEST(u.unread_messages_count - r.messages, 0)
+            FROM newly_read r
+            WHERE u.id = r.receiver_id
+            """, nativeQuery = true)
+    void markMessagesAsReadById(@Param("messageIds") List<Long> messageIds);
 
-    @Query("SELECT m FROM Message m WHERE m.receiver.id = :userId AND m.isRead = false "
+    @Query("SELECT m FROM Message m JOIN m.conversation c WHERE m.receiver.id = :userId "
+            + "AND m.seq > CASE WHEN c.userLow.id = :userId THEN c.userLowReadSeq ELSE c.userHighReadSeq END "
             + "ORDER BY m.createdAt DESC")
     List<Message> findAllUnreadMessages(@Param("userId") Long userId);
 }
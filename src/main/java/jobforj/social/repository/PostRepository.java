@@ -1,5 +1,7 @@
 package jobforj.social.repository;
 
+import jobforj.social.dto.FeedItem;
+import jobforj.social.dto.PostSummary;
 import jobforj.social.model.Post;
 import jobforj.social.model.User;
 import org.springframework.data.domain.Page;
@@ -13,6 +15,11 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Repository
 public interface PostRepository extends JpaRepository<Post, Long> {
@@ -63,13 +70,172 @@ public interface PostRepository extends JpaRepository<Post, Long> {
             + "AND p.isDeleted = false ORDER BY p.createdAt DESC")
     Page<Post> getFeedForUser(@Param("user") User user, Pageable pageable);
 
+    @Query("SELECT p FROM Post p WHERE p.isDeleted = false "
+            + "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) "
+            + "ORDER BY p.createdAt DESC, p.id DESC")
+    List<Post> findAllBeforeCursor(@Param("createdAt") LocalDateTime createdAt,
+                                   @Param("id") Long id,
+                                   Pageable pageable);
+
+    @Query("SELECT p FROM Post p WHERE p.user.id IN :userIds AND p.isDeleted = false "
+            + "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) "
+            + "ORDER BY p.createdAt DESC, p.id DESC")
+    List<Post> findPostsByUserIdsBeforeCursor(@Param("userIds") List<Long> userIds,
+                                              @Param("createdAt") LocalDateTime createdAt,
+                                              @Param("id") Long id,
+                                              Pageable pageable);
+
+    @Query("SELECT p FROM Post p WHERE p.createdAt BETWEEN :startDate AND :endDate AND p.isDeleted = false "
+            + "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) "
+            + "ORDER BY p.createdAt DESC, p.id DESC")
+    List<Post> findPostsInDateRangeBeforeCursor(@Param("startDate") LocalDateTime startDate,
+                                                @Param("endDate") LocalDateTime endDate,
+                                                @Param("createdAt") LocalDateTime createdAt,
+                                                @Param("id") Long id,
+                                                Pageable pageable);
+
+    @Query("SELECT new jobforj.social.dto.FeedItem(p.id, p.createdAt) FROM Post p "
+            + "WHERE p.user.id = :authorId AND p.isDeleted = false "
+            + "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) "
+            + "ORDER BY p.createdAt DESC, p.id DESC")
+    List<FeedItem> findItemsByAuthorBeforeCursor(@Param("authorId") Long authorId,
+                                                 @Param("createdAt") LocalDateTime createdAt,
+                                                 @Param("id") Long id,
+                                                 Pageable pageable);
+
+    @Query("SELECT p FROM Post p WHERE p.id IN :ids AND p.isDeleted = false")
+    List<Post> findActiveByIds(@Param("ids") List<Long> ids);
+
+    /**
+     * Загружает посты одним запросом, сохраняя порядок ключей ленты.
+     * @param items ключи ленты
+     * @return посты в порядке ключей, без удаленных
+     */
+    default List<Post> findActiveInOrder(List<FeedItem> items) {
+        if (items.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, Post> byId = findActiveByIds(items.stream()
+                .map(item -> Long.valueOf(item.postId()))
+                .toList())
+                .stream()
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
+        return items.stream()
+                .map(item -> byId.get(item.postId()))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Query("SELECT new jobforj.social.dto.PostSummary(p.id, u.id, u.username, p.title, "
+            + "SUBSTRING(p.content, 1, :previewLength), p.createdAt, "
+            + "(SELECT COUNT(i) FROM Image i WHERE i.post.id = p.id)) "
+            + "FROM Post p JOIN p.user u WHERE p.isDeleted = false "
+            + "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) "
+            + "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PostSummary> findSummariesBeforeCursor(@Param("createdAt") LocalDateTime createdAt,
+                                                @Param("id") Long id,
+                                                @Param("previewLength") int previewLength,
+                                                Pageable pageable);
+
+    @Query("SELECT new jobforj.social.dto.PostSummary(p.id, u.id, u.username, p.title, "
+            + "SUBSTRING(p.content, 1, :previewLength), p.createdAt, "
+            + "(SELECT COUNT(i) FROM Image i WHERE i.post.id = p.id)) "
+            + "FROM Post p JOIN p.user u WHERE u.id = :userId AND p.isDeleted = false "
+            + "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) "
+            + "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PostSummary> findSummariesByUserIdBeforeCursor(@Param("userId") Long userId,
+                                                        @Param("createdAt") LocalDateTime createdAt,
+                                                        @Param("id") Long id,
+                                                        @Param("previewLength") int previewLength,
+                                                        Pageable pageable);
+
+    @Query("SELECT new jobforj.social.dto.PostSummary(p.id, u.id, u.username, p.title, "
+            + "SUBSTRING(p.content, 1, :previewLength), p.createdAt, "
+            + "(SELECT COUNT(i) FROM Image i WHERE i.post.id = p.id)) "
+            + "FROM Post p JOIN p.user u WHERE p.id IN :ids AND p.isDeleted = false")
+    List<PostSummary> findSummariesByIds(@Param("ids") List<Long> ids, @Param("previewLength") int previewLength);
+
+    /**
+     * Загружает проекции постов одним запросом, сохраняя порядок ключей ленты.
+     * @param items ключи ленты
+     * @return проекции в порядке ключей, без удаленных постов
+     */
+    default List<PostSummary> findSummariesInOrder(List<FeedItem> items) {
+        if (items.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, PostSummary> byId = findSummariesByIds(items.stream()
+                .map(item -> Long.valueOf(item.postId()))
+                .toList(), PostSummary.PREVIEW_LENGTH)
+                .stream()
+                .collect(Collectors.toMap(PostSummary::id, Function.identity()));
+        return items.stream()
+                .map(item -> byId.get(item.postId()))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Полнотекстовый поиск по заголовку и тексту постов с keyset-пагинацией по релевантности.
+     * Использует сгенерированную колонку {@code search_vector} и ее GIN-индекс, удаленные посты не возвращаются.
+     *
+     * @param query  поисковый запрос в синтаксисе {@code websearch_to_tsquery}
+     * @param rank   релевантность последнего поста предыдущей страницы
+     * @param id     идентификатор последнего поста предыдущей страницы
+     * @param limit  количество строк
+     * @return идентификаторы постов и их релевантность по убыванию
+     */
+    @Query(value = """
+            SELECT p.id AS "id", r.rank AS "rank"
+            FROM posts p
+            CROSS JOIN websearch_to_tsquery('russian', :query) q
+            CROSS JOIN LATERAL (SELECT CAST(ts_rank(p.search_vector, q) AS float8) AS rank) r
+            WHERE p.is_deleted = false AND p.search_vector @@ q
+            AND (r.rank < :rank OR (r.rank = :rank AND p.id < :id))
+            ORDER BY r.rank DESC, p.id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<SearchHit> searchBeforeCursor(@Param("query") String query,
+                                       @Param("rank") double rank,
+                                       @Param("id") Long id,
+                                       @Param("limit") int limit);
+
+    @Query("SELECT p.user.id FROM Post p WHERE p.id = :postId AND p.isDeleted = false")
+    Optional<Integer> findActiveAuthorIdById(@Param("postId") Long postId);
+
+    /**
+     * Блокирует строку поста до конца транзакции, если он не удален мягко.
+     * Параллельное удаление того же поста ждет блокировку и после нее
+     * уже не находит активный пост, поэтому счетчик постов уменьшается один раз.
+     *
+     * @param postId идентификатор поста
+     * @return идентификатор автора активного поста
+     */
+    @Transactional
+    @Query(value = "SELECT user_id FROM posts WHERE id = :postId AND is_deleted = false FOR UPDATE",
+            nativeQuery = true)
+    Optional<Integer> lockActiveAuthorIdById(@Param("postId") Long postId);
+
+    /**
+     * Блокирует строку поста до конца транзакции, только если пользователь является его автором.
+     * Чужой пост не блокируется.
+     *
+     * @param userId идентификатор пользователя
+     * @param postId идентификатор поста
+     * @return флаг мягкого удаления поста или пустой Optional, если пост не найден или пользователь не автор
+     */
+    @Transactional
+    @Query(value = "SELECT is_deleted FROM posts WHERE id = :postId AND user_id = :userId FOR UPDATE",
+            nativeQuery = true)
+    Optional<Boolean> lockDeletedFlagOfUserPost(@Param("userId") Long userId, @Param("postId") Long postId);
+
     @Query("SELECT COUNT(p) FROM Post p WHERE p.user.id = :userId AND p.isDeleted = false")
     long countActivePostsByUserId(@Param("userId") Long userId);
 
     @Modifying
     @Transactional
-    @Query("UPDATE Post p SET p.isDeleted = true WHERE p.id = :postId")
-    void softDelete(@Param("postId") Long postId);
+    @Query("UPDATE Post p SET p.isDeleted = true WHERE p.id = :postId AND p.isDeleted = false")
+    int softDelete(@Param("postId") Long postId);
 
     @Modifying
     @Transactional
@@ -95,10 +261,20 @@ public interface PostRepository extends JpaRepository<Post, Long> {
                        @Param("content") String content);
 
     @Modifying(clearAutomatically = true)
-    @Query("UPDATE Post p SET p.isDeleted = true WHERE p.id = :postId AND p.user.id = :userId")
+    @Query("UPDATE Post p SET p.isDeleted = true WHERE p.id = :postId AND p.user.id = :userId "
+            + "AND p.isDeleted = false")
     int softDeleteUserPost(@Param("userId") Long userId, @Param("postId") Long postId);
 
     @Modifying(clearAutomatically = true)
     @Query("DELETE Post p WHERE p.id = :postId AND p.user.id = :userId")
     int deleteUserPost(@Param("userId") Long userId, @Param("postId") Long postId);
+
+    /**
+     * Строка результата полнотекстового поиска.
+     */
+    interface SearchHit {
+        Integer getId();
+
+        Double getRank();
+    }
 }
@@ -0,0 +1,119 @@
+package jobforj.social.repository;
+
+import jobforj.social.model.SubscriptionOutboxEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+
+@Repository
+public interface SubscriptionOutboxRepository extends JpaRepository<SubscriptionOutboxEntry, Long> {
+
+    /**
+     * Ставит подписку в очередь одним запросом INSERT без чтения сущности.
+     *
+     * @param followerId  идентификатор подписчика
+     * @param followingId идентификатор пользователя, на которого подписываются
+     * @param createdAt   время постановки в очередь
+     * @return количество созданных записей
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO subscription_outbox (follower_id, following_id, attempts, created_at, available_at)
+            VALUES (:followerId, :followingId, 0, :createdAt, :createdAt)
+            """, nativeQuery = true)
+    int enqueue(@Param("followerId") Long followerId,
+                @Param("followingId") Long followingId,
+                @Param("createdAt") LocalDateTime createdAt);
+
+    /**
+     * Блокирует самую старую готовую к обработке запись.
+     * Записи, заблокированные другими обработчиками, пропускаются,
+     * поэтому несколько потоков и экземпляров приложения разбирают очередь параллельно.
+     *
+     * @param now         текущее время
+     * @param maxAttempts число попыток, после которого запись больше не обрабатывается
+     * @return заблокированная запись, если она есть
+     */
+    @Query(value = """
+            SELECT * FROM subscription_outbox
+            WHERE available_at <= :now AND attempts < :maxAttempts
+            ORDER BY id
+            LIMIT 1
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    Optional<SubscriptionOutboxEntry> lockNext(@Param("now") LocalDateTime now,
+                                               @Param("maxAttempts") int maxAttempts);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SubscriptionOutboxEntry e WHERE e.id = :id")
+    int deleteEntry(@Param("id") Long id);
+
+    /**
+     * Удаляет из очереди еще не созданную подписку, например при отписке до обработки записи.
+     * Запись, которую сейчас обрабатывает {@link jobforj.social.service.SubscriptionOutboxDispatcher},
+     * удаляется после фиксации его транзакции, поэтому созданная им подписка уже видна вызывающему.
+     *
+     * @param followerId  идентификатор подписчика
+     * @param followingId идентификатор пользователя, на которого подписываются
+     * @return количество удаленных записей
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SubscriptionOutboxEntry e "
+            + "WHERE e.followerId = :followerId AND e.followingId = :followingId")
+    int deleteQueued(@Param("followerId") Long followerId, @Param("followingId") Long followingId);
+
+    /**
+     * Удаляет из очереди еще не созданные подписки на нескольких пользователей.
+     *
+     * @param followerId   идентификатор подписчика
+     * @param followingIds идентификаторы пользователей
+     * @return количество удаленных записей
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SubscriptionOutboxEntry e "
+            + "WHERE e.followerId = :followerId AND e.followingId IN :followingIds")
+    int deleteAllQueued(@Param("followerId") Long followerId,
+                        @Param("followingIds") Collection<Integer> followingIds);
+
+    /**
+     * Записывает неудачную попытку и откладывает следующую.
+     *
+     * @param id          идентификатор записи
+     * @param error       текст ошибки
+     * @param availableAt время, раньше которого запись не обрабатывается повторно
+     * @return количество измененных записей
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE SubscriptionOutboxEntry e SET e.attempts = e.attempts + 1, e.lastError = :error, "
+            + "e.availableAt = :availableAt WHERE e.id = :id")
+    int recordFailure(@Param("id") Long id,
+                      @Param("error") String error,
+                      @Param("availableAt") LocalDateTime availableAt);
+
+    /**
+     * Удаляет записи, исчерпавшие попытки, если последняя попытка была раньше указанного времени.
+     *
+     * @param maxAttempts число попыток, после которого запись больше не обрабатывается
+     * @param before      граница времени последней попытки
+     * @return количество удаленных записей
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SubscriptionOutboxEntry e WHERE e.attempts >= :maxAttempts AND e.availableAt < :before")
+    int deleteExhausted(@Param("maxAttempts") int maxAttempts, @Param("before") LocalDateTime before);
+
+    @Query("SELECT COUNT(e) FROM SubscriptionOutboxEntry e WHERE e.attempts < :maxAttempts")
+    long countPending(@Param("maxAttempts") int maxAttempts);
+}
@@ -1,5 +1,7 @@
 package jobforj.social.repository;
 
+import jakarta.persistence.QueryHint;
+import jobforj.social.dto.SubscriptionPair;
 import jobforj.social.model.Subscription;
 import jobforj.social.model.User;
 import org.springframework.data.domain.Page;
@@ -7,11 +9,16 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface SubscriptionRepository extends JpaRepository<Subscription, Long> {
@@ -38,6 +45,100 @@ public interface SubscriptionRepository extends JpaRepository<Subscription, Long
     @Query("SELECT COUNT(s) FROM Subscription s WHERE s.following.id = :userId")
     long countFollowers(@Param("userId") Long userId);
 
+    @Query("SELECT s.following.id FROM Subscription s GROUP BY s.following.id HAVING COUNT(s) >= :threshold")
+    List<Integer> findUserIdsWithFollowersAtLeast(@Param("threshold") long threshold);
+
+    @Query("SELECT s.following.id FROM Subscription s "
+            + "WHERE s.follower.id = :followerId AND s.following.id IN :candidateIds")
+    List<Integer> findFollowedAmong(@Param("followerId") Long followerId,
+                                    @Param("candidateIds") Collection<Integer> candidateIds);
+
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "10000"))
+    @Query("SELECT new jobforj.social.dto.SubscriptionPair(s.follower.id, s.following.id) FROM Subscription s")
+    Stream<SubscriptionPair> streamAllPairs();
+
+    /**
+     * Создает недостающие подписки между друзьями в диапазоне идентификаторов дружеских связей
+     * одним запросом: значения последовательности берутся только для отсутствующих пар,
+     * ON CONFLICT лишь страхует от параллельной вставки, а в том же запросе
+     * увеличиваются счетчики подписок и подписчиков и ленты новых подписчиков дополняются
+     * последними постами авторов.
+     * Для pull-авторов не меняются followers_count и лента: их подписчиков учитывает
+     * {@link jobforj.social.service.FollowerCounter}, а посты подтягиваются при чтении.
+     *
+     * @param status        статус дружеской связи
+     * @param afterId       идентификатор связи, после которой начинается диапазон (не включительно)
+     * @param lastId        идентификатор последней связи диапазона (включительно)
+     * @param createdAt     время создания подписок
+     * @param pullAuthorIds идентификаторы pull-авторов, не пустой список
+     * @param backfillLimit наибольшее число постов автора, добавляемых в ленту
+     * @return созданные пары подписчик/автор
+     */
+    @Transactional
+    @Query(value = """
+            WITH inserted AS (
+                INSERT INTO subscriptions (id, follower_id, following_id, created_at)
+                SELECT nextval('subscriptions_id_seq'), m.follower_id, m.following_id, :createdAt
+                FROM (
+                    SELECT f.requester_id AS follower_id, f.addressee_id AS following_id
+                    FROM friendships f
+                    WHERE f.status = :status AND f.id > :afterId AND f.id <= :lastId
+                    UNION
+                    SELECT f.addressee_id, f.requester_id
+                    FROM friendships f
+                    WHERE f.status = :status AND f.id > :afterId AND f.id <= :lastId
+                ) m
+                WHERE NOT EXISTS (SELECT 1 FROM subscriptions s
+                                  WHERE s.follower_id = m.follower_id AND s.following_id = m.following_id)
+                ON CONFLICT (follower_id, following_id) DO NOTHING
+                RETURNING follower_id, following_id
+            ), counters AS (
+                UPDATE users u
+                SET following_count = u.following_count + d.following,
+                    followers_count = u.followers_count + d.followers
+                FROM (SELECT x.user_id, SUM(x.following) AS following, SUM(x.followers) AS followers
+                      FROM (SELECT i.follower_id AS user_id, 1 AS following, 0 AS followers FROM inserted i
+                            UNION ALL
+                            SELECT i.following_id, 0, 1 FROM inserted i
+                            WHERE i.following_id NOT IN (:pullAuthorIds)) x
+                      GROUP BY x.user_id) d
+                WHERE u.id = d.user_id
+            ), feed AS (
+                INSERT INTO feed_entries (user_id, post_id, author_id, created_at)
+                SELECT i.follower_id, p.id, p.user_id, COALESCE(p.created_at, CURRENT_TIMESTAMP)
+                FROM inserted i
+                         CROSS JOIN LATERAL (
+                             SELECT p.id, p.user_id, p.created_at
+                             FROM posts p
+                             WHERE p.user_id = i.following_id AND p.is_deleted = false
+                             ORDER BY p.created_at DESC, p.id DESC
+                             LIMIT :backfillLimit
+                         ) p
+                WHERE i.following_id NOT IN (:pullAuthorIds)
+                ON CONFLICT (user_id, post_id) DO NOTHING
+            )
+            SELECT i.follower_id AS "followerId", i.following_id AS "followingId" FROM inserted i
+            """, nativeQuery = true)
+    List<MissingPair> createMissingFriendSubscriptions(@Param("status") String status,
+                                                       @Param("afterId") Integer afterId,
+                                                       @Param("lastId") Integer lastId,
+                                                       @Param("createdAt") LocalDateTime createdAt,
+                                                       @Param("pullAuthorIds") Collection<Integer> pullAuthorIds,
+                                                       @Param("backfillLimit") int backfillLimit);
+
+    /**
+     * То же, что
+     * {@link #createMissingFriendSubscriptions(String, Integer, Integer, LocalDateTime, Collection, int)},
+     * но допускает пустой список pull-авторов.
+     */
+    default List<MissingPair> createMissingFriendSubscriptions(String status, Integer afterId, Integer lastId,
+                                                               Collection<Integer> pullAuthorIds,
+                                                               int backfillLimit) {
+        // NOT IN () недопустим в SQL, а идентификатор 0 последовательность не выдает
+        return createMissingFriendSubscriptions(status, afterId, lastId, LocalDateTime.now(),
+                pullAuthorIds.isEmpty() ? List.of(0) : pullAuthorIds, backfillLimit);
+    }
+
     @Query("SELECT CASE WHEN COUNT(s) > 0 THEN true ELSE false END FROM Subscription s "
             + "WHERE s.follower.id = :followerId AND s.following.id = :followingId")
     boolean isFollowing(@Param("followerId") Long followerId, @Param("followingId") Long followingId);
@@ -45,5 +146,118 @@ public interface SubscriptionRepository extends JpaRepository<Subscription, Long
     @Modifying
     @Transactional
     @Query("DELETE FROM Subscription s WHERE s.follower = :follower AND s.following = :following")
-    void deleteSubscription(@Param("follower") User follower, @Param("following") User following);
+    int deleteSubscription(@Param("follower") User follower, @Param("following") User following);
+
+    /**
+     * Создает подписку одним запросом, если ее еще нет.
+     * Для существующей подписки значение последовательности не берется,
+     * ON CONFLICT страхует от параллельной вставки, а отсутствие пользователей
+     * проверяется внешними ключами.
+     *
+     * @param followerId  идентификатор подписчика
+     * @param followingId идентификатор пользователя, на которого подписываются
+     * @param createdAt   время создания подписки
+     * @return 1 если подписка создана, 0 если она уже существовала
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO subscriptions (id, follower_id, following_id, created_at)
+            SELECT nextval('subscriptions_id_seq'), :followerId, :followingId, :createdAt
+            WHERE NOT EXISTS (SELECT 1 FROM subscriptions s
+                              WHERE s.follower_id = :followerId AND s.following_id = :followingId)
+            ON CONFLICT (follower_id, following_id) DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("followerId") Long followerId,
+                       @Param("followingId") Long followingId,
+                       @Param("createdAt") LocalDateTime createdAt);
+
+    /**
+     * Удаляет подписку одним запросом.
+     *
+     * @param followerId  идентификатор подписчика
+     * @param followingId идентификатор пользователя, на которого подписаны
+     * @return 1 если подписка удалена, 0 если ее не было
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM Subscription s WHERE s.follower.id = :followerId AND s.following.id = :followingId")
+    int deleteByUserIds(@Param("followerId") Long followerId, @Param("followingId") Long followingId);
+
+    /**
+     * Проверяет одним запросом, какие из пользователей существуют и на кого из них
+     * подписчик уже подписан.
+     *
+     * @param followerId  идентификатор подписчика
+     * @param followingIds идентификаторы пользователей
+     * @return состояния найденных пользователей; отсутствующих в результате нет
+     */
+    @Query(value = """
+            SELECT u.id AS "userId",
+                   EXISTS (SELECT 1 FROM subscriptions s
+                           WHERE s.follower_id = :followerId AND s.following_id = u.id) AS "following"
+            FROM users u
+            WHERE u.id IN (:followingIds)
+            """, nativeQuery = true)
+    List<TargetState> findTargetStates(@Param("followerId") Long followerId,
+                                       @Param("followingIds") Collection<Integer> followingIds);
+
+    /**
+     * Создает подписки на нескольких пользователей одним многострочным запросом.
+     * Уже существующие подписки и отсутствующие пользователи пропускаются
+     * до выборки значений последовательности, ON CONFLICT лишь страхует от параллельной вставки.
+     *
+     * @param followerId   идентификатор подписчика
+     * @param followingIds идентификаторы пользователей
+     * @param createdAt    время создания подписок
+     * @return идентификаторы пользователей, подписки на которых созданы
+     */
+    @Transactional
+    @Query(value = """
+            INSERT INTO subscriptions (id, follower_id, following_id, created_at)
+            SELECT nextval('subscriptions_id_seq'), :followerId, u.id, :createdAt
+            FROM users u
+            WHERE u.id IN (:followingIds) AND u.id <> :followerId
+              AND NOT EXISTS (SELECT 1 FROM subscriptions s
+                              WHERE s.follower_id = :followerId AND s.following_id = u.id)
+            ON CONFLICT (follower_id, following_id) DO NOTHING
+            RETURNING following_id
+            """, nativeQuery = true)
+    List<Integer> insertAllIfAbsent(@Param("followerId") Long followerId,
+                                    @Param("followingIds") Collection<Integer> followingIds,
+                                    @Param("createdAt") LocalDateTime createdAt);
+
+    /**
+     * Удаляет подписки на нескольких пользователей одним запросом.
+     *
+     * @param followerId   идентификатор подписчика
+     * @param followingIds идентификаторы пользователей
+     * @return идентификаторы пользователей, подписки на которых удалены
+     */
+    @Transactional
+    @Query(value = """
+            DELETE FROM subscriptions
+            WHERE follower_id = :followerId AND following_id IN (:followingIds)
+            RETURNING following_id
+            """, nativeQuery = true)
+    List<Integer> deleteAllByUserIds(@Param("followerId") Long followerId,
+                                     @Param("followingIds") Collection<Integer> followingIds);
+
+    /**
+     * Состояние пользователя для пакетной подписки.
+     */
+    interface TargetState {
+        Integer getUserId();
+
+        Boolean getFollowing();
+    }
+
+    /**
+     * Пара идентификаторов подписки, которой не хватает.
+     */
+    interface MissingPair {
+        Integer getFollowerId();
+
+        Integer getFollowingId();
+    }
 }
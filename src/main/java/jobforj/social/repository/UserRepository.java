@@ -1,9 +1,12 @@
 package jobforj.social.repository;
 
 
+import jobforj.social.dto.UserProfile;
+import jobforj.social.dto.UserSuggestion;
 import jobforj.social.model.User;
 import jobforj.social.model.Post;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
@@ -13,6 +16,7 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -75,9 +79,38 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     boolean existsByEmail(String email);
 
+    /**
+     * Ищет пользователей по подстроке имени или email.
+     * Условия обслуживаются триграммными GIN-индексами {@code idx_users_username_trgm}
+     * и {@code idx_users_email_trgm}.
+     */
     @Query("SELECT u FROM User u WHERE u.username LIKE %:keyword% OR u.email LIKE %:keyword%")
     Page<User> searchUsers(@Param("keyword") String keyword, Pageable pageable);
 
+    /**
+     * Подсказки для автодополнения: активные пользователи, чье имя или email начинается с префикса
+     * без учета регистра. Сначала идут имена, наиболее похожие на префикс.
+     * В отличие от {@link #searchUsers} не выполняет запрос COUNT.
+     *
+     * @param prefix введенный префикс
+     * @param limit  количество подсказок
+     * @return подсказки по убыванию сходства
+     */
+    default List<UserSuggestion> autocomplete(String prefix, int limit) {
+        String pattern = prefix.replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_") + "%";
+        return findSuggestions(pattern, prefix, PageRequest.of(0, limit));
+    }
+
+    @Query("SELECT new jobforj.social.dto.UserSuggestion(u.id, u.username) FROM User u "
+            + "WHERE u.isActive = true "
+            + "AND (u.username ILIKE :pattern ESCAPE '!' OR u.email ILIKE :pattern ESCAPE '!') "
+            + "ORDER BY function('similarity', u.username, :prefix) DESC, u.username")
+    List<UserSuggestion> findSuggestions(@Param("pattern") String pattern,
+                                         @Param("prefix") String prefix,
+                                         Pageable pageable);
+
     @Query("SELECT u FROM User u WHERE u.isActive = true")
     List<User> findAllActiveUsers();
 
@@ -88,4 +121,161 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Transactional
     @Query("UPDATE User u SET u.isActive = false WHERE u.id = :userId")
     void deactivateUser(@Param("userId") Long userId);
-}
\ No newline at end of file
+
+    /**
+     * Изменяет счетчик непрочитанных сообщений пользователя.
+     *
+     * @param userId идентификатор получателя
+     * @param delta  на сколько изменить счетчик
+     * @return количество обновленных записей
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.unreadMessagesCount = u.unreadMessagesCount + :delta WHERE u.id = :userId")
+    int addUnreadMessages(@Param("userId") Long userId, @Param("delta") int delta);
+
+    /**
+     * Читает счетчик непрочитанных сообщений без обращения к таблице сообщений.
+     *
+     * @param userId идентификатор пользователя
+     * @return значение счетчика, если пользователь существует
+     */
+    @Query("SELECT u.unreadMessagesCount FROM User u WHERE u.id = :userId")
+    Optional<Integer> findUnreadMessagesCount(@Param("userId") Long userId);
+
+    /**
+     * Изменяет счетчики подписчиков и подписок обоих участников подписки одним запросом.
+     *
+     * @param followerId  идентификатор подписчика
+     * @param followingId идентификатор пользователя, на которого подписаны
+     * @param delta       1 при создании подписки, -1 при удалении
+     * @return количество обновленных записей
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            UPDATE User u
+            SET u.followersCount = u.followersCount + CASE WHEN u.id = :followingId THEN :delta ELSE 0 END,
+                u.followingCount = u.followingCount + CASE WHEN u.id = :followerId THEN :delta ELSE 0 END
+            WHERE u.id IN (:followerId, :followingId)
+            """)
+    int addSubscription(@Param("followerId") Long followerId,
+                        @Param("followingId") Long followingId,
+                        @Param("delta") int delta);
+
+    /**
+     * Изменяет счетчики подписчиков нескольких пользователей.
+     *
+     * @param userIds идентификаторы пользователей
+     * @param delta   на сколько изменить каждый счетчик
+     * @return количество обновленных записей
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.followersCount = u.followersCount + :delta WHERE u.id IN :userIds")
+    int addFollowers(@Param("userIds") Collection<Integer> userIds, @Param("delta") int delta);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.followingCount = u.followingCount + :delta WHERE u.id = :userId")
+    int addFollowing(@Param("userId") Long userId, @Param("delta") int delta);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.postsCount = u.postsCount + :delta WHERE u.id = :userId")
+    int addPosts(@Param("userId") Long userId, @Param("delta") int delta);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.postsCount = 0 WHERE u.id = :userId")
+    int resetPosts(@Param("userId") Long userId);
+
+    @Query("SELECT u.followersCount FROM User u WHERE u.id = :userId")
+    Optional<Integer> findFollowersCount(@Param("userId") Long userId);
+
+    @Query("SELECT u.followingCount FROM User u WHERE u.id = :userId")
+    Optional<Integer> findFollowingCount(@Param("userId") Long userId);
+
+    @Query("SELECT u.postsCount FROM User u WHERE u.id = :userId")
+    Optional<Integer> findPostsCount(@Param("userId") Long userId);
+
+    /**
+     * Читает шапку профиля со счетчиками по первичному ключу, без агрегатов по подпискам и постам.
+     * К числу подписчиков прибавляются ячейки распределенного счетчика, у обычных авторов их нет.
+     *
+     * @param userId идентификатор пользователя
+     * @return профиль, если пользователь существует
+     */
+    @Query("""
+            SELECT new jobforj.social.dto.UserProfile(u.id, u.username,
+                   CAST(u.followersCount + COALESCE((SELECT SUM(s.delta) FROM FollowerCountSlot s
+                                                     WHERE s.userId = u.id), 0) AS Integer),
+                   u.followingCount, u.postsCount)
+            FROM User u WHERE u.id = :userId
+            """)
+    Optional<UserProfile> findProfile(@Param("userId") Long userId);
+
+    /**
+     * Блокирует очередную порцию пользователей для сверки счетчиков.
+     * Пока строки заблокированы, счетчики этих пользователей не меняются,
+     * а изменения, зафиксированные до блокировки, видны следующему запросу транзакции.
+     *
+     * @param afterId идентификатор, после которого начинается порция (не включительно)
+     * @param limit   размер порции
+     * @return идентификаторы пользователей порции по возрастанию
+     */
+    @Transactional
+    @Query(value = "SELECT id FROM users WHERE id > :afterId ORDER BY id LIMIT :limit FOR UPDATE",
+            nativeQuery = true)
+    List<Integer> lockIdChunk(@Param("afterId") Integer afterId, @Param("limit") int limit);
+
+    /**
+     * Пересчитывает счетчики пользователей по таблицам подписок и постов.
+     * Ячейки follower_count_slots не меняются: followers_count получает разницу
+     * между числом подписок и суммой ячеек.
+     *
+     * @param userIds идентификаторы пользователей
+     * @return количество пользователей, у которых счетчики разошлись с таблицами
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE users u
+            SET followers_count = c.followers - c.slotted, following_count = c.following, posts_count = c.posts
+            FROM (SELECT u2.id,
+                         (SELECT COUNT(*) FROM subscriptions s WHERE s.following_id = u2.id) AS followers,
+                         (SELECT COALESCE(SUM(f.delta), 0) FROM follower_count_slots f
+                          WHERE f.user_id = u2.id) AS slotted,
+                         (SELECT COUNT(*) FROM subscriptions s WHERE s.follower_id = u2.id) AS following,
+                         (SELECT COUNT(*) FROM posts p WHERE p.user_id = u2.id AND p.is_deleted = false) AS posts
+                  FROM users u2
+                  WHERE u2.id IN (:userIds)) c
+            WHERE u.id = c.id
+            AND (u.followers_count + c.slotted, u.following_count, u.posts_count)
+                IS DISTINCT FROM (c.followers, c.following, c.posts)
+            """, nativeQuery = true)
+    int reconcileCounters(@Param("userIds") Collection<Integer> userIds);
+
+    /**
+     * Пересчитывает счетчики подписок и постов, не трогая followers_count.
+     * Используется для пользователей, у которых есть изменения числа подписчиков,
+     * еще не записанные в follower_count_slots.
+     *
+     * @param userIds идентификаторы пользователей
+     * @return количество пользователей, у которых счетчики разошлись с таблицами
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE users u
+            SET following_count = c.following, posts_count = c.posts
+            FROM (SELECT u2.id,
+                         (SELECT COUNT(*) FROM subscriptions s WHERE s.follower_id = u2.id) AS following,
+                         (SELECT COUNT(*) FROM posts p WHERE p.user_id = u2.id AND p.is_deleted = false) AS posts
+                  FROM users u2
+                  WHERE u2.id IN (:userIds)) c
+            WHERE u.id = c.id
+            AND (u.following_count, u.posts_count) IS DISTINCT FROM (c.following, c.posts)
+            """, nativeQuery = true)
+    int reconcileCountersExceptFollowers(@Param("userIds") Collection<Integer> userIds);
+}
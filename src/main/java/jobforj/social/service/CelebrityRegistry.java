@@ -0,0 +1,90 @@
+package jobforj.social.service;
+
+import jobforj.social.index.SocialGraphIndex;
+import jobforj.social.repository.FeedEntryRepository;
+import jobforj.social.repository.SubscriptionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Реестр авторов с большим числом подписчиков.
+ * Посты таких авторов не раскладываются по лентам при публикации,
+ * а подтягиваются при чтении ленты (pull), чтобы одна публикация
+ * не порождала миллионы записей feed_entries.
+ */
+@Component
+@RequiredArgsConstructor
+public class CelebrityRegistry {
+    private final SubscriptionRepository subscriptionRepository;
+    private final FeedEntryRepository feedEntryRepository;
+    private final SocialGraphIndex socialGraphIndex;
+
+    @Value("${feed.celebrity-follower-threshold:10000}")
+    private long followerThreshold;
+
+    @Value("${feed.backfill-limit:100}")
+    private int backfillLimit;
+
+    private volatile Set<Integer> celebrityIds = Set.of();
+
+    /**
+     * Проверяет, читаются ли посты автора через pull.
+     *
+     * @param userId идентификатор автора
+     * @return true если у автора не меньше порогового числа подписчиков
+     */
+    public boolean isCelebrity(Integer userId) {
+        return celebrityIds.contains(userId);
+    }
+
+    /**
+     * @return идентификаторы всех авторов с pull-доставкой на момент вызова
+     */
+    public Set<Integer> findAll() {
+        return celebrityIds;
+    }
+
+    /**
+     * Возвращает авторов с большим числом подписчиков, на которых подписан пользователь.
+     *
+     * @param followerId идентификатор подписчика
+     * @return идентификаторы авторов, чьи посты нужно подтянуть при чтении ленты
+     */
+    @Transactional(readOnly = true)
+    public List<Integer> findFollowedCelebrities(Long followerId) {
+        Set<Integer> current = celebrityIds;
+        if (current.isEmpty()) {
+            return List.of();
+        }
+        if (socialGraphIndex.isReady()) {
+            return socialGraphIndex.filterFollowed(followerId.intValue(), current);
+        }
+        return subscriptionRepository.findFollowedAmong(followerId, current);
+    }
+
+    /**
+     * Пересчитывает набор авторов по текущему порогу.
+     * Авторам, опустившимся ниже порога, последние посты раскладываются по лентам подписчиков,
+     * так как pull для них больше не выполняется.
+     */
+    @Scheduled(fixedDelayString = "${feed.celebrity-refresh-interval:PT5M}")
+    @Transactional
+    public void refresh() {
+        Set<Integer> current = new HashSet<>(socialGraphIndex.isReady()
+                ? socialGraphIndex.findUsersWithFollowersAtLeast(followerThreshold)
+                : subscriptionRepository.findUserIdsWithFollowersAtLeast(followerThreshold));
+        for (Integer previous : celebrityIds) {
+            if (!current.contains(previous)) {
+                feedEntryRepository.backfillFollowersOfAuthor(Long.valueOf(previous), backfillLimit);
+            }
+        }
+        celebrityIds = Set.copyOf(current);
+    }
+}
@@ -0,0 +1,115 @@
+package jobforj.social.service;
+
+import jobforj.social.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Периодическая сверка счетчиков подписчиков, подписок и постов в users с таблицами.
+ * Пользователи обходятся порциями по возрастанию идентификатора, каждая порция
+ * в отдельной транзакции: строки порции блокируются, затем счетчики пересчитываются
+ * агрегатами. Блокировка дожидается транзакций, которые уже изменили счетчики,
+ * поэтому сверка не затирает их изменения.
+ * <p>
+ * Изменения числа подписчиков популярных авторов пишутся в follower_count_slots
+ * из памяти {@link FollowerCounter} и не блокируют строки users. Поэтому порция
+ * сверяется при приостановленной записи ячеек, а у авторов с незаписанными
+ * изменениями followers_count не пересчитывается. Если такие изменения появились
+ * во время пересчета, транзакция порции откатывается и повторяется.
+ * Незаписанные изменения других экземпляров приложения сверке не видны.
+ */
+@Slf4j
+@Component
+public class CounterReconciler {
+    private static final int MAX_CHUNK_ATTEMPTS = 3;
+
+    private final UserRepository userRepository;
+    private final FollowerCounter followerCounter;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public CounterReconciler(UserRepository userRepository,
+                             FollowerCounter followerCounter,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${user.counters.reconcile-chunk-size:1000}") int chunkSize) {
+        this.userRepository = userRepository;
+        this.followerCounter = followerCounter;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Сверяет счетчики всех пользователей.
+     *
+     * @return количество пользователей, у которых счетчики были исправлены
+     */
+    @Scheduled(initialDelayString = "${user.counters.reconcile-interval:PT6H}",
+            fixedDelayString = "${user.counters.reconcile-interval:PT6H}")
+    public long reconcile() {
+        long startedAt = System.currentTimeMillis();
+        long checked = 0;
+        long fixed = 0;
+        Integer afterId = 0;
+        while (true) {
+            Integer from = afterId;
+            Chunk chunk = followerCounter.holdFlushes(() -> reconcileChunk(from));
+            if (chunk.checked() == 0) {
+                break;
+            }
+            afterId = chunk.lastId();
+            checked += chunk.checked();
+            fixed += chunk.fixed();
+        }
+        if (fixed > 0) {
+            log.warn("Сверка счетчиков пользователей: проверено {}, исправлено {}, {} мс",
+                    checked, fixed, System.currentTimeMillis() - startedAt);
+        } else {
+            log.info("Сверка счетчиков пользователей: проверено {}, расхождений нет, {} мс",
+                    checked, System.currentTimeMillis() - startedAt);
+        }
+        return fixed;
+    }
+
+    private Chunk reconcileChunk(Integer afterId) {
+        for (int attempt = 1; attempt <= MAX_CHUNK_ATTEMPTS; attempt++) {
+            Chunk chunk = transactionTemplate.execute(status -> {
+                List<Integer> ids = userRepository.lockIdChunk(afterId, chunkSize);
+                if (ids.isEmpty()) {
+                    return new Chunk(afterId, 0, 0);
+                }
+                Set<Integer> unflushed = followerCounter.findUnflushed(ids);
+                List<Integer> settled = ids.stream().filter(id -> !unflushed.contains(id)).toList();
+                int fixed = settled.isEmpty() ? 0 : userRepository.reconcileCounters(settled);
+                if (!unflushed.isEmpty()) {
+                    fixed += userRepository.reconcileCountersExceptFollowers(unflushed);
+                }
+                if (!unflushed.containsAll(followerCounter.findUnflushed(ids))) {
+                    status.setRollbackOnly();
+                    return null;
+                }
+                return new Chunk(ids.get(ids.size() - 1), ids.size(), fixed);
+            });
+            if (chunk != null) {
+                return chunk;
+            }
+        }
+        // Незаписанные изменения продолжают появляться: сверяем порцию без followers_count
+        return transactionTemplate.execute(status -> {
+            List<Integer> ids = userRepository.lockIdChunk(afterId, chunkSize);
+            if (ids.isEmpty()) {
+                return new Chunk(afterId, 0, 0);
+            }
+            return new Chunk(ids.get(ids.size() - 1), ids.size(),
+                    userRepository.reconcileCountersExceptFollowers(ids));
+        });
+    }
+
+    private record Chunk(Integer lastId, int checked, int fixed) {
+    }
+}
@@ -0,0 +1,53 @@
+package jobforj.social.service;
+
+import jobforj.social.dto.FeedItem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * K-путевое слияние источников ленты, каждый из которых уже отсортирован от новых к старым.
+ */
+final class FeedMerger {
+
+    private FeedMerger() {
+    }
+
+    /**
+     * Сливает отсортированные списки в один, отбрасывая повторы одного и того же поста.
+     *
+     * @param sources списки, отсортированные по {@link FeedItem#NEWEST_FIRST}
+     * @param limit   максимальное количество элементов результата
+     * @return не более limit самых новых элементов всех источников
+     */
+    static List<FeedItem> mergeNewestFirst(List<List<FeedItem>> sources, int limit) {
+        PriorityQueue<Head> heads = new PriorityQueue<>(
+                Math.max(1, sources.size()), (a, b) -> FeedItem.NEWEST_FIRST.compare(a.item(), b.item()));
+        for (List<FeedItem> source : sources) {
+            if (!source.isEmpty()) {
+                heads.add(new Head(source, 0));
+            }
+        }
+        List<FeedItem> merged = new ArrayList<>(limit);
+        FeedItem last = null;
+        while (merged.size() < limit && !heads.isEmpty()) {
+            Head head = heads.poll();
+            FeedItem item = head.item();
+            if (last == null || !last.postId().equals(item.postId())) {
+                merged.add(item);
+                last = item;
+            }
+            if (head.index() + 1 < head.source().size()) {
+                heads.add(new Head(head.source(), head.index() + 1));
+            }
+        }
+        return merged;
+    }
+
+    private record Head(List<FeedItem> source, int index) {
+        FeedItem item() {
+            return source.get(index);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package jobforj.social.service;
+
+import jobforj.social.cache.RecentPostCache;
+import jobforj.social.dto.CursorPage;
+import jobforj.social.dto.FeedItem;
+import jobforj.social.dto.PostCursor;
+import jobforj.social.dto.PostSummary;
+import jobforj.social.model.Post;
+import jobforj.social.repository.FeedEntryRepository;
+import jobforj.social.repository.PostRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Сервис гибридной ленты.
+ * Посты обычных авторов раскладываются по лентам подписчиков при публикации (push),
+ * посты авторов с большим числом подписчиков подтягиваются при чтении (pull)
+ * и сливаются с материализованной лентой k-путевым слиянием. Последние посты
+ * pull-авторов по возможности берутся из {@link RecentPostCache}.
+ * <p>
+ * При новой подписке лента дополняется только последними {@code feed.backfill-limit}
+ * постами автора, более ранние остаются в его профиле. Поэтому одна подписка добавляет
+ * в feed_entries не больше этого числа строк, сколько бы постов автор ни опубликовал.
+ */
+@Service
+@RequiredArgsConstructor
+public class FeedService {
+    private final FeedEntryRepository feedEntryRepository;
+    private final PostRepository postRepository;
+    private final CelebrityRegistry celebrityRegistry;
+    private final RecentPostCache recentPostCache;
+
+    @Value("${feed.backfill-limit:100}")
+    private int backfillLimit;
+
+    /**
+     * Доставляет только что созданный пост в ленты подписчиков автора.
+     * Посты авторов из {@link CelebrityRegistry} не раскладываются.
+     *
+     * @param post сохраненный пост
+     * @return количество созданных записей ленты
+     */
+    @Transactional
+    public int fanOut(Post post) {
+        if (celebrityRegistry.isCelebrity(post.getUser().getId())) {
+            return 0;
+        }
+        return feedEntryRepository.fanOutPost(Long.valueOf(post.getId()),
+                Long.valueOf(post.getUser().getId()), post.getCreatedAt());
+    }
+
+    /**
+     * Добавляет в ленту подписчика последние опубликованные посты автора.
+     * Вызывается при появлении новой подписки.
+     *
+     * @param followerId идентификатор подписчика
+     * @param authorId   идентификатор автора
+     * @return количество добавленных записей ленты
+     */
+    @Transactional
+    public int backfill(Long followerId, Long authorId) {
+        if (celebrityRegistry.isCelebrity(authorId.intValue())) {
+            return 0;
+        }
+        return feedEntryRepository.backfillFromAuthor(followerId, authorId, backfillLimit);
+    }
+
+    /**
+     * Добавляет в ленту подписчика последние опубликованные посты нескольких авторов одним запросом.
+     * Авторы с pull-доставкой пропускаются.
+     *
+     * @param followerId идентификатор подписчика
+     * @param authorIds  идентификаторы авторов
+     * @return количество добавленных записей ленты
+     */
+    @Transactional
+    public int backfill(Long followerId, Collection<Integer> authorIds) {
+        List<Integer> pushed = authorIds.stream()
+                .filter(authorId -> !celebrityRegistry.isCelebrity(authorId))
+                .toList();
+        if (pushed.isEmpty()) {
+            return 0;
+        }
+        return feedEntryRepository.backfillFromAuthors(followerId, pushed, backfillLimit);
+    }
+
+    /**
+     * Убирает посты автора из ленты бывшего подписчика.
+     *
+     * @param followerId идентификатор подписчика
+     * @param authorId   идентификатор автора
+     * @return количество удаленных записей ленты
+     */
+    @Transactional
+    public int evict(Long followerId, Long authorId) {
+        return feedEntryRepository.deleteByFollowerAndAuthor(followerId, authorId);
+    }
+
+    /**
+     * Убирает посты нескольких авторов из ленты бывшего подписчика одним запросом.
+     *
+     * @param followerId идентификатор подписчика
+     * @param authorIds  идентификаторы авторов
+     * @return количество удаленных записей ленты
+     */
+    @Transactional
+    public int evict(Long followerId, Collection<Integer> authorIds) {
+        if (authorIds.isEmpty()) {
+            return 0;
+        }
+        return feedEntryRepository.deleteByFollowerAndAuthors(followerId, authorIds);
+    }
+
+    /**
+     * Возвращает ленту пользователя.
+     * Если пользователь не подписан на авторов с pull-доставкой, лента читается
+     * напрямую из материализованной таблицы. Иначе страница и общее количество
+     * считаются по слиянию материализованной ленты и постов pull-авторов в базе,
+     * по одному запросу на каждое. Стоимость страницы растет со смещением,
+     * поэтому для глубокой прокрутки следует использовать {@link #getFeed(Long, String, int)}.
+     *
+     * @param userId   идентификатор пользователя
+     * @param pageable параметры пагинации
+     * @return страница с постами из ленты
+     */
+    @Transactional(readOnly = true)
+    public Page<Post> getFeed(Long userId, Pageable pageable) {
+        List<Integer> celebrities = celebrityRegistry.findFollowedCelebrities(userId);
+        if (celebrities.isEmpty()) {
+            return feedEntryRepository.findFeedPosts(userId, pageable);
+        }
+        List<FeedItem> items = feedEntryRepository.findMergedFeedItems(userId, celebrities, pageable);
+        return PageableExecutionUtils.getPage(postRepository.findActiveInOrder(items), pageable,
+                () -> feedEntryRepository.countMergedFeed(userId, celebrities));
+    }
+
+    /**
+     * Возвращает страницу ленты пользователя с keyset-пагинацией по (created_at, id).
+     *
+     * @param userId идентификатор пользователя
+     * @param cursor курсор предыдущей страницы, null для первой страницы
+     * @param limit  размер страницы
+     * @return страница с постами и курсором следующей страницы
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Post> getFeed(Long userId, String cursor, int limit) {
+        PostCursor position = PostCursor.decode(cursor);
+        Pageable fetch = CursorPage.fetchRequest(limit);
+        List<Integer> celebrities = celebrityRegistry.findFollowedCelebrities(userId);
+        List<Post> rows;
+        if (celebrities.isEmpty()) {
+            rows = feedEntryRepository.findFeedPostsBeforeCursor(userId,
+                    position.createdAt(), position.idAsLong(), fetch);
+        } else {
+            rows = postRepository.findActiveInOrder(collect(userId, celebrities, position, fetch.getPageSize()));
+        }
+        return CursorPage.of(rows, limit, post -> PostCursor.of(post).encode());
+    }
+
+    /**
+     * Возвращает страницу ленты в виде проекций без загрузки сущностей постов.
+     * Ключи ленты собираются так же, как для {@link #getFeed(Long, String, int)},
+     * а строки страницы выбираются одним запросом проекции.
+     *
+     * @param userId идентификатор пользователя
+     * @param cursor курсор предыдущей страницы, null для первой страницы
+     * @param limit  размер страницы
+     * @return страница проекций постов и курсор следующей страницы
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<PostSummary> getFeedSummaries(Long userId, String cursor, int limit) {
+        PostCursor position = PostCursor.decode(cursor);
+        Pageable fetch = CursorPage.fetchRequest(limit);
+        List<FeedItem> items = collect(userId, celebrityRegistry.findFollowedCelebrities(userId),
+                position, fetch.getPageSize());
+        return CursorPage.of(postRepository.findSummariesInOrder(items), limit,
+                summary -> summary.toCursor().encode());
+    }
+
+    /**
+     * Собирает ключи ленты из материализованной таблицы и из постов pull-авторов.
+     *
+     * @param userId      идентификатор владельца ленты
+     * @param celebrities авторы, чьи посты подтягиваются при чтении
+     * @param position    позиция, после которой начинается выборка
+     * @param limit       количество ключей
+     * @return не более limit ключей, отсортированных от новых к старым
+     */
+    private List<FeedItem> collect(Long userId, List<Integer> celebrities, PostCursor position, int limit) {
+        Pageable window = PageRequest.of(0, limit);
+        List<List<FeedItem>> sources = new ArrayList<>(celebrities.size() + 1);
+        sources.add(feedEntryRepository.findFeedItemsBeforeCursor(userId,
+                position.createdAt(), position.idAsLong(), window));
+        for (Integer authorId : celebrities) {
+            sources.add(recentPostCache.findBefore(authorId, position, limit)
+                    .orElseGet(() -> postRepository.findItemsByAuthorBeforeCursor(Long.valueOf(authorId),
+                            position.createdAt(), position.idAsLong(), window)));
+        }
+        return FeedMerger.mergeNewestFirst(sources, limit);
+    }
+}
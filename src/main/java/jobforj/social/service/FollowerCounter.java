@@ -0,0 +1,250 @@
+package jobforj.social.service;
+
+import jakarta.annotation.PreDestroy;
+import jobforj.social.repository.FollowerCountSlotRepository;
+import jobforj.social.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Счетчики подписчиков и подписок в users.
+ * <p>
+ * Для обычных авторов оба счетчика меняются одним UPDATE в транзакции подписки.
+ * Для авторов с pull-доставкой ({@link CelebrityRegistry}) каждая подписка обновляла бы
+ * одну и ту же строку users и ждала бы ее блокировку. Поэтому их изменения после фиксации
+ * копятся в памяти и раз в окно агрегации записываются одной суммой на автора
+ * в случайную ячейку таблицы follower_count_slots. Экземпляры приложения пишут
+ * в разные ячейки и не конкурируют за одну строку.
+ * <p>
+ * Число подписчиков равно followers_count плюс сумма ячеек. При штатной остановке
+ * накопленные изменения записываются {@link #shutdown()}; изменения, потерянные
+ * при аварийной остановке, исправляет {@link CounterReconciler}. Подписки таких изменений
+ * уже видны в subscriptions, поэтому на время сверки запись в ячейки приостанавливается
+ * через {@link #holdFlushes(Supplier)}, а авторы из {@link #findUnflushed(Collection)}
+ * не сверяются: иначе следующая запись учла бы те же подписки второй раз.
+ */
+@Slf4j
+@Component
+public class FollowerCounter {
+    private final UserRepository userRepository;
+    private final FollowerCountSlotRepository slotRepository;
+    private final CelebrityRegistry celebrityRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final int slots;
+    private final Map<Integer, Long> pending = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> inFlight = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public FollowerCounter(UserRepository userRepository,
+                           FollowerCountSlotRepository slotRepository,
+                           CelebrityRegistry celebrityRegistry,
+                           TransactionTemplate transactionTemplate,
+                           @Value("${user.counters.follower-slots:16}") int slots) {
+        this.userRepository = userRepository;
+        this.slotRepository = slotRepository;
+        this.celebrityRegistry = celebrityRegistry;
+        this.transactionTemplate = transactionTemplate;
+        this.slots = slots;
+    }
+
+    /**
+     * Учитывает создание или удаление подписки.
+     *
+     * @param followerId  идентификатор подписчика
+     * @param followingId идентификатор пользователя, на которого подписаны
+     * @param delta       1 при создании подписки, -1 при удалении
+     */
+    public void addSubscription(Long followerId, Long followingId, int delta) {
+        if (!celebrityRegistry.isCelebrity(followingId.intValue())) {
+            userRepository.addSubscription(followerId, followingId, delta);
+            return;
+        }
+        userRepository.addFollowing(followerId, delta);
+        afterCommit(Map.of(followingId.intValue(), (long) delta));
+    }
+
+    /**
+     * Учитывает создание или удаление подписок одного подписчика на нескольких пользователей.
+     *
+     * @param followerId   идентификатор подписчика
+     * @param followingIds идентификаторы пользователей
+     * @param delta        1 при создании подписок, -1 при удалении
+     */
+    public void addSubscriptions(Long followerId, Collection<Integer> followingIds, int delta) {
+        if (followingIds.isEmpty()) {
+            return;
+        }
+        userRepository.addFollowing(followerId, delta * followingIds.size());
+        Map<Integer, Long> hot = new HashMap<>();
+        List<Integer> regular = new ArrayList<>(followingIds.size());
+        for (Integer followingId : followingIds) {
+            if (celebrityRegistry.isCelebrity(followingId)) {
+                hot.put(followingId, (long) delta);
+            } else {
+                regular.add(followingId);
+            }
+        }
+        if (!regular.isEmpty()) {
+            userRepository.addFollowers(regular, delta);
+        }
+        if (!hot.isEmpty()) {
+            afterCommit(hot);
+        }
+    }
+
+    /**
+     * Учитывает новых подписчиков авторов с pull-доставкой, если подписки и счетчики
+     * подписок подписчиков уже записаны одним запросом.
+     *
+     * @param deltas изменение числа подписчиков по идентификатору автора
+     */
+    public void addFollowers(Map<Integer, Long> deltas) {
+        if (!deltas.isEmpty()) {
+            afterCommit(deltas);
+        }
+    }
+
+    /**
+     * @param userId идентификатор пользователя
+     * @return количество подписчиков с учетом ячеек и изменений, еще не записанных из памяти
+     */
+    public long countFollowers(Long userId) {
+        long stored = userRepository.findFollowersCount(userId).orElse(0);
+        return stored + slotRepository.sumDelta(userId) + pending.getOrDefault(userId.intValue(), 0L);
+    }
+
+    /**
+     * Записывает накопленные изменения в ячейки, каждого автора в своей транзакции.
+     * Если запись автора не удалась, его изменение возвращается в память до следующей попытки.
+     * Изменение автора, которого уже нет в users, отбрасывается, чтобы не повторять его бесконечно.
+     *
+     * @return количество авторов, чьи счетчики были записаны
+     */
+    @Scheduled(fixedDelayString = "${user.counters.flush-interval:PT1S}")
+    public int flush() {
+        flushLock.lock();
+        try {
+            return flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Записывает накопленные изменения перед остановкой приложения.
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        if (!pending.isEmpty()) {
+            log.error("При остановке не записаны счетчики подписчиков для {} авторов", pending.size());
+        }
+    }
+
+    /**
+     * Записывает накопленные изменения и выполняет действие, не давая
+     * записывать новые изменения в ячейки до его завершения.
+     *
+     * @param action действие, которому нужны неизменные ячейки
+     * @param <T>    тип результата действия
+     * @return результат действия
+     */
+    public <T> T holdFlushes(Supplier<T> action) {
+        flushLock.lock();
+        try {
+            flushPending();
+            return action.get();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает авторов, у которых есть изменения, еще не записанные в ячейки:
+     * накопленные в памяти или принадлежащие незавершенным транзакциям.
+     * Автор остается в этом множестве с момента изменения в транзакции до записи в ячейку.
+     *
+     * @param userIds идентификаторы пользователей
+     * @return идентификаторы пользователей с незаписанными изменениями
+     */
+    public Set<Integer> findUnflushed(Collection<Integer> userIds) {
+        return userIds.stream()
+                .filter(userId -> pending.containsKey(userId) || inFlight.containsKey(userId))
+                .collect(Collectors.toSet());
+    }
+
+    private int flushPending() {
+        Map<Integer, Long> batch = new HashMap<>();
+        for (Integer userId : pending.keySet()) {
+            Long delta = pending.remove(userId);
+            if (delta != null && delta != 0) {
+                batch.put(userId, delta);
+            }
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        int flushed = 0;
+        Map<Integer, Long> failed = new HashMap<>();
+        RuntimeException failure = null;
+        for (Map.Entry<Integer, Long> entry : batch.entrySet()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> slotRepository.addDelta(entry.getKey(),
+                        (short) ThreadLocalRandom.current().nextInt(slots), Math.toIntExact(entry.getValue())));
+                flushed++;
+            } catch (DataIntegrityViolationException e) {
+                log.warn("Отброшено изменение счетчика подписчиков {} для отсутствующего автора {}",
+                        entry.getValue(), entry.getKey(), e);
+            } catch (RuntimeException e) {
+                failed.put(entry.getKey(), entry.getValue());
+                failure = e;
+            }
+        }
+        if (!failed.isEmpty()) {
+            merge(failed);
+            log.warn("Не удалось записать счетчики подписчиков для {} авторов, повтор в следующем окне",
+                    failed.size(), failure);
+        }
+        return flushed;
+    }
+
+    private void afterCommit(Map<Integer, Long> deltas) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            merge(deltas);
+            return;
+        }
+        deltas.keySet().forEach(userId -> inFlight.merge(userId, 1, Integer::sum));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    merge(deltas);
+                }
+                deltas.keySet().forEach(userId ->
+                        inFlight.computeIfPresent(userId, (id, count) -> count > 1 ? count - 1 : null));
+            }
+        });
+    }
+
+    private void merge(Map<Integer, Long> deltas) {
+        deltas.forEach((userId, delta) -> pending.merge(userId, delta, Long::sum));
+    }
+}
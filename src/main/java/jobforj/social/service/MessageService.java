@@ -0,0 +1,151 @@
+package jobforj.social.service;
+
+import jobforj.social.dto.InboxEntry;
+import jobforj.social.model.Message;
+import jobforj.social.model.User;
+import jobforj.social.repository.ConversationRepository;
+import jobforj.social.repository.MessageRepository;
+import jobforj.social.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Сервис личных сообщений.
+ * Число непрочитанных сообщений хранится в счетчике пользователя: он увеличивается
+ * при отправке сообщения и уменьшается при отметке сообщений прочитанными,
+ * поэтому его чтение не обращается к таблице сообщений.
+ * Сообщения хранятся по перепискам с последовательными номерами: история переписки
+ * читается диапазоном индекса, а список входящих строится по времени последнего сообщения.
+ */
+@Service
+@RequiredArgsConstructor
+public class MessageService {
+    private final MessageRepository messageRepository;
+    private final ConversationRepository conversationRepository;
+    private final UserRepository userRepository;
+
+    /**
+     * Отправляет сообщение: добавляет его в конец переписки, обновляет последнее сообщение
+     * переписки и увеличивает счетчик непрочитанных сообщений получателя.
+     *
+     * @param senderId   идентификатор отправителя
+     * @param receiverId идентификатор получателя
+     * @param content    текст сообщения
+     * @return сохраненное сообщение
+     * @throws IllegalArgumentException если пользователи не найдены или отправитель совпадает с получателем
+     */
+    @Transactional
+    public Message sendMessage(Long senderId, Long receiverId, String content) {
+        if (senderId.equals(receiverId)) {
+            throw new IllegalArgumentException("Нельзя отправить сообщение самому себе");
+        }
+        User sender = userRepository.findById(senderId)
+                .orElseThrow(() -> new IllegalArgumentException("Отправитель не найден"));
+        User receiver = userRepository.findById(receiverId)
+                .orElseThrow(() -> new IllegalArgumentException("Получатель не найден"));
+
+        ConversationRepository.MessageSlot slot = conversationRepository.reserveMessageSlot(
+                Math.min(senderId, receiverId), Math.max(senderId, receiverId));
+        Long conversationId = Long.valueOf(slot.getConversationId());
+        Message message = messageRepository.saveAndFlush(Message.builder()
+                .sender(sender)
+                .receiver(receiver)
+                .content(content)
+                .conversation(conversationRepository.getReferenceById(conversationId))
+                .seq(slot.getSeq())
+                .build());
+        conversationRepository.updateLastMessage(conversationId, message, message.getCreatedAt());
+        userRepository.addUnreadMessages(receiverId, 1);
+        return message;
+    }
+
+    /**
+     * Возвращает число непрочитанных сообщений пользователя из счетчика.
+     *
+     * @param userId идентификатор пользователя
+     * @return количество непрочитанных сообщений
+     */
+    @Transactional(readOnly = true)
+    public long countUnreadMessages(Long userId) {
+        return userRepository.findUnreadMessagesCount(userId).orElse(0);
+    }
+
+    /**
+     * Отмечает прочитанными все сообщения отправителя получателю.
+     *
+     * @param receiverId идентификатор получателя
+     * @param senderId   идентификатор отправителя
+     * @return количество отмеченных сообщений
+     */
+    @Transactional
+    public int markMessagesAsRead(Long receiverId, Long senderId) {
+        return messageRepository.markMessagesAsRead(receiverId, senderId);
+    }
+
+    /**
+     * Отмечает прочитанными сообщения с указанными идентификаторами.
+     *
+     * @param messageIds идентификаторы сообщений
+     */
+    @Transactional
+    public void markMessagesAsRead(List<Long> messageIds) {
+        messageRepository.markMessagesAsRead(messageIds);
+    }
+
+    /**
+     * Возвращает порцию переписки двух пользователей, начиная с новых сообщений.
+     *
+     * @param userId    идентификатор пользователя
+     * @param partnerId идентификатор собеседника
+     * @param beforeSeq номер сообщения, с которого продолжить, или {@code null} для первой порции
+     * @param limit     размер порции
+     * @return сообщения по убыванию номера
+     */
+    @Transactional(readOnly = true)
+    public List<Message> findConversation(Long userId, Long partnerId, Long beforeSeq, int limit) {
+        return conversationRepository.findByUsers(Math.min(userId, partnerId), Math.max(userId, partnerId))
+                .map(conversation -> messageRepository.findConversationHistory(
+                        Long.valueOf(conversation.getId()),
+                        beforeSeq != null ? beforeSeq : conversation.getLastSeq() + 1,
+                        PageRequest.of(0, limit)))
+                .orElse(List.of());
+    }
+
+    /**
+     * Возвращает переписки пользователя от последней активности.
+     * Переписки, где пользователь меньший и больший участник, читаются
+     * двумя индексными запросами и сливаются.
+     *
+     * @param userId идентификатор пользователя
+     * @param limit  количество переписок
+     * @return список входящих
+     */
+    @Transactional(readOnly = true)
+    public List<InboxEntry> findInbox(Long userId, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        Integer id = Math.toIntExact(userId);
+        return Stream.concat(
+                        conversationRepository.findInboxAsUserLow(userId, page).stream(),
+                        conversationRepository.findInboxAsUserHigh(userId, page).stream())
+                .map(conversation -> InboxEntry.of(conversation, id))
+                .sorted(InboxEntry.MOST_RECENT_FIRST)
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Возвращает непрочитанные сообщения пользователя.
+     *
+     * @param userId идентификатор пользователя
+     * @return список непрочитанных сообщений
+     */
+    @Transactional(readOnly = true)
+    public List<Message> findAllUnreadMessages(Long userId) {
+        return messageRepository.findAllUnreadMessages(userId);
+    }
+}
@@ -1,37 +1,63 @@
 package jobforj.social.service;
 
+import jobforj.social.cache.RecentPostCache;
+import jobforj.social.dto.CursorPage;
+import jobforj.social.dto.FeedItem;
+import jobforj.social.dto.PostCursor;
+import jobforj.social.dto.PostSummary;
+import jobforj.social.dto.PostWithImages;
+import jobforj.social.dto.SearchCursor;
+import jobforj.social.model.Image;
 import jobforj.social.model.Post;
 import jobforj.social.model.User;
 import jobforj.social.repository.PostRepository;
 import jobforj.social.repository.ImageRepository;
+import jobforj.social.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Сервис для управления постами.
  * Предоставляет методы для создания, обновления, удаления и получения постов.
+ * Создание и удаление активных постов меняют счетчик постов автора в той же транзакции.
  */
 @Service
 @RequiredArgsConstructor
 public class PostService {
     private final PostRepository postRepository;
     private final ImageRepository imageRepository;
+    private final UserRepository userRepository;
+    private final FeedService feedService;
+    private final RecentPostCache recentPostCache;
 
     /**
-     * Создает новый пост.
+     * Создает новый пост и раскладывает его по лентам подписчиков автора.
      *
      * @param post пост для создания
      * @return созданный пост
      */
     @Transactional
     public Post createPost(Post post) {
-        return postRepository.save(post);
+        Post savedPost = postRepository.saveAndFlush(post);
+        userRepository.addPosts(Long.valueOf(savedPost.getUser().getId()), 1);
+        feedService.fanOut(savedPost);
+        recentPostCache.onPostCreated(savedPost.getUser().getId(), savedPost.getId(), savedPost.getCreatedAt());
+        return savedPost;
     }
 
     /**
@@ -67,17 +93,37 @@ public class PostService {
      */
     @Transactional
     public int deletePost(Long id) {
-        return postRepository.deletePost(id);
+        Optional<Integer> activeAuthorId = postRepository.lockActiveAuthorIdById(id);
+        int deleted = postRepository.deletePost(id);
+        if (deleted > 0) {
+            activeAuthorId.ifPresent(author -> {
+                userRepository.addPosts(Long.valueOf(author), -1);
+                recentPostCache.onPostRemoved(author, id.intValue());
+            });
+        }
+        return deleted;
     }
 
     /**
      * Мягко удаляет пост (устанавливает флаг isDeleted = true).
+     * Счетчик постов автора уменьшается, только если флаг изменил этот вызов.
      *
      * @param postId идентификатор поста
+     * @return количество удаленных записей (0 или 1)
      */
     @Transactional
-    public void softDelete(Long postId) {
-        postRepository.softDelete(postId);
+    public int softDelete(Long postId) {
+        Optional<Integer> activeAuthorId = postRepository.findActiveAuthorIdById(postId);
+        if (activeAuthorId.isEmpty()) {
+            return 0;
+        }
+        int deleted = postRepository.softDelete(postId);
+        if (deleted > 0) {
+            Integer author = activeAuthorId.get();
+            userRepository.addPosts(Long.valueOf(author), -1);
+            recentPostCache.onPostRemoved(author, postId.intValue());
+        }
+        return deleted;
     }
 
     /**
@@ -88,6 +134,8 @@ public class PostService {
     @Transactional
     public void softDeleteAllByUserId(Long userId) {
         postRepository.softDeleteAllByUserId(userId);
+        userRepository.resetPosts(userId);
+        recentPostCache.evictAuthor(userId.intValue());
     }
 
     /**
@@ -124,6 +172,21 @@ public class PostService {
         return postRepository.findAllByOrderByCreatedAtDesc(pageable);
     }
 
+    /**
+     * Возвращает страницу всех постов с keyset-пагинацией, без подсчета общего количества.
+     *
+     * @param cursor курсор предыдущей страницы, null для первой страницы
+     * @param limit  размер страницы
+     * @return страница с постами и курсором следующей страницы
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Post> findAllByOrderByCreatedAtDesc(String cursor, int limit) {
+        PostCursor position = PostCursor.decode(cursor);
+        List<Post> rows = postRepository.findAllBeforeCursor(
+                position.createdAt(), position.idAsLong(), CursorPage.fetchRequest(limit));
+        return toCursorPage(rows, limit);
+    }
+
     /**
      * Возвращает постраничный список постов пользователя.
      *
@@ -138,6 +201,8 @@ public class PostService {
 
     /**
      * Возвращает постраничный список постов пользователя по его идентификатору.
+     * Первые страницы, помещающиеся в {@link RecentPostCache}, собираются по ключам из кэша
+     * без сортировки в базе, а общее число постов читается из счетчика users.posts_count.
      *
      * @param userId   идентификатор пользователя
      * @param pageable параметры пагинации
@@ -145,7 +210,20 @@ public class PostService {
      */
     @Transactional(readOnly = true)
     public Page<Post> findByUserIdOrderByCreatedAtDesc(Long userId, Pageable pageable) {
-        return postRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
+        Sort sort = pageable.getSort();
+        if (sort.isSorted() && !sort.equals(Sort.by(Sort.Direction.DESC, "createdAt"))) {
+            return postRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
+        }
+        int window = (int) pageable.getOffset() + pageable.getPageSize();
+        Optional<List<FeedItem>> cached = recentPostCache.findBefore(
+                userId.intValue(), PostCursor.decode(null), window);
+        if (cached.isEmpty()) {
+            return postRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
+        }
+        List<FeedItem> items = cached.get();
+        List<FeedItem> pageItems = items.subList(Math.min((int) pageable.getOffset(), items.size()), items.size());
+        return PageableExecutionUtils.getPage(postRepository.findActiveInOrder(pageItems), pageable,
+                () -> userRepository.findPostsCount(userId).orElse(0));
     }
 
     /**
@@ -160,6 +238,22 @@ public class PostService {
         return postRepository.findPostsByUserIds(userIds, pageable);
     }
 
+    /**
+     * Находит посты по списку идентификаторов пользователей с keyset-пагинацией.
+     *
+     * @param userIds список идентификаторов пользователей
+     * @param cursor  курсор предыдущей страницы, null для первой страницы
+     * @param limit   размер страницы
+     * @return страница с постами и курсором следующей страницы
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Post> findPostsByUserIds(List<Long> userIds, String cursor, int limit) {
+        PostCursor position = PostCursor.decode(cursor);
+        List<Post> rows = postRepository.findPostsByUserIdsBeforeCursor(userIds,
+                position.createdAt(), position.idAsLong(), CursorPage.fetchRequest(limit));
+        return toCursorPage(rows, limit);
+    }
+
     /**
      * Находит посты по списку пользователей.
      *
@@ -173,7 +267,8 @@ public class PostService {
     }
 
     /**
-     * Возвращает ленту постов для пользователя.
+     * Возвращает ленту постов для пользователя из материализованной ленты.
+     * Для глубокой прокрутки следует использовать {@link #getFeedForUser(Long, String, int)}.
      *
      * @param userId   идентификатор пользователя
      * @param pageable параметры пагинации
@@ -181,7 +276,20 @@ public class PostService {
      */
     @Transactional(readOnly = true)
     public Page<Post> getFeedForUser(Long userId, Pageable pageable) {
-        return postRepository.getFeedForUser(userId, pageable);
+        return feedService.getFeed(userId, pageable);
+    }
+
+    /**
+     * Возвращает ленту постов для пользователя с keyset-пагинацией, без подсчета общего количества.
+     *
+     * @param userId идентификатор пользователя
+     * @param cursor курсор предыдущей страницы, null для первой страницы
+     * @param limit  размер страницы
+     * @return страница с постами из ленты и курсором следующей страницы
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Post> getFeedForUser(Long userId, String cursor, int limit) {
+        return feedService.getFeed(userId, cursor, limit);
     }
 
     /**
@@ -193,18 +301,155 @@ public class PostService {
      */
     @Transactional(readOnly = true)
     public Page<Post> getFeedForUser(User user, Pageable pageable) {
-        return postRepository.getFeedForUser(user, pageable);
+        return feedService.getFeed(Long.valueOf(user.getId()), pageable);
+    }
+
+    /**
+     * Возвращает страницу ленты вместе с изображениями и авторами постов.
+     * Изображения всех постов страницы загружаются одним запросом, авторы другим,
+     * поэтому число запросов не зависит от размера страницы.
+     *
+     * @param userId   идентификатор пользователя
+     * @param pageable параметры пагинации
+     * @return страница постов с изображениями
+     */
+    @Transactional(readOnly = true)
+    public Page<PostWithImages> getFeedWithImages(Long userId, Pageable pageable) {
+        Page<Post> page = feedService.getFeed(userId, pageable);
+        return new PageImpl<>(withImages(page.getContent()), pageable, page.getTotalElements());
+    }
+
+    /**
+     * Возвращает ленту с keyset-пагинацией вместе с изображениями и авторами постов.
+     *
+     * @param userId идентификатор пользователя
+     * @param cursor курсор предыдущей страницы, null для первой страницы
+     * @param limit  размер страницы
+     * @return страница постов с изображениями и курсором следующей страницы
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<PostWithImages> getFeedWithImages(Long userId, String cursor, int limit) {
+        CursorPage<Post> page = feedService.getFeed(userId, cursor, limit);
+        return new CursorPage<>(withImages(page.content()), page.nextCursor(), page.hasNext());
+    }
+
+    /**
+     * Возвращает страницу всех постов вместе с изображениями и авторами.
+     *
+     * @param pageable параметры пагинации
+     * @return страница постов с изображениями
+     */
+    @Transactional(readOnly = true)
+    public Page<PostWithImages> findAllWithImages(Pageable pageable) {
+        Page<Post> page = postRepository.findAllByOrderByCreatedAtDesc(pageable);
+        return new PageImpl<>(withImages(page.getContent()), pageable, page.getTotalElements());
+    }
+
+    /**
+     * Возвращает страницу всех постов с keyset-пагинацией вместе с изображениями и авторами.
+     *
+     * @param cursor курсор предыдущей страницы, null для первой страницы
+     * @param limit  размер страницы
+     * @return страница постов с изображениями и курсором следующей страницы
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<PostWithImages> findAllWithImages(String cursor, int limit) {
+        CursorPage<Post> page = findAllByOrderByCreatedAtDesc(cursor, limit);
+        return new CursorPage<>(withImages(page.content()), page.nextCursor(), page.hasNext());
+    }
+
+    /**
+     * Возвращает ленту пользователя в виде проекций для списков: без сущностей,
+     * ленивых связей и снимков для проверки изменений.
+     *
+     * @param userId идентификатор пользователя
+     * @param cursor курсор предыдущей страницы, null для первой страницы
+     * @param limit  размер страницы
+     * @return страница проекций постов и курсор следующей страницы
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<PostSummary> getFeedSummaries(Long userId, String cursor, int limit) {
+        return feedService.getFeedSummaries(userId, cursor, limit);
+    }
+
+    /**
+     * Возвращает все посты в виде проекций для списков с keyset-пагинацией.
+     *
+     * @param cursor курсор предыдущей страницы, null для первой страницы
+     * @param limit  размер страницы
+     * @return страница проекций постов и курсор следующей страницы
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<PostSummary> findAllSummaries(String cursor, int limit) {
+        PostCursor position = PostCursor.decode(cursor);
+        List<PostSummary> rows = postRepository.findSummariesBeforeCursor(position.createdAt(),
+                position.idAsLong(), PostSummary.PREVIEW_LENGTH, CursorPage.fetchRequest(limit));
+        return CursorPage.of(rows, limit, summary -> summary.toCursor().encode());
     }
 
     /**
-     * Подсчитывает количество активных постов пользователя.
+     * Возвращает посты пользователя в виде проекций для списков с keyset-пагинацией.
+     *
+     * @param userId идентификатор пользователя
+     * @param cursor курсор предыдущей страницы, null для первой страницы
+     * @param limit  размер страницы
+     * @return страница проекций постов и курсор следующей страницы
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<PostSummary> findSummariesByUserId(Long userId, String cursor, int limit) {
+        PostCursor position = PostCursor.decode(cursor);
+        List<PostSummary> rows = postRepository.findSummariesByUserIdBeforeCursor(userId, position.createdAt(),
+                position.idAsLong(), PostSummary.PREVIEW_LENGTH, CursorPage.fetchRequest(limit));
+        return CursorPage.of(rows, limit, summary -> summary.toCursor().encode());
+    }
+
+    /**
+     * Ищет посты по заголовку и тексту. Результаты упорядочены по релевантности,
+     * следующая страница запрашивается по курсору без подсчета общего количества.
+     *
+     * @param query  поисковый запрос: слова, фразы в кавычках, {@code or} и {@code -слово}
+     * @param cursor курсор предыдущей страницы, null для первой страницы
+     * @param limit  размер страницы
+     * @return страница проекций найденных постов и курсор следующей страницы
+     * @throws IllegalArgumentException если запрос пустой
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<PostSummary> searchPosts(String query, String cursor, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Поисковый запрос не может быть пустым");
+        }
+        SearchCursor position = SearchCursor.decode(cursor);
+        int fetch = CursorPage.fetchRequest(limit).getPageSize();
+        List<PostRepository.SearchHit> hits = postRepository.searchBeforeCursor(
+                query, position.rank(), position.idAsLong(), fetch);
+        boolean hasNext = hits.size() > limit;
+        List<PostRepository.SearchHit> pageHits = hasNext ? hits.subList(0, limit) : hits;
+        if (pageHits.isEmpty()) {
+            return new CursorPage<>(List.of(), null, false);
+        }
+        Map<Integer, PostSummary> summaries = postRepository.findSummariesByIds(pageHits.stream()
+                        .map(hit -> Long.valueOf(hit.getId()))
+                        .toList(), PostSummary.PREVIEW_LENGTH)
+                .stream()
+                .collect(Collectors.toMap(PostSummary::id, Function.identity()));
+        List<PostSummary> content = pageHits.stream()
+                .map(hit -> summaries.get(hit.getId()))
+                .filter(Objects::nonNull)
+                .toList();
+        PostRepository.SearchHit last = pageHits.get(pageHits.size() - 1);
+        String nextCursor = hasNext ? new SearchCursor(last.getRank(), last.getId()).encode() : null;
+        return new CursorPage<>(content, nextCursor, hasNext);
+    }
+
+    /**
+     * Возвращает количество активных постов пользователя из счетчика в users, без агрегата по постам.
      *
      * @param userId идентификатор пользователя
      * @return количество активных постов
      */
     @Transactional(readOnly = true)
     public long countActivePostsByUserId(Long userId) {
-        return postRepository.countActivePostsByUserId(userId);
+        return userRepository.findPostsCount(userId).orElse(0);
     }
 
     /**
@@ -221,7 +466,26 @@ public class PostService {
     }
 
     /**
-     * Создает новый пост с указанным заголовком, текстом и изображениями.
+     * Находит посты в указанном диапазоне дат с keyset-пагинацией.
+     *
+     * @param startDate начальная дата
+     * @param endDate   конечная дата
+     * @param cursor    курсор предыдущей страницы, null для первой страницы
+     * @param limit     размер страницы
+     * @return страница с постами и курсором следующей страницы
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Post> findPostsInDateRange(LocalDateTime startDate, LocalDateTime endDate,
+                                                 String cursor, int limit) {
+        PostCursor position = PostCursor.decode(cursor);
+        List<Post> rows = postRepository.findPostsInDateRangeBeforeCursor(startDate, endDate,
+                position.createdAt(), position.idAsLong(), CursorPage.fetchRequest(limit));
+        return toCursorPage(rows, limit);
+    }
+
+    /**
+     * Создает новый пост с указанным заголовком, текстом и изображениями
+     * и раскладывает его по лентам подписчиков автора.
      *
      * @param user         пользователь, создающий пост
      * @param title        заголовок поста
@@ -239,7 +503,10 @@ public class PostService {
         post.setUpdatedAt(LocalDateTime.now());
         post.setIsDeleted(false);
 
-        Post savedPost = postRepository.save(post);
+        Post savedPost = postRepository.saveAndFlush(post);
+        userRepository.addPosts(Long.valueOf(user.getId()), 1);
+        feedService.fanOut(savedPost);
+        recentPostCache.onPostCreated(user.getId(), savedPost.getId(), savedPost.getCreatedAt());
 
         if (imageIds != null && !imageIds.isEmpty()) {
             imageRepository.attachImagesToPost(imageIds, Long.valueOf(savedPost.getId()));
@@ -267,15 +534,21 @@ public class PostService {
      *
      * @param userId идентификатор пользователя
      * @param postId идентификатор поста
-     * @return true если пост был удален, false если пост не найден или пользователь не автор
+     * @return true если пост был удален, false если пост не найден, уже удален или пользователь не автор
      */
     @Transactional
     public boolean softDeleteUserPost(Long userId, Long postId) {
-        return postRepository.softDeleteUserPost(userId, postId) > 0;
+        boolean deleted = postRepository.softDeleteUserPost(userId, postId) > 0;
+        if (deleted) {
+            userRepository.addPosts(userId, -1);
+            recentPostCache.onPostRemoved(userId.intValue(), postId.intValue());
+        }
+        return deleted;
     }
 
     /**
      * Полностью удаляет пост, если пользователь является его автором.
+     * Строка поста блокируется только после проверки авторства, чужой пост не блокируется.
      *
      * @param userId идентификатор пользователя
      * @param postId идентификатор поста
@@ -283,6 +556,45 @@ public class PostService {
      */
     @Transactional
     public boolean deleteUserPost(Long userId, Long postId) {
-        return postRepository.deleteUserPost(userId, postId) > 0;
+        Optional<Boolean> softDeleted = postRepository.lockDeletedFlagOfUserPost(userId, postId);
+        if (softDeleted.isEmpty()) {
+            return false;
+        }
+        boolean active = !softDeleted.get();
+        boolean deleted = postRepository.deleteUserPost(userId, postId) > 0;
+        if (deleted) {
+            if (active) {
+                userRepository.addPosts(userId, -1);
+            }
+            recentPostCache.onPostRemoved(userId.intValue(), postId.intValue());
+        }
+        return deleted;
+    }
+
+    /**
+     * Дополняет посты изображениями одним запросом и загружает авторов в контекст персистентности,
+     * чтобы ленивые ссылки {@link Post#getUser()} инициализировались без отдельных запросов.
+     */
+    private List<PostWithImages> withImages(List<Post> posts) {
+        if (posts.isEmpty()) {
+            return List.of();
+        }
+        userRepository.findAllById(posts.stream()
+                .map(post -> Long.valueOf(post.getUser().getId()))
+                .distinct()
+                .toList());
+        Map<Integer, List<Image>> images = imageRepository.findAllByPostIds(posts.stream()
+                        .map(post -> Long.valueOf(post.getId()))
+                        .toList())
+                .stream()
+                .sorted(Comparator.comparing(Image::getId))
+                .collect(Collectors.groupingBy(image -> image.getPost().getId()));
+        return posts.stream()
+                .map(post -> new PostWithImages(post, images.getOrDefault(post.getId(), List.of())))
+                .toList();
+    }
+
+    private CursorPage<Post> toCursorPage(List<Post> rows, int limit) {
+        return CursorPage.of(rows, limit, post -> PostCursor.of(post).encode());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,227 @@
+package jobforj.social.service;
+
+import jakarta.annotation.PreDestroy;
+import jobforj.social.event.SubscriptionRequestedEvent;
+import jobforj.social.model.SubscriptionOutboxEntry;
+import jobforj.social.repository.SubscriptionOutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Фоновая обработка очереди subscription_outbox.
+ * <p>
+ * Заявки в друзья записывают подписку в очередь в своей транзакции, а создание подписки,
+ * счетчики, дополнение ленты и обновление графа подписок выполняются здесь через
+ * {@link SubscriptionService#follow(Long, Long)}. Каждая запись обрабатывается
+ * в отдельной транзакции и удаляется в ней же, поэтому побочные эффекты применяются
+ * не более одного раза, а при сбое запись остается в очереди.
+ * <p>
+ * Обработчики запускаются после фиксации заявки и по расписанию, чтобы подобрать
+ * записи, оставшиеся после перезапуска. Неудачные попытки откладываются
+ * с удвоением задержки; после {@code subscription.outbox.max-attempts}
+ * запись больше не обрабатывается и остается в таблице для разбора
+ * на время {@code subscription.outbox.dead-retention}, после чего удаляется {@link #purgeExhausted()}.
+ */
+@Slf4j
+@Component
+@ManagedResource(objectName = "jobforj.social:type=Outbox,name=subscriptions",
+        description = "Очередь отложенных подписок")
+public class SubscriptionOutboxDispatcher {
+    private static final int MAX_ERROR_LENGTH = 500;
+    private static final int MAX_BACKOFF_SHIFT = 10;
+
+    private final SubscriptionOutboxRepository outboxRepository;
+    private final SubscriptionService subscriptionService;
+    private final TransactionTemplate transactionTemplate;
+    private final int workers;
+    private final int maxAttempts;
+    private final Duration retryDelay;
+    private final Duration deadRetention;
+    private final ExecutorService executor;
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile boolean running = true;
+
+    public SubscriptionOutboxDispatcher(SubscriptionOutboxRepository outboxRepository,
+                                        SubscriptionService subscriptionService,
+                                        TransactionTemplate transactionTemplate,
+                                        @Value("${subscription.outbox.workers:2}") int workers,
+                                        @Value("${subscription.outbox.max-attempts:10}") int maxAttempts,
+                                        @Value("${subscription.outbox.retry-delay:PT1S}") Duration retryDelay,
+                                        @Value("${subscription.outbox.dead-retention:P7D}") Duration deadRetention) {
+        this.outboxRepository = outboxRepository;
+        this.subscriptionService = subscriptionService;
+        this.transactionTemplate = transactionTemplate;
+        this.workers = workers;
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+        this.deadRetention = deadRetention;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("subscription-outbox-");
+        threadFactory.setDaemon(true);
+        this.executor = Executors.newFixedThreadPool(workers, threadFactory);
+    }
+
+    /**
+     * Запускает обработчик сразу после фиксации транзакции, поставившей подписку в очередь.
+     *
+     * @param event событие о постановке подписки в очередь
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSubscriptionRequested(SubscriptionRequestedEvent event) {
+        wakeUp();
+    }
+
+    /**
+     * Периодически запускает обработчик для записей, отложенных после сбоя
+     * или оставшихся после перезапуска приложения.
+     */
+    @Scheduled(fixedDelayString = "${subscription.outbox.poll-interval:PT1S}")
+    public void poll() {
+        wakeUp();
+    }
+
+    /**
+     * Удаляет записи, исчерпавшие попытки, по истечении срока хранения.
+     *
+     * @return количество удаленных записей
+     */
+    @Scheduled(fixedDelayString = "${subscription.outbox.purge-interval:PT1H}")
+    public int purgeExhausted() {
+        int deleted = outboxRepository.deleteExhausted(maxAttempts, LocalDateTime.now().minus(deadRetention));
+        if (deleted > 0) {
+            log.warn("Из очереди подписок удалено {} записей, исчерпавших попытки", deleted);
+        }
+        return deleted;
+    }
+
+    /**
+     * Запускает еще один обработчик, если заняты не все потоки.
+     */
+    public void wakeUp() {
+        int active;
+        do {
+            active = activeWorkers.get();
+            if (!running || active >= workers) {
+                return;
+            }
+        } while (!activeWorkers.compareAndSet(active, active + 1));
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            activeWorkers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Обрабатывает записи в текущем потоке, пока в очереди есть готовые к обработке.
+     *
+     * @return количество обработанных записей
+     */
+    public long dispatchPending() {
+        long count = 0;
+        while (running && dispatchNext()) {
+            count++;
+        }
+        return count;
+    }
+
+    @ManagedAttribute(description = "Обработанные записи")
+    public long getDispatched() {
+        return dispatched.sum();
+    }
+
+    @ManagedAttribute(description = "Неудачные попытки обработки")
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @ManagedAttribute(description = "Записи, ожидающие обработки")
+    public long getPending() {
+        return outboxRepository.countPending(maxAttempts);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Обработчики очереди подписок не завершились за 10 с");
+        }
+    }
+
+    private void drain() {
+        try {
+            dispatchPending();
+        } catch (RuntimeException e) {
+            log.error("Ошибка чтения очереди подписок", e);
+        } finally {
+            activeWorkers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Обрабатывает одну запись очереди.
+     *
+     * @return false если готовых к обработке записей нет
+     */
+    private boolean dispatchNext() {
+        AtomicReference<SubscriptionOutboxEntry> claimed = new AtomicReference<>();
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    outboxRepository.lockNext(LocalDateTime.now(), maxAttempts).ifPresent(entry -> {
+                        claimed.set(entry);
+                        subscriptionService.follow(Long.valueOf(entry.getFollowerId()),
+                                Long.valueOf(entry.getFollowingId()));
+                        outboxRepository.deleteEntry(entry.getId());
+                    }));
+        } catch (RuntimeException e) {
+            SubscriptionOutboxEntry entry = claimed.get();
+            if (entry == null) {
+                throw e;
+            }
+            recordFailure(entry, e);
+            return true;
+        }
+        if (claimed.get() == null) {
+            return false;
+        }
+        dispatched.increment();
+        return true;
+    }
+
+    private void recordFailure(SubscriptionOutboxEntry entry, RuntimeException e) {
+        failures.increment();
+        int attempt = entry.getAttempts() + 1;
+        if (attempt >= maxAttempts) {
+            log.error("Подписка {} -> {} из очереди не создана после {} попыток",
+                    entry.getFollowerId(), entry.getFollowingId(), attempt, e);
+        } else {
+            log.warn("Подписка {} -> {} из очереди не создана, попытка {}: {}",
+                    entry.getFollowerId(), entry.getFollowingId(), attempt, e.getMessage());
+        }
+        String error = String.valueOf(e.getMessage());
+        if (error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+        Duration delay = retryDelay.multipliedBy(1L << Math.min(entry.getAttempts(), MAX_BACKOFF_SHIFT));
+        outboxRepository.recordFailure(entry.getId(), error, LocalDateTime.now().plus(delay));
+    }
+}
@@ -1,77 +1,226 @@
 package jobforj.social.service;
 
+import jobforj.social.cache.UserCache;
+import jobforj.social.dto.FollowOutcome;
+import jobforj.social.dto.FriendSuggestion;
+import jobforj.social.event.SubscriptionChangedEvent;
+import jobforj.social.event.SubscriptionRequestedEvent;
+import jobforj.social.index.SocialGraphIndex;
 import jobforj.social.model.Friendship;
 import jobforj.social.model.Subscription;
 import jobforj.social.model.User;
 import jobforj.social.repository.FriendshipRepository;
+import jobforj.social.repository.SubscriptionOutboxRepository;
 import jobforj.social.repository.SubscriptionRepository;
 import jobforj.social.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Сервис для управления подписками пользователей.
  * Предоставляет методы для подписки, отписки и получения информации о подписчиках.
+ * Проверки и счетчики подписок читаются из {@link SocialGraphIndex}, если граф уже построен,
+ * иначе счетчики берутся из {@link FollowerCounter}, который меняет их вместе с подписками.
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class SubscriptionService {
+    public static final int MAX_BULK_TARGETS = 100;
+
     private final SubscriptionRepository subscriptionRepository;
+    private final SubscriptionOutboxRepository outboxRepository;
     private final UserRepository userRepository;
+    private final UserCache userCache;
+    private final FollowerCounter followerCounter;
+    private final CelebrityRegistry celebrityRegistry;
     private final FriendshipRepository friendshipRepository;
+    private final FeedService feedService;
+    private final SocialGraphIndex socialGraphIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${friendship.verify.chunk-size:1000}")
+    private int verifyChunkSize;
+
+    @Value("${feed.backfill-limit:100}")
+    private int backfillLimit;
 
     /**
      * Создает подписку одного пользователя на другого.
+     * Подписка вставляется через {@link #follow(Long, Long)} одним запросом,
+     * созданная строка читается после вставки.
      *
      * @param followerId идентификатор подписчика
      * @param followingId идентификатор пользователя, на которого подписываются
      * @return созданная подписка
-     * @throws IllegalArgumentException если пользователи не найдены или попытка подписаться на самого себя
+     * @throws IllegalArgumentException если пользователи не найдены, подписка уже существует
+     *                                  или попытка подписаться на самого себя
      */
     @Transactional
     public Subscription subscribe(Long followerId, Long followingId) {
-        if (followerId.equals(followingId)) {
-            throw new IllegalArgumentException("Нельзя подписаться на самого себя");
+        if (!follow(followerId, followingId)) {
+            throw new IllegalArgumentException("Подписка уже существует");
         }
+        return subscriptionRepository.findByUserIds(followerId, followingId)
+                .orElseThrow(() -> new IllegalStateException("Созданная подписка не найдена"));
+    }
 
-        User follower = userRepository.findById(followerId)
-                .orElseThrow(() -> new IllegalArgumentException("Подписчик не найден"));
-        User following = userRepository.findById(followingId)
-                .orElseThrow(() -> new IllegalArgumentException("Пользователь для подписки не найден"));
-
-        if (subscriptionRepository.isFollowing(followerId, followingId)) {
-            throw new IllegalArgumentException("Подписка уже существует");
+    /**
+     * Удаляет подписку, в том числе еще не созданную подписку из очереди,
+     * одним запросом DELETE через {@link #unfollow(Long, Long)}.
+     *
+     * @param followerId идентификатор подписчика
+     * @param followingId идентификатор пользователя, на которого были подписаны
+     * @throws IllegalArgumentException если подписка не найдена ни в таблице, ни в очереди
+     */
+    @Transactional
+    public void unsubscribe(Long followerId, Long followingId) {
+        if (!unfollow(followerId, followingId)) {
+            throw new IllegalArgumentException("Подписка не найдена");
         }
+    }
 
-        Subscription subscription = new Subscription();
-        subscription.setFollower(follower);
-        subscription.setFollowing(following);
-        subscription.setCreatedAt(LocalDateTime.now());
+    /**
+     * Подписывает пользователя одним запросом INSERT ... ON CONFLICT DO NOTHING.
+     * Пользователи и подписка заранее не читаются:
+     * существование пользователей проверяют внешние ключи, а повторное нажатие
+     * не нарушает уникальность пары. Лента и граф подписок обновляются только для новой подписки.
+     *
+     * @param followerId  идентификатор подписчика
+     * @param followingId идентификатор пользователя, на которого подписываются
+     * @return true если подписка создана, false если она уже существовала
+     * @throws IllegalArgumentException если пользователи не найдены или попытка подписаться на самого себя
+     */
+    @Transactional
+    public boolean follow(Long followerId, Long followingId) {
+        if (followerId.equals(followingId)) {
+            throw new IllegalArgumentException("Нельзя подписаться на самого себя");
+        }
+        int created;
+        try {
+            created = subscriptionRepository.insertIfAbsent(followerId, followingId, LocalDateTime.now());
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalArgumentException("Подписчик или пользователь для подписки не найден", e);
+        }
+        if (created == 0) {
+            return false;
+        }
+        followerCounter.addSubscription(followerId, followingId, 1);
+        feedService.backfill(followerId, followingId);
+        eventPublisher.publishEvent(new SubscriptionChangedEvent(followerId.intValue(), followingId.intValue(), true));
+        return true;
+    }
 
-        return subscriptionRepository.save(subscription);
+    /**
+     * Отписывает пользователя одним запросом DELETE без предварительного чтения подписки.
+     * Подписка, которая еще ждет в очереди, удаляется из нее, чтобы
+     * {@link SubscriptionOutboxDispatcher} не создал ее после отписки.
+     *
+     * @param followerId  идентификатор подписчика
+     * @param followingId идентификатор пользователя, на которого были подписаны
+     * @return true если подписка удалена из таблицы или из очереди, false если ее не было
+     */
+    @Transactional
+    public boolean unfollow(Long followerId, Long followingId) {
+        boolean cancelled = outboxRepository.deleteQueued(followerId, followingId) > 0;
+        if (subscriptionRepository.deleteByUserIds(followerId, followingId) == 0) {
+            return cancelled;
+        }
+        followerCounter.addSubscription(followerId, followingId, -1);
+        feedService.evict(followerId, followingId);
+        eventPublisher.publishEvent(new SubscriptionChangedEvent(followerId.intValue(), followingId.intValue(), false));
+        return true;
     }
 
     /**
-     * Удаляет подписку.
+     * Подписывает пользователя сразу на нескольких пользователей, например при онбординге.
+     * Пользователи и существующие подписки проверяются одним запросом, подписки создаются
+     * одним многострочным INSERT, лента дополняется одним запросом.
+     * Подписка, созданная параллельно между проверкой и вставкой, считается существующей.
      *
      * @param followerId идентификатор подписчика
-     * @param followingId идентификатор пользователя, на которого были подписаны
-     * @throws IllegalArgumentException если подписка не найдена
+     * @param targetIds  идентификаторы пользователей, на которых подписываются
+     * @return результат для каждого различного идентификатора в порядке первого появления
+     * @throws IllegalArgumentException если подписчик не найден, список пользователей пуст,
+     *                                  содержит null или длиннее допустимого
      */
     @Transactional
-    public void unsubscribe(Long followerId, Long followingId) {
-        Subscription subscription = subscriptionRepository.findByUserIds(followerId, followingId)
-                .orElseThrow(() -> new IllegalArgumentException("Подписка не найдена"));
+    public List<FollowOutcome> followAll(Long followerId, List<Long> targetIds) {
+        List<Long> targets = distinctTargets(targetIds);
+        userCache.findById(followerId).orElseThrow(() -> new IllegalArgumentException("Подписчик не найден"));
+        List<Integer> candidates = targets.stream()
+                .filter(targetId -> !targetId.equals(followerId))
+                .map(Long::intValue)
+                .toList();
+        Map<Integer, Boolean> states = candidates.isEmpty() ? Map.of()
+                : subscriptionRepository.findTargetStates(followerId, candidates).stream()
+                .collect(Collectors.toMap(SubscriptionRepository.TargetState::getUserId,
+                        SubscriptionRepository.TargetState::getFollowing));
+        List<Integer> toCreate = candidates.stream()
+                .filter(targetId -> Boolean.FALSE.equals(states.get(targetId)))
+                .toList();
+        Set<Integer> created = toCreate.isEmpty() ? Set.of()
+                : Set.copyOf(subscriptionRepository.insertAllIfAbsent(followerId, toCreate, LocalDateTime.now()));
+        if (!created.isEmpty()) {
+            followerCounter.addSubscriptions(followerId, created, 1);
+            feedService.backfill(followerId, created);
+            for (Integer followingId : created) {
+                eventPublisher.publishEvent(new SubscriptionChangedEvent(followerId.intValue(), followingId, true));
+            }
+        }
+        return targets.stream()
+                .map(targetId -> new FollowOutcome(targetId, followStatus(followerId, targetId, states, created)))
+                .toList();
+    }
 
-        subscriptionRepository.delete(subscription);
+    /**
+     * Отписывает пользователя сразу от нескольких пользователей одним запросом DELETE.
+     * Подписки на этих пользователей, ждущие в очереди, удаляются из нее.
+     *
+     * @param followerId идентификатор подписчика
+     * @param targetIds  идентификаторы пользователей, от которых отписываются
+     * @return результат для каждого различного идентификатора в порядке первого появления
+     * @throws IllegalArgumentException если список пользователей пуст, содержит null или длиннее допустимого
+     */
+    @Transactional
+    public List<FollowOutcome> unfollowAll(Long followerId, List<Long> targetIds) {
+        List<Long> targets = distinctTargets(targetIds);
+        List<Integer> targetInts = targets.stream().map(Long::intValue).toList();
+        outboxRepository.deleteAllQueued(followerId, targetInts);
+        Set<Integer> removed = Set.copyOf(subscriptionRepository.deleteAllByUserIds(followerId, targetInts));
+        if (!removed.isEmpty()) {
+            followerCounter.addSubscriptions(followerId, removed, -1);
+            feedService.evict(followerId, removed);
+            for (Integer followingId : removed) {
+                eventPublisher.publishEvent(new SubscriptionChangedEvent(followerId.intValue(), followingId, false));
+            }
+        }
+        return targets.stream()
+                .map(targetId -> new FollowOutcome(targetId, removed.contains(targetId.intValue())
+                        ? FollowOutcome.Status.REMOVED
+                        : FollowOutcome.Status.NOT_FOLLOWING))
+                .toList();
     }
 
     /**
@@ -82,7 +231,12 @@ public class SubscriptionService {
      */
     @Transactional
     public void deleteSubscription(User follower, User following) {
-        subscriptionRepository.deleteSubscription(follower, following);
+        if (subscriptionRepository.deleteSubscription(follower, following) == 0) {
+            return;
+        }
+        followerCounter.addSubscription(Long.valueOf(follower.getId()), Long.valueOf(following.getId()), -1);
+        feedService.evict(Long.valueOf(follower.getId()), Long.valueOf(following.getId()));
+        eventPublisher.publishEvent(new SubscriptionChangedEvent(follower.getId(), following.getId(), false));
     }
 
     /**
@@ -94,6 +248,9 @@ public class SubscriptionService {
      */
     @Transactional(readOnly = true)
     public boolean isFollowing(Long followerId, Long followingId) {
+        if (socialGraphIndex.isReady()) {
+            return socialGraphIndex.isFollowing(followerId.intValue(), followingId.intValue());
+        }
         return subscriptionRepository.isFollowing(followerId, followingId);
     }
 
@@ -130,7 +287,12 @@ public class SubscriptionService {
      */
     @Transactional(readOnly = true)
     public Page<User> findFollowedUsers(Long followerId, Pageable pageable) {
-        return subscriptionRepository.findFollowedUsers(followerId, pageable);
+        if (!socialGraphIndex.isReady() || pageable.isUnpaged() || pageable.getSort().isSorted()) {
+            return subscriptionRepository.findFollowedUsers(followerId, pageable);
+        }
+        List<User> content = findUsersInOrder(socialGraphIndex.findFollowingIds(followerId.intValue(),
+                pageable.getOffset(), pageable.getPageSize()));
+        return new PageImpl<>(content, pageable, socialGraphIndex.countFollowing(followerId.intValue()));
     }
 
     /**
@@ -153,7 +315,10 @@ public class SubscriptionService {
      */
     @Transactional(readOnly = true)
     public long countFollowing(Long userId) {
-        return subscriptionRepository.countFollowing(userId);
+        if (socialGraphIndex.isReady()) {
+            return socialGraphIndex.countFollowing(userId.intValue());
+        }
+        return userRepository.findFollowingCount(userId).orElse(0);
     }
 
     /**
@@ -164,7 +329,10 @@ public class SubscriptionService {
      */
     @Transactional(readOnly = true)
     public long countFollowers(Long userId) {
-        return subscriptionRepository.countFollowers(userId);
+        if (socialGraphIndex.isReady()) {
+            return socialGraphIndex.countFollowers(userId.intValue());
+        }
+        return followerCounter.countFollowers(userId);
     }
 
     /**
@@ -194,6 +362,7 @@ public class SubscriptionService {
     /**
      * Удаляет пользователя из друзей.
      * При удалении из друзей пользователь отписывается от второго пользователя,
+     * в том числе отменяется подписка, еще ждущая в очереди,
      * но второй пользователь остается подписчиком (если он был подписан).
      *
      * @param userId идентификатор пользователя, который удаляет из друзей
@@ -205,17 +374,16 @@ public class SubscriptionService {
         if (userId.equals(friendId)) {
             throw new IllegalArgumentException("Нельзя удалить самого себя из друзей");
         }
-        userRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("Пользователь не найден"));
-        userRepository.findById(friendId)
-                .orElseThrow(() -> new IllegalArgumentException("Друг не найден"));
-        subscriptionRepository.findByUserIds(userId, friendId)
-                .ifPresent(subscriptionRepository::delete);
+        findUser(userId, "Пользователь не найден");
+        findUser(friendId, "Друг не найден");
+        unfollow(userId, friendId);
     }
 
     /**
      * Отправляет заявку в друзья другому пользователю.
-     * При отправке заявки пользователь автоматически подписывается на адресата.
+     * При отправке заявки пользователь автоматически подписывается на адресата:
+     * подписка ставится в очередь и создается {@link SubscriptionOutboxDispatcher}
+     * после фиксации заявки.
      *
      * @param requesterId идентификатор пользователя, отправляющего заявку
      * @param addresseeId идентификатор пользователя, которому отправляют заявку
@@ -228,10 +396,8 @@ public class SubscriptionService {
             throw new IllegalArgumentException("Нельзя отправить заявку в друзья самому себе");
         }
 
-        User requester = userRepository.findById(requesterId)
-                .orElseThrow(() -> new IllegalArgumentException("Отправитель не найден"));
-        User addressee = userRepository.findById(addresseeId)
-                .orElseThrow(() -> new IllegalArgumentException("Получатель не найден"));
+        User requester = findUser(requesterId, "Отправитель не найден");
+        User addressee = findUser(addresseeId, "Получатель не найден");
 
         if (friendshipRepository.findByRequesterAndAddressee(requester, addressee).isPresent()) {
             throw new IllegalArgumentException("Заявка уже существует");
@@ -248,21 +414,14 @@ public class SubscriptionService {
                 .build();
 
         Friendship savedFriendship = friendshipRepository.save(friendship);
-
-        if (!subscriptionRepository.isFollowing(requesterId, addresseeId)) {
-            Subscription subscription = new Subscription();
-            subscription.setFollower(requester);
-            subscription.setFollowing(addressee);
-            subscription.setCreatedAt(LocalDateTime.now());
-            subscriptionRepository.save(subscription);
-        }
-
+        enqueueSubscription(requesterId, addresseeId);
         return savedFriendship;
     }
 
     /**
      * Принимает заявку в друзья.
-     * После принятия оба пользователя становятся друзьями.
+     * После принятия оба пользователя становятся друзьями, а подписка получателя
+     * на отправителя ставится в очередь {@link SubscriptionOutboxDispatcher}.
      *
      * @param requesterId идентификатор пользователя, отправившего заявку
      * @param addresseeId идентификатор пользователя, принимающего заявку
@@ -285,17 +444,8 @@ public class SubscriptionService {
         friendship.setStatus(Friendship.FriendshipStatus.ACCEPTED);
         friendshipRepository.save(friendship);
 
-        User requester = friendship.getRequester();
-        User addressee = friendship.getAddressee();
-
         // Подписываем получателя на отправителя (если еще не подписан)
-        if (!subscriptionRepository.isFollowing(addresseeId, requesterId)) {
-            Subscription subscription = new Subscription();
-            subscription.setFollower(addressee);
-            subscription.setFollowing(requester);
-            subscription.setCreatedAt(LocalDateTime.now());
-            subscriptionRepository.save(subscription);
-        }
+        enqueueSubscription(addresseeId, requesterId);
     }
 
     /**
@@ -413,10 +563,8 @@ public class SubscriptionService {
         if (userId.equals(friendId)) {
             throw new IllegalArgumentException("Пользователь не может быть другом самому себе");
         }
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("Пользователь не найден"));
-        User friend = userRepository.findById(friendId)
-                .orElseThrow(() -> new IllegalArgumentException("Друг не найден"));
+        User user = findUser(userId, "Пользователь не найден");
+        User friend = findUser(friendId, "Друг не найден");
         boolean areFriends = friendshipRepository.areFriends(user, friend);
         if (!areFriends) {
             return false;
@@ -425,18 +573,10 @@ public class SubscriptionService {
         boolean friendFollowsUser = subscriptionRepository.isFollowing(friendId, userId);
         if (!userFollowsFriend || !friendFollowsUser) {
             if (!userFollowsFriend) {
-                Subscription subscription = new Subscription();
-                subscription.setFollower(user);
-                subscription.setFollowing(friend);
-                subscription.setCreatedAt(LocalDateTime.now());
-                subscriptionRepository.save(subscription);
+                createSubscription(user, friend);
             }
             if (!friendFollowsUser) {
-                Subscription subscription = new Subscription();
-                subscription.setFollower(friend);
-                subscription.setFollowing(user);
-                subscription.setCreatedAt(LocalDateTime.now());
-                subscriptionRepository.save(subscription);
+                createSubscription(friend, user);
             }
             return true;
         }
@@ -444,49 +584,146 @@ public class SubscriptionService {
     }
 
     /**
-     * Проверяет, что все дружеские связи имеют обоюдные подписки.
-     * При обнаружении несоответствий автоматически восстанавливает подписки.
+     * Возвращает друзей пользователя, то есть пользователей, подписанных на него взаимно.
      *
-     * @return статистика по исправленным связям
+     * @param userId идентификатор пользователя
+     * @return список друзей
+     */
+    @Transactional(readOnly = true)
+    public List<User> findFriends(Long userId) {
+        if (!socialGraphIndex.isReady()) {
+            return userRepository.findFriendsByUserId(userId);
+        }
+        return findUsersInOrder(socialGraphIndex.findFriendIds(userId.intValue()));
+    }
+
+    /**
+     * Возвращает общих друзей двух пользователей.
+     *
+     * @param userId идентификатор первого пользователя
+     * @param otherId идентификатор второго пользователя
+     * @return список общих друзей
+     */
+    @Transactional(readOnly = true)
+    public List<User> findMutualFriends(Long userId, Long otherId) {
+        if (!socialGraphIndex.isReady()) {
+            Set<Integer> otherFriendIds = userRepository.findFriendsByUserId(otherId).stream()
+                    .map(User::getId)
+                    .collect(Collectors.toSet());
+            return userRepository.findFriendsByUserId(userId).stream()
+                    .filter(user -> otherFriendIds.contains(user.getId()))
+                    .toList();
+        }
+        return findUsersInOrder(socialGraphIndex.findMutualFriendIds(userId.intValue(), otherId.intValue()));
+    }
+
+    /**
+     * Возвращает количество общих друзей двух пользователей.
+     *
+     * @param userId идентификатор первого пользователя
+     * @param otherId идентификатор второго пользователя
+     * @return количество общих друзей
+     */
+    @Transactional(readOnly = true)
+    public int countMutualFriends(Long userId, Long otherId) {
+        if (!socialGraphIndex.isReady()) {
+            return findMutualFriends(userId, otherId).size();
+        }
+        return socialGraphIndex.countMutualFriends(userId.intValue(), otherId.intValue());
+    }
+
+    /**
+     * Подбирает друзей друзей, на которых пользователь еще не подписан,
+     * ранжированных по количеству общих друзей.
+     * Пока граф подписок не построен, рекомендации не формируются.
+     *
+     * @param userId идентификатор пользователя
+     * @param limit максимальное количество рекомендаций
+     * @return рекомендации от большего числа общих друзей к меньшему
+     */
+    @Transactional(readOnly = true)
+    public List<FriendSuggestion> findPeopleYouMayKnow(Long userId, int limit) {
+        if (!socialGraphIndex.isReady()) {
+            return List.of();
+        }
+        List<SocialGraphIndex.Candidate> candidates = socialGraphIndex.suggestFriends(userId.intValue(), limit);
+        Map<Integer, User> users = findUsersById(candidates.stream().map(SocialGraphIndex.Candidate::userId).toList());
+        return candidates.stream()
+                .filter(candidate -> users.containsKey(candidate.userId()))
+                .map(candidate -> new FriendSuggestion(users.get(candidate.userId()), candidate.mutualFriends()))
+                .toList();
+    }
+
+    /**
+     * Проверяет, что все принятые дружеские связи имеют обоюдные подписки,
+     * и восстанавливает недостающие подписки.
+     * Связи читаются порциями по возрастанию идентификатора, недостающие подписки
+     * каждой порции находятся одним запросом и сохраняются пакетно. Каждая порция
+     * выполняется в отдельной транзакции, поэтому блокировки не держатся на время всего прохода.
+     *
+     * @return статистика: checked - проверено связей, fixed - создано подписок,
+     * chunks - обработано порций, durationMs - длительность в миллисекундах
      */
-    @Transactional
     public Map<String, Long> verifyAllFriendships() {
-        long fixedCount = 0;
+        long startedAt = System.currentTimeMillis();
         long checkedCount = 0;
-        List<Friendship> acceptedFriendships = friendshipRepository.findAll().stream()
-                .filter(f -> f.getStatus() == Friendship.FriendshipStatus.ACCEPTED)
-                .toList();
-        for (Friendship friendship : acceptedFriendships) {
-            User user = friendship.getRequester();
-            User friend = friendship.getAddressee();
-            boolean userFollowsFriend = subscriptionRepository.isFollowing(user.getId().longValue(), friend.getId().longValue());
-            boolean friendFollowsUser = subscriptionRepository.isFollowing(friend.getId().longValue(), user.getId().longValue());
-            checkedCount++;
-            if (!userFollowsFriend || !friendFollowsUser) {
-                if (!userFollowsFriend) {
-                    Subscription subscription = new Subscription();
-                    subscription.setFollower(user);
-                    subscription.setFollowing(friend);
-                    subscription.setCreatedAt(LocalDateTime.now());
-                    subscriptionRepository.save(subscription);
-                    fixedCount++;
-                }
-                if (!friendFollowsUser) {
-                    Subscription subscription = new Subscription();
-                    subscription.setFollower(friend);
-                    subscription.setFollowing(user);
-                    subscription.setCreatedAt(LocalDateTime.now());
-                    subscriptionRepository.save(subscription);
-                    fixedCount++;
-                }
+        long fixedCount = 0;
+        long chunkCount = 0;
+        Integer afterId = 0;
+        while (true) {
+            Integer from = afterId;
+            FriendshipChunk chunk = transactionTemplate.execute(status -> verifyFriendshipChunk(from));
+            if (chunk == null || chunk.checked() == 0) {
+                break;
             }
+            afterId = chunk.lastId();
+            checkedCount += chunk.checked();
+            fixedCount += chunk.fixed();
+            chunkCount++;
+            log.info("Проверка дружеских связей: порция {}, проверено {}, исправлено {}, последний id {}",
+                    chunkCount, checkedCount, fixedCount, afterId);
         }
+        long durationMs = System.currentTimeMillis() - startedAt;
+        log.info("Проверка дружеских связей завершена: проверено {}, исправлено {}, порций {}, {} мс",
+                checkedCount, fixedCount, chunkCount, durationMs);
         return Map.of(
                 "checked", checkedCount,
-                "fixed", fixedCount
+                "fixed", fixedCount,
+                "chunks", chunkCount,
+                "durationMs", durationMs
         );
     }
 
+    /**
+     * Проверяет одну порцию принятых дружеских связей.
+     *
+     * @param afterId идентификатор последней связи предыдущей порции
+     * @return результат порции
+     */
+    private FriendshipChunk verifyFriendshipChunk(Integer afterId) {
+        List<Integer> ids = friendshipRepository.findIdsByStatusAfter(
+                Friendship.FriendshipStatus.ACCEPTED, afterId, PageRequest.of(0, verifyChunkSize));
+        if (ids.isEmpty()) {
+            return new FriendshipChunk(afterId, 0, 0);
+        }
+        Integer lastId = ids.get(ids.size() - 1);
+        Set<Integer> pullAuthorIds = celebrityRegistry.findAll();
+        List<SubscriptionRepository.MissingPair> created = subscriptionRepository.createMissingFriendSubscriptions(
+                Friendship.FriendshipStatus.ACCEPTED.name(), afterId, lastId, pullAuthorIds, backfillLimit);
+        onSubscriptionsCreated(created, pullAuthorIds);
+        return new FriendshipChunk(lastId, ids.size(), created.size());
+    }
+
+    /**
+     * Результат проверки порции дружеских связей.
+     *
+     * @param lastId  идентификатор последней связи порции
+     * @param checked количество проверенных связей
+     * @param fixed   количество созданных подписок
+     */
+    private record FriendshipChunk(Integer lastId, int checked, int fixed) {
+    }
+
     /**
      * Проверяет, что конкретные пользователи являются друзьями и подписаны друг на друга.
      *
@@ -500,12 +737,11 @@ public class SubscriptionService {
             return false;
         }
 
-        User user = userRepository.findById(userId).orElse(null);
-        User friend = userRepository.findById(friendId).orElse(null);
-
-        if (user == null || friend == null) {
+        if (userCache.findById(userId).isEmpty() || userCache.findById(friendId).isEmpty()) {
             return false;
         }
+        User user = userRepository.getReferenceById(userId);
+        User friend = userRepository.getReferenceById(friendId);
 
         boolean areFriends = friendshipRepository.areFriends(user, friend);
         boolean userFollowsFriend = subscriptionRepository.isFollowing(userId, friendId);
@@ -513,4 +749,117 @@ public class SubscriptionService {
 
         return areFriends && userFollowsFriend && friendFollowsUser;
     }
-}
\ No newline at end of file
+
+    private static FollowOutcome.Status followStatus(Long followerId, Long targetId,
+                                                     Map<Integer, Boolean> states, Set<Integer> created) {
+        if (targetId.equals(followerId)) {
+            return FollowOutcome.Status.SELF;
+        }
+        if (!states.containsKey(targetId.intValue())) {
+            return FollowOutcome.Status.USER_NOT_FOUND;
+        }
+        return created.contains(targetId.intValue())
+                ? FollowOutcome.Status.CREATED
+                : FollowOutcome.Status.ALREADY_FOLLOWING;
+    }
+
+    /**
+     * Проверяет список пользователей для массовых операций и убирает повторы.
+     *
+     * @param targetIds идентификаторы пользователей
+     * @return различные идентификаторы в порядке первого появления
+     * @throws IllegalArgumentException если список пуст, содержит null или длиннее допустимого
+     */
+    private static List<Long> distinctTargets(List<Long> targetIds) {
+        if (targetIds == null || targetIds.isEmpty()) {
+            throw new IllegalArgumentException("Не указаны пользователи");
+        }
+        if (targetIds.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Идентификатор пользователя не может быть пустым");
+        }
+        List<Long> targets = targetIds.stream().distinct().toList();
+        if (targets.size() > MAX_BULK_TARGETS) {
+            throw new IllegalArgumentException("Можно указать не больше " + MAX_BULK_TARGETS + " пользователей");
+        }
+        return targets;
+    }
+
+    /**
+     * Проверяет существование пользователя по {@link UserCache} и возвращает ссылку
+     * на сущность без ее загрузки.
+     *
+     * @param userId          идентификатор пользователя
+     * @param notFoundMessage сообщение исключения, если пользователь не найден
+     * @return ссылка на пользователя
+     * @throws IllegalArgumentException если пользователь не найден
+     */
+    private User findUser(Long userId, String notFoundMessage) {
+        userCache.findById(userId).orElseThrow(() -> new IllegalArgumentException(notFoundMessage));
+        return userRepository.getReferenceById(userId);
+    }
+
+    private Map<Integer, User> findUsersById(List<Integer> ids) {
+        return userRepository.findAllById(ids.stream().map(Long::valueOf).toList()).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+    }
+
+    private List<User> findUsersInOrder(List<Integer> ids) {
+        Map<Integer, User> users = findUsersById(ids);
+        return ids.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Ставит подписку в очередь subscription_outbox в текущей транзакции.
+     * Существующая подписка не мешает: обработчик создает ее через INSERT ... ON CONFLICT DO NOTHING.
+     *
+     * @param followerId  идентификатор подписчика
+     * @param followingId идентификатор пользователя, на которого подписываются
+     */
+    private void enqueueSubscription(Long followerId, Long followingId) {
+        outboxRepository.enqueue(followerId, followingId, LocalDateTime.now());
+        eventPublisher.publishEvent(new SubscriptionRequestedEvent(followerId.intValue(), followingId.intValue()));
+    }
+
+    /**
+     * Сохраняет подписку, увеличивает счетчики участников, дополняет ленту подписчика
+     * постами автора и публикует событие для графа подписок.
+     *
+     * @param follower подписчик
+     * @param following пользователь, на которого подписываются
+     * @return сохраненная подписка
+     */
+    private Subscription createSubscription(User follower, User following) {
+        Subscription subscription = new Subscription();
+        subscription.setFollower(follower);
+        subscription.setFollowing(following);
+        subscription.setCreatedAt(LocalDateTime.now());
+        Subscription saved = subscriptionRepository.saveAndFlush(subscription);
+        followerCounter.addSubscription(Long.valueOf(follower.getId()), Long.valueOf(following.getId()), 1);
+        feedService.backfill(Long.valueOf(follower.getId()), Long.valueOf(following.getId()));
+        eventPublisher.publishEvent(new SubscriptionChangedEvent(follower.getId(), following.getId(), true));
+        return saved;
+    }
+
+    /**
+     * Учитывает подписки, созданные запросом
+     * {@link SubscriptionRepository#createMissingFriendSubscriptions}: подписчики pull-авторов
+     * передаются в {@link FollowerCounter}, для графа подписок публикуются события.
+     *
+     * @param pairs         созданные пары подписчик/автор
+     * @param pullAuthorIds pull-авторы, переданные в запрос
+     */
+    private void onSubscriptionsCreated(List<SubscriptionRepository.MissingPair> pairs, Set<Integer> pullAuthorIds) {
+        Map<Integer, Long> pullFollowers = new HashMap<>();
+        for (SubscriptionRepository.MissingPair pair : pairs) {
+            if (pullAuthorIds.contains(pair.getFollowingId())) {
+                pullFollowers.merge(pair.getFollowingId(), 1L, Long::sum);
+            }
+            eventPublisher.publishEvent(
+                    new SubscriptionChangedEvent(pair.getFollowerId(), pair.getFollowingId(), true));
+        }
+        followerCounter.addFollowers(pullFollowers);
+    }
+}
@@ -0,0 +1,172 @@
+package jobforj.social.service;
+
+import jobforj.social.cache.CachedUser;
+import jobforj.social.cache.UserCache;
+import jobforj.social.dto.UserProfile;
+import jobforj.social.dto.UserSuggestion;
+import jobforj.social.event.UserChangedEvent;
+import jobforj.social.index.UserAutocompleteIndex;
+import jobforj.social.model.User;
+import jobforj.social.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Сервис пользователей: регистрация, деактивация и поиск.
+ * Изменения пользователей публикуются событиями для индекса автодополнения и {@link UserCache}.
+ * Поиск по идентификатору, имени и email читает кэш.
+ */
+@Service
+@RequiredArgsConstructor
+public class UserService {
+    public static final int MAX_SUGGESTIONS = 20;
+
+    private final UserRepository userRepository;
+    private final UserCache userCache;
+    private final UserAutocompleteIndex autocompleteIndex;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Сохраняет нового пользователя.
+     *
+     * @param user пользователь
+     * @return сохраненный пользователь
+     */
+    @Transactional
+    public User createUser(User user) {
+        User saved = userRepository.saveAndFlush(user);
+        eventPublisher.publishEvent(
+                new UserChangedEvent(saved.getId(), saved.getUsername(), saved.getEmail(),
+                        Boolean.TRUE.equals(saved.getIsActive())));
+        return saved;
+    }
+
+    /**
+     * Сохраняет изменения пользователя.
+     *
+     * @param user пользователь
+     * @return сохраненный пользователь
+     * @throws IllegalArgumentException если пользователь не найден
+     */
+    @Transactional
+    public User updateUser(User user) {
+        if (user.getId() == null || !userRepository.existsById(Long.valueOf(user.getId()))) {
+            throw new IllegalArgumentException("Пользователь не найден");
+        }
+        User saved = userRepository.saveAndFlush(user);
+        eventPublisher.publishEvent(
+                new UserChangedEvent(saved.getId(), saved.getUsername(), saved.getEmail(),
+                        Boolean.TRUE.equals(saved.getIsActive())));
+        return saved;
+    }
+
+    /**
+     * Деактивирует пользователя и убирает его из подсказок автодополнения.
+     *
+     * @param userId идентификатор пользователя
+     * @throws IllegalArgumentException если пользователь не найден
+     */
+    @Transactional
+    public void deactivateUser(Long userId) {
+        CachedUser user = userCache.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("Пользователь не найден"));
+        userRepository.deactivateUser(userId);
+        eventPublisher.publishEvent(new UserChangedEvent(user.id(), user.username(), user.email(), false));
+    }
+
+    /**
+     * @param userId идентификатор пользователя
+     * @return пользователь из кэша или базы
+     */
+    public Optional<CachedUser> findById(Long userId) {
+        return userCache.findById(userId);
+    }
+
+    /**
+     * @param username имя пользователя
+     * @return пользователь из кэша или базы
+     */
+    public Optional<CachedUser> findByUsername(String username) {
+        return userCache.findByUsername(username);
+    }
+
+    /**
+     * @param email email пользователя
+     * @return пользователь из кэша или базы
+     */
+    public Optional<CachedUser> findByEmail(String email) {
+        return userCache.findByEmail(email);
+    }
+
+    /**
+     * @param username имя пользователя
+     * @return true если пользователь с таким именем существует
+     */
+    public boolean existsByUsername(String username) {
+        return userCache.findByUsername(username).isPresent();
+    }
+
+    /**
+     * @param email email пользователя
+     * @return true если пользователь с таким email существует
+     */
+    public boolean existsByEmail(String email) {
+        return userCache.findByEmail(email).isPresent();
+    }
+
+    /**
+     * Возвращает шапку профиля со счетчиками подписчиков, подписок и постов
+     * одним чтением строки пользователя по первичному ключу.
+     *
+     * @param userId идентификатор пользователя
+     * @return профиль пользователя
+     * @throws IllegalArgumentException если пользователь не найден
+     */
+    @Transactional(readOnly = true)
+    public UserProfile getProfile(Long userId) {
+        return userRepository.findProfile(userId)
+                .orElseThrow(() -> new IllegalArgumentException("Пользователь не найден"));
+    }
+
+    /**
+     * Ищет пользователей по подстроке имени или email.
+     *
+     * @param keyword  подстрока
+     * @param pageable параметры пагинации
+     * @return страница найденных пользователей
+     */
+    @Transactional(readOnly = true)
+    public Page<User> searchUsers(String keyword, Pageable pageable) {
+        return userRepository.searchUsers(keyword, pageable);
+    }
+
+    /**
+     * Возвращает подсказки для автодополнения по префиксу имени или email.
+     * Когда индекс в памяти построен, подсказки берутся из него без запроса к базе,
+     * иначе из базы по убыванию сходства с префиксом.
+     *
+     * @param prefix введенный префикс
+     * @param limit  количество подсказок
+     * @return подсказки
+     * @throws IllegalArgumentException если количество подсказок вне допустимого диапазона
+     */
+    public List<UserSuggestion> autocomplete(String prefix, int limit) {
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            throw new IllegalArgumentException("Количество подсказок должно быть от 1 до " + MAX_SUGGESTIONS);
+        }
+        if (prefix == null || prefix.isBlank()) {
+            return List.of();
+        }
+        if (autocompleteIndex.isReady()) {
+            return autocompleteIndex.autocomplete(prefix.strip(), limit);
+        }
+        return userRepository.autocomplete(prefix.strip(), limit);
+    }
+}
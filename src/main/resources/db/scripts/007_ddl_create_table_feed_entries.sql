@@ -0,0 +1,24 @@
+CREATE TABLE IF NOT EXISTS feed_entries (
+                             id BIGSERIAL PRIMARY KEY,
+                             user_id INTEGER NOT NULL,
+                             post_id INTEGER NOT NULL,
+                             author_id INTEGER NOT NULL,
+                             created_at TIMESTAMP NOT NULL,
+                             FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+                             FOREIGN KEY (post_id) REFERENCES posts(id) ON DELETE CASCADE,
+                             FOREIGN KEY (author_id) REFERENCES users(id) ON DELETE CASCADE,
+                             CONSTRAINT uk_feed_entries_user_post UNIQUE (user_id, post_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_feed_entries_user_created
+    ON feed_entries (user_id, created_at DESC, post_id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_feed_entries_user_author
+    ON feed_entries (user_id, author_id);
+
+INSERT INTO feed_entries (user_id, post_id, author_id, created_at)
+SELECT s.follower_id, p.id, p.user_id, COALESCE(p.created_at, CURRENT_TIMESTAMP)
+FROM subscriptions s
+         JOIN posts p ON p.user_id = s.following_id
+WHERE p.is_deleted = false
+ON CONFLICT (user_id, post_id) DO NOTHING;
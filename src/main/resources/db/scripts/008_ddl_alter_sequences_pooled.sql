@@ -0,0 +1,6 @@
+ALTER SEQUENCE users_id_seq INCREMENT BY 50;
+ALTER SEQUENCE posts_id_seq INCREMENT BY 50;
+ALTER SEQUENCE images_id_seq INCREMENT BY 50;
+ALTER SEQUENCE friendships_id_seq INCREMENT BY 50;
+ALTER SEQUENCE subscriptions_id_seq INCREMENT BY 50;
+ALTER SEQUENCE messages_id_seq INCREMENT BY 50;
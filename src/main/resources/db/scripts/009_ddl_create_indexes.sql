@@ -0,0 +1,26 @@
+CREATE INDEX IF NOT EXISTS idx_posts_user_created_active
+    ON posts (user_id, created_at DESC, id DESC) WHERE is_deleted = false;
+CREATE INDEX IF NOT EXISTS idx_posts_created_active
+    ON posts (created_at DESC, id DESC) WHERE is_deleted = false;
+CREATE INDEX IF NOT EXISTS idx_posts_user_id
+    ON posts (user_id);
+
+CREATE INDEX IF NOT EXISTS idx_images_post_id
+    ON images (post_id);
+
+CREATE INDEX IF NOT EXISTS idx_messages_sender_receiver_created
+    ON messages (sender_id, receiver_id, created_at DESC);
+CREATE INDEX IF NOT EXISTS idx_messages_receiver_created
+    ON messages (receiver_id, created_at DESC);
+CREATE INDEX IF NOT EXISTS idx_messages_receiver_sender_unread
+    ON messages (receiver_id, sender_id) WHERE is_read = false;
+
+CREATE INDEX IF NOT EXISTS idx_friendships_addressee_status
+    ON friendships (addressee_id, status);
+CREATE INDEX IF NOT EXISTS idx_friendships_requester_status
+    ON friendships (requester_id, status);
+CREATE INDEX IF NOT EXISTS idx_friendships_status_id
+    ON friendships (status, id);
+
+CREATE INDEX IF NOT EXISTS idx_subscriptions_following_follower
+    ON subscriptions (following_id, follower_id);
@@ -0,0 +1,11 @@
+ALTER TABLE users ADD COLUMN IF NOT EXISTS unread_messages_count INTEGER NOT NULL DEFAULT 0;
+
+UPDATE users u
+SET unread_messages_count = c.unread
+FROM (
+    SELECT receiver_id, COUNT(*) AS unread
+    FROM messages
+    WHERE is_read = false
+    GROUP BY receiver_id
+) c
+WHERE u.id = c.receiver_id;
@@ -0,0 +1,64 @@
+CREATE TABLE IF NOT EXISTS conversations (
+                               id SERIAL PRIMARY KEY,
+                               user_low_id INTEGER NOT NULL,
+                               user_high_id INTEGER NOT NULL,
+                               last_message_id INTEGER,
+                               last_message_at TIMESTAMP,
+                               last_seq BIGINT NOT NULL DEFAULT 0,
+                               user_low_read_seq BIGINT NOT NULL DEFAULT 0,
+                               user_high_read_seq BIGINT NOT NULL DEFAULT 0,
+                               created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                               FOREIGN KEY (user_low_id) REFERENCES users(id) ON DELETE CASCADE,
+                               FOREIGN KEY (user_high_id) REFERENCES users(id) ON DELETE CASCADE,
+                               CONSTRAINT uk_conversations_users UNIQUE (user_low_id, user_high_id),
+                               CONSTRAINT ordered_users_conv CHECK (user_low_id < user_high_id)
+);
+
+ALTER SEQUENCE conversations_id_seq INCREMENT BY 50;
+
+ALTER TABLE messages
+    ADD COLUMN IF NOT EXISTS conversation_id INTEGER REFERENCES conversations(id) ON DELETE CASCADE,
+    ADD COLUMN IF NOT EXISTS seq BIGINT;
+
+INSERT INTO conversations (user_low_id, user_high_id, created_at)
+SELECT LEAST(sender_id, receiver_id), GREATEST(sender_id, receiver_id), MIN(created_at)
+FROM messages
+GROUP BY LEAST(sender_id, receiver_id), GREATEST(sender_id, receiver_id)
+ON CONFLICT (user_low_id, user_high_id) DO NOTHING;
+
+UPDATE messages m
+SET conversation_id = n.conversation_id, seq = n.seq
+FROM (
+    SELECT msg.id, c.id AS conversation_id,
+           ROW_NUMBER() OVER (PARTITION BY c.id ORDER BY msg.created_at, msg.id) AS seq
+    FROM messages msg
+    JOIN conversations c ON c.user_low_id = LEAST(msg.sender_id, msg.receiver_id)
+        AND c.user_high_id = GREATEST(msg.sender_id, msg.receiver_id)
+) n
+WHERE m.id = n.id;
+
+UPDATE conversations c
+SET last_seq = l.seq, last_message_id = l.id, last_message_at = l.created_at
+FROM (
+    SELECT DISTINCT ON (conversation_id) conversation_id, id, seq, created_at
+    FROM messages
+    ORDER BY conversation_id, seq DESC
+) l
+WHERE l.conversation_id = c.id;
+
+UPDATE conversations c
+SET user_low_read_seq = COALESCE((
+        SELECT MIN(m.seq) - 1 FROM messages m
+        WHERE m.conversation_id = c.id AND m.receiver_id = c.user_low_id AND m.is_read = false
+    ), c.last_seq),
+    user_high_read_seq = COALESCE((
+        SELECT MIN(m.seq) - 1 FROM messages m
+        WHERE m.conversation_id = c.id AND m.receiver_id = c.user_high_id AND m.is_read = false
+    ), c.last_seq);
+
+ALTER TABLE messages
+    ALTER COLUMN conversation_id SET NOT NULL,
+    ALTER COLUMN seq SET NOT NULL;
+
+ALTER TABLE conversations
+    ADD CONSTRAINT fk_conversations_last_message_id FOREIGN KEY (last_message_id) REFERENCES messages(id) ON DELETE SET NULL;
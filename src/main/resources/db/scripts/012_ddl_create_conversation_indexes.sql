@@ -0,0 +1,5 @@
+CREATE UNIQUE INDEX IF NOT EXISTS uk_messages_conversation_seq ON messages (conversation_id, seq);
+CREATE INDEX IF NOT EXISTS idx_conversations_user_low_activity
+    ON conversations (user_low_id, last_message_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_conversations_user_high_activity
+    ON conversations (user_high_id, last_message_at DESC, id DESC);
@@ -0,0 +1,14 @@
+DROP INDEX IF EXISTS idx_messages_receiver_sender_unread;
+
+UPDATE users SET unread_messages_count = 0 WHERE unread_messages_count <> 0;
+
+UPDATE users u
+SET unread_messages_count = r.unread
+FROM (
+    SELECT m.receiver_id, COUNT(*) AS unread
+    FROM messages m
+    JOIN conversations c ON c.id = m.conversation_id
+    WHERE m.seq > CASE WHEN m.receiver_id = c.user_low_id THEN c.user_low_read_seq ELSE c.user_high_read_seq END
+    GROUP BY m.receiver_id
+) r
+WHERE u.id = r.receiver_id;
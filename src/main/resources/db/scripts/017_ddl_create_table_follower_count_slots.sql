@@ -0,0 +1,7 @@
+CREATE TABLE IF NOT EXISTS follower_count_slots (
+                             user_id INTEGER NOT NULL,
+                             slot SMALLINT NOT NULL,
+                             delta INTEGER NOT NULL DEFAULT 0,
+                             PRIMARY KEY (user_id, slot),
+                             FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
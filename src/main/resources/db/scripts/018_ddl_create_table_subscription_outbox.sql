@@ -0,0 +1,17 @@
+CREATE TABLE IF NOT EXISTS subscription_outbox (
+                             id BIGSERIAL PRIMARY KEY,
+                             follower_id INTEGER NOT NULL,
+                             following_id INTEGER NOT NULL,
+                             attempts INTEGER NOT NULL DEFAULT 0,
+                             last_error VARCHAR(500),
+                             created_at TIMESTAMP NOT NULL,
+                             available_at TIMESTAMP NOT NULL,
+                             FOREIGN KEY (follower_id) REFERENCES users(id) ON DELETE CASCADE,
+                             FOREIGN KEY (following_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_subscription_outbox_available
+    ON subscription_outbox (available_at, id);
+
+CREATE INDEX IF NOT EXISTS idx_subscription_outbox_pair
+    ON subscription_outbox (follower_id, following_id);
@@ -0,0 +1 @@
+ALTER SEQUENCE subscriptions_id_seq INCREMENT BY 1;
@@ -0,0 +1,5 @@
+CREATE INDEX IF NOT EXISTS idx_posts_created
+    ON posts (created_at DESC, id DESC);
+DROP INDEX IF EXISTS idx_posts_created_active;
+CREATE INDEX IF NOT EXISTS idx_users_created_at
+    ON users (created_at);
@@ -0,0 +1,112 @@
+package jobforj.social.cache;
+
+import jobforj.social.dto.FeedItem;
+import jobforj.social.dto.PostCursor;
+import jobforj.social.repository.PostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RecentPostCacheTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private PostRepository postRepository;
+    private RecentPostCache cache;
+
+    @BeforeEach
+    void setUp() {
+        postRepository = mock(PostRepository.class);
+        cache = new RecentPostCache(postRepository, 3, 10);
+    }
+
+    @Test
+    void whenRingIsFullThenOldestPostIsEvicted() {
+        RecentPostCache.AuthorRing ring = new RecentPostCache.AuthorRing(3, List.of(), true);
+        for (int id = 1; id <= 4; id++) {
+            ring.push(id, RecentPostCache.toMicros(NOW.plusMinutes(id)));
+        }
+
+        List<FeedItem> items = ring.before(Long.MAX_VALUE, Integer.MAX_VALUE, 3);
+
+        assertThat(items).extracting(FeedItem::postId).containsExactly(4, 3, 2);
+    }
+
+    @Test
+    void whenPageIsNotCoveredByIncompleteRingThenReturnNull() {
+        RecentPostCache.AuthorRing ring = new RecentPostCache.AuthorRing(3, List.of(
+                new FeedItem(3, NOW.plusMinutes(3)),
+                new FeedItem(2, NOW.plusMinutes(2))), false);
+
+        assertThat(ring.before(Long.MAX_VALUE, Integer.MAX_VALUE, 2)).hasSize(2);
+        assertThat(ring.before(Long.MAX_VALUE, Integer.MAX_VALUE, 3)).isNull();
+    }
+
+    @Test
+    void whenPostRemovedThenOlderPostsShiftUp() {
+        RecentPostCache.AuthorRing ring = new RecentPostCache.AuthorRing(3, List.of(
+                new FeedItem(3, NOW.plusMinutes(3)),
+                new FeedItem(2, NOW.plusMinutes(2)),
+                new FeedItem(1, NOW.plusMinutes(1))), true);
+
+        ring.remove(2);
+
+        assertThat(ring.size()).isEqualTo(2);
+        assertThat(ring.before(Long.MAX_VALUE, Integer.MAX_VALUE, 3))
+                .extracting(FeedItem::postId)
+                .containsExactly(3, 1);
+    }
+
+    @Test
+    void whenPushedOutOfOrderThenRingStaysSorted() {
+        RecentPostCache.AuthorRing ring = new RecentPostCache.AuthorRing(3, List.of(
+                new FeedItem(3, NOW.plusMinutes(3)),
+                new FeedItem(1, NOW.plusMinutes(1))), true);
+
+        ring.push(2, RecentPostCache.toMicros(NOW.plusMinutes(2)));
+
+        assertThat(ring.before(Long.MAX_VALUE, Integer.MAX_VALUE, 3))
+                .extracting(FeedItem::postId)
+                .containsExactly(3, 2, 1);
+    }
+
+    @Test
+    void whenFindBeforeThenRingIsLoadedOnceAndReused() {
+        when(postRepository.findItemsByAuthorBeforeCursor(eq(7L), any(), anyLong(), any(Pageable.class)))
+                .thenReturn(List.of(new FeedItem(2, NOW.plusMinutes(2)), new FeedItem(1, NOW.plusMinutes(1))));
+
+        Optional<List<FeedItem>> first = cache.findBefore(7, PostCursor.decode(null), 2);
+        cache.onPostCreated(7, 3, NOW.plusMinutes(3));
+        Optional<List<FeedItem>> second = cache.findBefore(7, PostCursor.decode(null), 3);
+
+        assertThat(first).isPresent();
+        assertThat(second).isPresent();
+        assertThat(second.get()).extracting(FeedItem::postId).containsExactly(3, 2, 1);
+        verify(postRepository, times(1))
+                .findItemsByAuthorBeforeCursor(eq(7L), any(), anyLong(), any(Pageable.class));
+    }
+
+    @Test
+    void whenCursorIsOlderThanRingThenContinueFromCursor() {
+        when(postRepository.findItemsByAuthorBeforeCursor(eq(7L), any(), anyLong(), any(Pageable.class)))
+                .thenReturn(List.of(new FeedItem(2, NOW.plusMinutes(2)), new FeedItem(1, NOW.plusMinutes(1))));
+
+        Optional<List<FeedItem>> page = cache.findBefore(7, new PostCursor(NOW.plusMinutes(2), 2), 2);
+
+        assertThat(page).isPresent();
+        assertThat(page.get()).extracting(FeedItem::postId).containsExactly(1);
+    }
+}
@@ -0,0 +1,187 @@
+package jobforj.social.cache;
+
+import jobforj.social.event.UserChangedEvent;
+import jobforj.social.model.User;
+import jobforj.social.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserCacheTest {
+
+    private UserRepository userRepository;
+    private MapStore store;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        store = new MapStore();
+    }
+
+    @Test
+    void whenUserLoadedByIdThenUsernameAndEmailLookupsHitFirstLevel() {
+        UserCache cache = cache(UserCacheStore.NONE, 10);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user(1, "anna", "anna@example.com")));
+
+        assertThat(cache.findById(1L)).contains(new CachedUser(1, "anna", "anna@example.com", true));
+        assertThat(cache.findById(1L)).isPresent();
+        assertThat(cache.findByUsername("anna")).isPresent();
+        assertThat(cache.findByEmail("anna@example.com")).isPresent();
+
+        verify(userRepository, times(1)).findById(1L);
+        assertThat(cache.getMisses()).isEqualTo(1);
+        assertThat(cache.getL1Hits()).isEqualTo(3);
+        assertThat(cache.getHitRatio()).isEqualTo(0.75);
+    }
+
+    @Test
+    void whenUserMissingThenAbsenceIsNotCached() {
+        UserCache cache = cache(UserCacheStore.NONE, 10);
+        when(userRepository.findByUsername("ghost")).thenReturn(Optional.empty());
+
+        assertThat(cache.findByUsername("ghost")).isEmpty();
+        assertThat(cache.findByUsername("ghost")).isEmpty();
+
+        verify(userRepository, times(2)).findByUsername("ghost");
+        assertThat(cache.getSize()).isZero();
+    }
+
+    @Test
+    void whenFirstLevelIsFullThenLeastRecentlyUsedIsEvictedWithItsKeys() {
+        UserCache cache = cache(UserCacheStore.NONE, 2);
+        for (int id = 1; id <= 3; id++) {
+            when(userRepository.findById((long) id))
+                    .thenReturn(Optional.of(user(id, "user" + id, "user" + id + "@example.com")));
+        }
+        when(userRepository.findByUsername("user1")).thenReturn(Optional.of(user(1, "user1", "user1@example.com")));
+
+        cache.findById(1L);
+        cache.findById(2L);
+        cache.findById(1L);
+        cache.findById(3L);
+
+        assertThat(cache.getSize()).isEqualTo(2);
+        cache.findById(1L);
+        assertThat(cache.getL1Hits()).isEqualTo(2);
+        cache.findByUsername("user2");
+        verify(userRepository).findByUsername("user2");
+    }
+
+    @Test
+    void whenUserChangedThenBothLevelsForgetOldKeys() {
+        UserCache cache = cache(store, 10);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user(1, "ivan", "ivan@example.com")));
+        cache.findById(1L);
+        assertThat(store.entries).containsKeys("user:id:1", "user:username:ivan", "user:email:ivan@example.com");
+
+        cache.onUserChanged(new UserChangedEvent(1, "john", "john@example.com", true));
+
+        assertThat(store.entries).isEmpty();
+        assertThat(cache.getSize()).isZero();
+        when(userRepository.findByUsername("ivan")).thenReturn(Optional.empty());
+        assertThat(cache.findByUsername("ivan")).isEmpty();
+    }
+
+    @Test
+    void whenFirstLevelMissesThenSecondLevelIsUsed() {
+        store.entries.put("user:email:anna@example.com", new CachedUser(1, "anna", "anna@example.com", true));
+        UserCache cache = cache(store, 10);
+
+        assertThat(cache.findByEmail("anna@example.com")).isPresent();
+        assertThat(cache.findById(1L)).isPresent();
+
+        verify(userRepository, times(0)).findById(any());
+        assertThat(cache.getL2Hits()).isEqualTo(1);
+        assertThat(cache.getL1Hits()).isEqualTo(1);
+    }
+
+    @Test
+    void whenOtherUserChangedDuringLoadThenLoadedUserIsCached() {
+        UserCache cache = cache(store, 10);
+        when(userRepository.findById(1L)).thenAnswer(invocation -> {
+            cache.onUserChanged(new UserChangedEvent(2, "petr", "petr@example.com", true));
+            return Optional.of(user(1, "anna", "anna@example.com"));
+        });
+
+        cache.findById(1L);
+
+        assertThat(cache.getSize()).isEqualTo(1);
+        assertThat(store.entries).containsKeys("user:id:1", "user:username:anna", "user:email:anna@example.com");
+    }
+
+    @Test
+    void whenUserChangedDuringLoadThenLoadedUserIsNotCached() {
+        UserCache cache = cache(store, 10);
+        when(userRepository.findByUsername("anna")).thenAnswer(invocation -> {
+            cache.onUserChanged(new UserChangedEvent(1, "anna", "anna@example.com", false));
+            return Optional.of(user(1, "anna", "anna@example.com"));
+        });
+
+        cache.findByUsername("anna");
+
+        assertThat(cache.getSize()).isZero();
+        assertThat(store.entries).isEmpty();
+    }
+
+    @Test
+    void whenUserChangedWhileWritingSecondLevelThenStaleEntriesAreEvicted() {
+        UserCache[] holder = new UserCache[1];
+        MapStore racingStore = new MapStore() {
+            @Override
+            public void put(String key, CachedUser user) {
+                super.put(key, user);
+                if (key.startsWith("user:id:")) {
+                    holder[0].onUserChanged(new UserChangedEvent(user.id(), "john", "john@example.com", true));
+                }
+            }
+        };
+        holder[0] = cache(racingStore, 10);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user(1, "ivan", "ivan@example.com")));
+
+        holder[0].findById(1L);
+
+        assertThat(racingStore.entries).isEmpty();
+        assertThat(holder[0].getSize()).isZero();
+    }
+
+    private UserCache cache(UserCacheStore store, int maxSize) {
+        @SuppressWarnings("unchecked")
+        ObjectProvider<UserCacheStore> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable(any())).thenReturn(store);
+        return new UserCache(userRepository, provider, maxSize);
+    }
+
+    private static User user(int id, String username, String email) {
+        return User.builder().id(id).username(username).email(email).isActive(true).build();
+    }
+
+    private static class MapStore implements UserCacheStore {
+        private final Map<String, CachedUser> entries = new HashMap<>();
+
+        @Override
+        public Optional<CachedUser> get(String key) {
+            return Optional.ofNullable(entries.get(key));
+        }
+
+        @Override
+        public void put(String key, CachedUser user) {
+            entries.put(key, user);
+        }
+
+        @Override
+        public void evict(String key) {
+            entries.remove(key);
+        }
+    }
+}
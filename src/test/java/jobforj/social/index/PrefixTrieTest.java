@@ -0,0 +1,48 @@
+package jobforj.social.index;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrefixTrieTest {
+
+    @Test
+    void whenKeysShareEdgesThenPrefixSearchWalksSplitNodes() {
+        PrefixTrie<String> trie = new PrefixTrie<>();
+        trie.put("romane", "romane");
+        trie.put("romanus", "romanus");
+        trie.put("romulus", "romulus");
+        trie.put("rubens", "rubens");
+        trie.put("ruber", "ruber");
+
+        assertThat(trie.size()).isEqualTo(5);
+        assertThat(trie.findByPrefix("r", 10, value -> true))
+                .containsExactly("romane", "romanus", "romulus", "rubens", "ruber");
+        assertThat(trie.findByPrefix("roma", 10, value -> true)).containsExactly("romane", "romanus");
+        assertThat(trie.findByPrefix("rom", 2, value -> true)).containsExactly("romane", "romanus");
+        assertThat(trie.findByPrefix("romanx", 10, value -> true)).isEmpty();
+        assertThat(trie.findByPrefix("romanusx", 10, value -> true)).isEmpty();
+        assertThat(trie.findByPrefix("", 10, value -> !value.startsWith("ro")))
+                .containsExactly("rubens", "ruber");
+    }
+
+    @Test
+    void whenValuesRemovedThenNodesArePrunedAndMerged() {
+        PrefixTrie<String> trie = new PrefixTrie<>();
+        trie.put("test", "test");
+        trie.put("team", "team");
+        trie.put("toast", "toast");
+
+        assertThat(trie.remove("team", "other")).isFalse();
+        assertThat(trie.remove("te", "te")).isFalse();
+        assertThat(trie.remove("team", "team")).isTrue();
+        assertThat(trie.remove("toast", "toast")).isTrue();
+
+        assertThat(trie.size()).isEqualTo(1);
+        assertThat(trie.findByPrefix("tes", 10, value -> true)).containsExactly("test");
+        assertThat(trie.findByPrefix("tea", 10, value -> true)).isEmpty();
+
+        trie.put("toast", "toast");
+        assertThat(trie.findByPrefix("t", 10, value -> true)).containsExactly("test", "toast");
+    }
+}
@@ -0,0 +1,118 @@
+package jobforj.social.index;
+
+import jobforj.social.dto.SubscriptionPair;
+import jobforj.social.event.SubscriptionChangedEvent;
+import jobforj.social.repository.SubscriptionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SocialGraphIndexTest {
+
+    private SubscriptionRepository subscriptionRepository;
+    private SocialGraphIndex index;
+
+    @BeforeEach
+    void setUp() {
+        subscriptionRepository = mock(SubscriptionRepository.class);
+        index = new SocialGraphIndex(subscriptionRepository, mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void whenRebuiltThenMembershipAndCountsComeFromTable() {
+        when(subscriptionRepository.streamAllPairs()).thenReturn(Stream.of(
+                new SubscriptionPair(1, 2), new SubscriptionPair(1, 3), new SubscriptionPair(3, 2)));
+
+        assertThat(index.isReady()).isFalse();
+        index.rebuild();
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.isFollowing(1, 2)).isTrue();
+        assertThat(index.isFollowing(2, 1)).isFalse();
+        assertThat(index.countFollowers(2)).isEqualTo(2);
+        assertThat(index.countFollowing(1)).isEqualTo(2);
+        assertThat(index.countFollowers(42)).isZero();
+    }
+
+    @Test
+    void whenSubscriptionChangedThenIndexIsUpdated() {
+        when(subscriptionRepository.streamAllPairs()).thenReturn(Stream.of(new SubscriptionPair(1, 2)));
+        index.rebuild();
+
+        index.onSubscriptionChanged(new SubscriptionChangedEvent(1, 3, true));
+        index.onSubscriptionChanged(new SubscriptionChangedEvent(1, 2, false));
+
+        assertThat(index.isFollowing(1, 3)).isTrue();
+        assertThat(index.isFollowing(1, 2)).isFalse();
+        assertThat(index.countFollowers(2)).isZero();
+        assertThat(index.countFollowing(1)).isEqualTo(1);
+    }
+
+    @Test
+    void whenChangedDuringRebuildThenChangeIsReplayedOnNewGraph() {
+        when(subscriptionRepository.streamAllPairs()).thenAnswer(invocation -> {
+            index.onSubscriptionChanged(new SubscriptionChangedEvent(5, 6, true));
+            index.onSubscriptionChanged(new SubscriptionChangedEvent(1, 2, false));
+            return Stream.of(new SubscriptionPair(1, 2));
+        });
+
+        index.rebuild();
+
+        assertThat(index.isFollowing(5, 6)).isTrue();
+        assertThat(index.isFollowing(1, 2)).isFalse();
+    }
+
+    @Test
+    void whenFindFollowingIdsThenPageInAscendingOrder() {
+        when(subscriptionRepository.streamAllPairs()).thenReturn(Stream.of(
+                new SubscriptionPair(1, 9), new SubscriptionPair(1, 4),
+                new SubscriptionPair(1, 7), new SubscriptionPair(1, 2)));
+        index.rebuild();
+
+        assertThat(index.findFollowingIds(1, 0, 2)).containsExactly(2, 4);
+        assertThat(index.findFollowingIds(1, 2, 2)).containsExactly(7, 9);
+        assertThat(index.findFollowingIds(1, 4, 2)).isEmpty();
+        assertThat(index.filterFollowed(1, List.of(3, 4, 9))).containsExactly(4, 9);
+        assertThat(index.findUsersWithFollowersAtLeast(1)).containsExactlyInAnyOrder(2, 4, 7, 9);
+    }
+
+    @Test
+    void whenMutualFollowsThenFriendsAndMutualFriendsAreIntersections() {
+        when(subscriptionRepository.streamAllPairs()).thenReturn(Stream.of(
+                mutual(1, 2), mutual(1, 3), mutual(1, 4), mutual(5, 2), mutual(5, 3),
+                List.of(new SubscriptionPair(5, 4))).flatMap(List::stream));
+        index.rebuild();
+
+        assertThat(index.findFriendIds(1)).containsExactly(2, 3, 4);
+        assertThat(index.findFriendIds(5)).containsExactly(2, 3);
+        assertThat(index.findMutualFriendIds(1, 5)).containsExactly(2, 3);
+        assertThat(index.countMutualFriends(1, 5)).isEqualTo(2);
+        assertThat(index.countMutualFriends(1, 42)).isZero();
+    }
+
+    @Test
+    void whenSuggestFriendsThenRankedByMutualFriendsExcludingFollowed() {
+        when(subscriptionRepository.streamAllPairs()).thenReturn(Stream.of(
+                mutual(1, 2), mutual(1, 3),
+                mutual(2, 6), mutual(3, 6),
+                mutual(2, 7),
+                mutual(3, 8), List.of(new SubscriptionPair(1, 8))).flatMap(List::stream));
+        index.rebuild();
+
+        assertThat(index.suggestFriends(1, 10)).containsExactly(
+                new SocialGraphIndex.Candidate(6, 2),
+                new SocialGraphIndex.Candidate(7, 1));
+        assertThat(index.suggestFriends(1, 1)).containsExactly(new SocialGraphIndex.Candidate(6, 2));
+    }
+
+    private static List<SubscriptionPair> mutual(int first, int second) {
+        return List.of(new SubscriptionPair(first, second), new SubscriptionPair(second, first));
+    }
+}
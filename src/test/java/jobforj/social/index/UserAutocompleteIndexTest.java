@@ -0,0 +1,85 @@
+package jobforj.social.index;
+
+import jobforj.social.dto.UserSuggestion;
+import jobforj.social.event.UserChangedEvent;
+import jobforj.social.model.User;
+import jobforj.social.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserAutocompleteIndexTest {
+
+    private UserRepository userRepository;
+    private UserAutocompleteIndex index;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        index = new UserAutocompleteIndex(userRepository, mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void whenRebuiltThenPrefixMatchesIgnoreCaseAndExactMatchComesFirst() {
+        when(userRepository.findAllActiveUsers()).thenReturn(List.of(
+                user(1, "anna_smith", "anna@example.com"),
+                user(2, "Anna", "a.k@example.com"),
+                user(3, "annabel", "bel@example.com"),
+                user(4, "boris", "boris@example.com")));
+
+        assertThat(index.isReady()).isFalse();
+        index.rebuild();
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.autocomplete("ANNA", 10)).containsExactly(
+                new UserSuggestion(2, "Anna"),
+                new UserSuggestion(1, "anna_smith"),
+                new UserSuggestion(3, "annabel"));
+        assertThat(index.autocomplete("ann", 2)).hasSize(2);
+        assertThat(index.autocomplete("bel@", 10)).containsExactly(new UserSuggestion(3, "annabel"));
+        assertThat(index.autocomplete("anne", 10)).isEmpty();
+    }
+
+    @Test
+    void whenUserMatchesByNameAndEmailThenSuggestedOnce() {
+        when(userRepository.findAllActiveUsers()).thenReturn(List.of(user(1, "boris", "boris@example.com")));
+        index.rebuild();
+
+        assertThat(index.autocomplete("bor", 10)).containsExactly(new UserSuggestion(1, "boris"));
+    }
+
+    @Test
+    void whenUserCreatedOrDeactivatedThenIndexFollows() {
+        when(userRepository.findAllActiveUsers()).thenReturn(List.of(
+                user(1, "petr", "petr@example.com"), user(2, "petra", "petra@example.com")));
+        index.rebuild();
+
+        index.onUserChanged(new UserChangedEvent(3, "pavel", "pavel@example.com", true));
+        index.onUserChanged(new UserChangedEvent(1, "petr", "petr@example.com", false));
+
+        assertThat(index.autocomplete("p", 10)).containsExactly(
+                new UserSuggestion(3, "pavel"), new UserSuggestion(2, "petra"));
+        assertThat(index.autocomplete("petr", 10)).containsExactly(new UserSuggestion(2, "petra"));
+    }
+
+    @Test
+    void whenUserRenamedThenOldKeysAreRemoved() {
+        when(userRepository.findAllActiveUsers()).thenReturn(List.of(user(1, "ivan", "ivan@example.com")));
+        index.rebuild();
+
+        index.onUserChanged(new UserChangedEvent(1, "john", "john@example.com", true));
+
+        assertThat(index.autocomplete("iv", 10)).isEmpty();
+        assertThat(index.autocomplete("jo", 10)).containsExactly(new UserSuggestion(1, "john"));
+    }
+
+    private static User user(int id, String username, String email) {
+        return User.builder().id(id).username(username).email(email).build();
+    }
+}
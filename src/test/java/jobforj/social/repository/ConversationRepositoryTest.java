@@ -0,0 +1,189 @@
+package jobforj.social.repository;
+
+import jobforj.social.model.Conversation;
+import jobforj.social.model.Message;
+import jobforj.social.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Testcontainers
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ConversationRepositoryTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private User user1;
+    private User user2;
+    private User user3;
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.driver-class-name", postgres::getDriverClassName);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> "2");
+        registry.add("spring.datasource.hikari.connection-timeout", () -> "2000");
+        registry.add("spring.liquibase.enabled", () -> "false");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+    }
+
+    @BeforeEach
+    void setUp() {
+        messageRepository.deleteAll();
+        conversationRepository.deleteAll();
+        userRepository.deleteAll();
+
+        user1 = User.builder()
+                .username("user1")
+                .email("user1@example.com")
+                .passwordHash("password123")
+                .isActive(true)
+                .build();
+
+        user2 = User.builder()
+                .username("user2")
+                .email("user2@example.com")
+                .passwordHash("password123")
+                .isActive(true)
+                .build();
+
+        user3 = User.builder()
+                .username("user3")
+                .email("user3@example.com")
+                .passwordHash("password123")
+                .isActive(true)
+                .build();
+
+        userRepository.saveAll(List.of(user1, user2, user3));
+        testEntityManager.flush();
+        testEntityManager.clear();
+    }
+
+    @Test
+    void whenReserveMessageSlotThenConversationCreatedOnceAndSeqIncrements() {
+        ConversationRepository.MessageSlot first = conversationRepository.reserveMessageSlot(
+                Long.valueOf(user1.getId()), Long.valueOf(user2.getId()));
+        ConversationRepository.MessageSlot second = conversationRepository.reserveMessageSlot(
+                Long.valueOf(user1.getId()), Long.valueOf(user2.getId()));
+
+        assertThat(first.getSeq()).isEqualTo(1L);
+        assertThat(second.getSeq()).isEqualTo(2L);
+        assertThat(second.getConversationId()).isEqualTo(first.getConversationId());
+        assertThat(conversationRepository.count()).isEqualTo(1);
+        assertThat(conversationRepository.findByUsers(Long.valueOf(user1.getId()), Long.valueOf(user2.getId())))
+                .get()
+                .extracting(Conversation::getLastSeq)
+                .isEqualTo(2L);
+    }
+
+    @Test
+    void whenMessagesReservedInExistingConversationThenSequenceIsNotAdvanced() {
+        Long low = Long.valueOf(user1.getId());
+        Long high = Long.valueOf(user2.getId());
+        conversationRepository.reserveMessageSlot(low, high);
+        Object sequenceValue = conversationSequenceValue();
+
+        ConversationRepository.MessageSlot last = null;
+        for (int i = 0; i < 5; i++) {
+            last = conversationRepository.reserveMessageSlot(low, high);
+        }
+
+        assertThat(last.getSeq()).isEqualTo(6L);
+        assertThat(conversationSequenceValue()).isEqualTo(sequenceValue);
+    }
+
+    @Test
+    void whenFindConversationHistoryThenReturnRangeBySeqDesc() {
+        Conversation conversation = null;
+        for (int i = 0; i < 5; i++) {
+            conversation = sendMessage(user1, user2, "Message " + (i + 1), LocalDateTime.now());
+        }
+        testEntityManager.clear();
+
+        List<Message> history = messageRepository.findConversationHistory(
+                Long.valueOf(conversation.getId()), 4L, PageRequest.of(0, 2));
+
+        assertThat(history)
+                .extracting(Message::getSeq)
+                .containsExactly(3L, 2L);
+        assertThat(history)
+                .extracting(Message::getContent)
+                .containsExactly("Message 3", "Message 2");
+    }
+
+    @Test
+    void whenFindInboxThenOrderedByLastActivity() {
+        LocalDateTime now = LocalDateTime.now();
+        sendMessage(user1, user2, "Older", now.minusMinutes(10));
+        sendMessage(user3, user1, "Newer", now.minusMinutes(5));
+        testEntityManager.clear();
+
+        List<Conversation> asLow = conversationRepository.findInboxAsUserLow(
+                Long.valueOf(user1.getId()), PageRequest.of(0, 10));
+        List<Conversation> asHigh = conversationRepository.findInboxAsUserHigh(
+                Long.valueOf(user3.getId()), PageRequest.of(0, 10));
+
+        assertThat(asLow)
+                .extracting(conversation -> conversation.getLastMessage().getContent())
+                .containsExactly("Newer", "Older");
+        assertThat(asHigh).hasSize(1);
+        assertThat(asHigh.get(0).partnerOf(user3.getId()).getUsername()).isEqualTo("user1");
+    }
+
+    private Object conversationSequenceValue() {
+        return testEntityManager.getEntityManager()
+                .createNativeQuery("SELECT last_value FROM conversations_id_seq")
+                .getSingleResult();
+    }
+
+    private Conversation sendMessage(User sender, User receiver, String content, LocalDateTime at) {
+        long low = Math.min(sender.getId(), receiver.getId());
+        long high = Math.max(sender.getId(), receiver.getId());
+        ConversationRepository.MessageSlot slot = conversationRepository.reserveMessageSlot(low, high);
+        Conversation conversation = conversationRepository.getReferenceById(Long.valueOf(slot.getConversationId()));
+        Message message = messageRepository.saveAndFlush(Message.builder()
+                .sender(sender)
+                .receiver(receiver)
+                .content(content)
+                .conversation(conversation)
+                .seq(slot.getSeq())
+                .build());
+        conversationRepository.updateLastMessage(Long.valueOf(slot.getConversationId()), message, at);
+        return conversation;
+    }
+}
@@ -0,0 +1,252 @@
+package jobforj.social.repository;
+
+import jobforj.social.dto.FeedItem;
+import jobforj.social.dto.PostCursor;
+import jobforj.social.model.Post;
+import jobforj.social.model.Subscription;
+import jobforj.social.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Testcontainers
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class FeedEntryRepositoryTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @Autowired
+    private FeedEntryRepository feedEntryRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private User author;
+    private User follower1;
+    private User follower2;
+    private Post post1;
+    private Post post2;
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.driver-class-name", postgres::getDriverClassName);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> "2");
+        registry.add("spring.datasource.hikari.connection-timeout", () -> "2000");
+        registry.add("spring.liquibase.enabled", () -> "false");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+    }
+
+    @BeforeEach
+    void setUp() {
+        feedEntryRepository.deleteAll();
+        subscriptionRepository.deleteAll();
+        postRepository.deleteAll();
+        userRepository.deleteAll();
+
+        author = User.builder()
+                .username("author")
+                .email("author@example.com")
+                .passwordHash("password123")
+                .isActive(true)
+                .build();
+
+        follower1 = User.builder()
+                .username("follower1")
+                .email("follower1@example.com")
+                .passwordHash("password123")
+                .isActive(true)
+                .build();
+
+        follower2 = User.builder()
+                .username("follower2")
+                .email("follower2@example.com")
+                .passwordHash("password123")
+                .isActive(true)
+                .build();
+
+        userRepository.saveAll(List.of(author, follower1, follower2));
+
+        subscriptionRepository.save(Subscription.builder()
+                .follower(follower1)
+                .following(author)
+                .build());
+
+        post1 = Post.builder()
+                .user(author)
+                .title("First Post")
+                .content("Content of first post")
+                .build();
+
+        post2 = Post.builder()
+                .user(author)
+                .title("Second Post")
+                .content("Content of second post")
+                .build();
+
+        postRepository.saveAll(List.of(post1, post2));
+        testEntityManager.flush();
+        testEntityManager.clear();
+    }
+
+    @Test
+    void whenFanOutPostThenEntryCreatedForEveryFollower() {
+        int created = feedEntryRepository.fanOutPost(Long.valueOf(post1.getId()),
+                Long.valueOf(author.getId()), post1.getCreatedAt());
+
+        assertThat(created).isEqualTo(1);
+        assertThat(feedEntryRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void whenFanOutSamePostTwiceThenNoDuplicates() {
+        feedEntryRepository.fanOutPost(Long.valueOf(post1.getId()),
+                Long.valueOf(author.getId()), post1.getCreatedAt());
+        int createdAgain = feedEntryRepository.fanOutPost(Long.valueOf(post1.getId()),
+                Long.valueOf(author.getId()), post1.getCreatedAt());
+
+        assertThat(createdAgain).isZero();
+        assertThat(feedEntryRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void whenFindFeedPostsThenReturnNewestFirst() {
+        feedEntryRepository.fanOutPost(Long.valueOf(post1.getId()),
+                Long.valueOf(author.getId()), post1.getCreatedAt());
+        feedEntryRepository.fanOutPost(Long.valueOf(post2.getId()),
+                Long.valueOf(author.getId()), post2.getCreatedAt());
+
+        Page<Post> feed = feedEntryRepository.findFeedPosts(
+                Long.valueOf(follower1.getId()), PageRequest.of(0, 10));
+
+        assertThat(feed.getContent())
+                .extracting(Post::getTitle)
+                .containsExactly("Second Post", "First Post");
+        assertThat(feed.getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    void whenPostSoftDeletedThenExcludedFromFeed() {
+        feedEntryRepository.fanOutPost(Long.valueOf(post1.getId()),
+                Long.valueOf(author.getId()), post1.getCreatedAt());
+        feedEntryRepository.fanOutPost(Long.valueOf(post2.getId()),
+                Long.valueOf(author.getId()), post2.getCreatedAt());
+        postRepository.softDelete(Long.valueOf(post2.getId()));
+        testEntityManager.clear();
+
+        Page<Post> feed = feedEntryRepository.findFeedPosts(
+                Long.valueOf(follower1.getId()), PageRequest.of(0, 10));
+
+        assertThat(feed.getContent())
+                .extracting(Post::getTitle)
+                .containsExactly("First Post");
+    }
+
+    @Test
+    void whenBackfillFromAuthorThenFeedContainsExistingPosts() {
+        int created = feedEntryRepository.backfillFromAuthor(
+                Long.valueOf(follower2.getId()), Long.valueOf(author.getId()), 100);
+
+        Page<Post> feed = feedEntryRepository.findFeedPosts(
+                Long.valueOf(follower2.getId()), PageRequest.of(0, 10));
+
+        assertThat(created).isEqualTo(2);
+        assertThat(feed.getContent()).hasSize(2);
+    }
+
+    @Test
+    void whenBackfillFromAuthorWithLimitThenOnlyNewestPostsAreCopied() {
+        int created = feedEntryRepository.backfillFromAuthor(
+                Long.valueOf(follower2.getId()), Long.valueOf(author.getId()), 1);
+
+        Page<Post> feed = feedEntryRepository.findFeedPosts(
+                Long.valueOf(follower2.getId()), PageRequest.of(0, 10));
+
+        assertThat(created).isEqualTo(1);
+        assertThat(feed.getContent())
+                .extracting(Post::getTitle)
+                .containsExactly("Second Post");
+    }
+
+    @Test
+    void whenAuthorBecamePullSourceThenMergedFeedCountsFannedOutPostsOnce() {
+        feedEntryRepository.fanOutPost(Long.valueOf(post1.getId()),
+                Long.valueOf(author.getId()), post1.getCreatedAt());
+        feedEntryRepository.fanOutPost(Long.valueOf(post2.getId()),
+                Long.valueOf(author.getId()), post2.getCreatedAt());
+        Long followerId = Long.valueOf(follower1.getId());
+        List<Integer> pullAuthors = List.of(author.getId());
+
+        List<FeedItem> firstPage = feedEntryRepository.findMergedFeedItems(
+                followerId, pullAuthors, PageRequest.of(0, 10));
+        List<FeedItem> secondPage = feedEntryRepository.findMergedFeedItems(
+                followerId, pullAuthors, PageRequest.of(1, 1));
+
+        assertThat(firstPage).extracting(FeedItem::postId).containsExactly(post2.getId(), post1.getId());
+        assertThat(secondPage).extracting(FeedItem::postId).containsExactly(post1.getId());
+        assertThat(feedEntryRepository.countMergedFeed(followerId, pullAuthors)).isEqualTo(2);
+    }
+
+    @Test
+    void whenDeleteByFollowerAndAuthorThenFeedIsEmpty() {
+        feedEntryRepository.backfillFromAuthor(
+                Long.valueOf(follower1.getId()), Long.valueOf(author.getId()), 100);
+
+        int deleted = feedEntryRepository.deleteByFollowerAndAuthor(
+                Long.valueOf(follower1.getId()), Long.valueOf(author.getId()));
+
+        Page<Post> feed = feedEntryRepository.findFeedPosts(
+                Long.valueOf(follower1.getId()), PageRequest.of(0, 10));
+
+        assertThat(deleted).isEqualTo(2);
+        assertThat(feed.getContent()).isEmpty();
+    }
+
+    @Test
+    void whenFindFeedPostsBeforeCursorThenReturnOlderPostsOnly() {
+        feedEntryRepository.backfillFromAuthor(
+                Long.valueOf(follower1.getId()), Long.valueOf(author.getId()), 100);
+        PostCursor start = PostCursor.decode(null);
+
+        List<Post> firstPage = feedEntryRepository.findFeedPostsBeforeCursor(
+                Long.valueOf(follower1.getId()), start.createdAt(), start.idAsLong(), PageRequest.of(0, 1));
+        PostCursor next = PostCursor.of(firstPage.get(0));
+        List<Post> secondPage = feedEntryRepository.findFeedPostsBeforeCursor(
+                Long.valueOf(follower1.getId()), next.createdAt(), next.idAsLong(), PageRequest.of(0, 1));
+
+        assertThat(firstPage).extracting(Post::getTitle).containsExactly("Second Post");
+        assertThat(secondPage).extracting(Post::getTitle).containsExactly("First Post");
+    }
+}
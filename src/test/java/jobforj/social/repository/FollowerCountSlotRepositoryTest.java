@@ -0,0 +1,101 @@
+package jobforj.social.repository;
+
+import jobforj.social.dto.UserProfile;
+import jobforj.social.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Testcontainers
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class FollowerCountSlotRepositoryTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @Autowired
+    private FollowerCountSlotRepository slotRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private User author;
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.driver-class-name", postgres::getDriverClassName);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> "2");
+        registry.add("spring.datasource.hikari.connection-timeout", () -> "2000");
+        registry.add("spring.liquibase.enabled", () -> "false");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+    }
+
+    @BeforeEach
+    void setUp() {
+        slotRepository.deleteAll();
+        userRepository.deleteAll();
+        author = userRepository.save(User.builder()
+                .username("celebrity")
+                .email("celebrity@example.com")
+                .passwordHash("password123")
+                .build());
+        testEntityManager.flush();
+        testEntityManager.clear();
+    }
+
+    @Test
+    void whenAddDeltaToSameSlotThenSlotAccumulates() {
+        slotRepository.addDelta(author.getId(), (short) 3, 5);
+        slotRepository.addDelta(author.getId(), (short) 3, -2);
+        slotRepository.addDelta(author.getId(), (short) 7, 4);
+
+        assertThat(slotRepository.count()).isEqualTo(2);
+        assertThat(slotRepository.sumDelta(Long.valueOf(author.getId()))).isEqualTo(7);
+    }
+
+    @Test
+    void whenUserHasNoSlotsThenSumIsZero() {
+        assertThat(slotRepository.sumDelta(Long.valueOf(author.getId()))).isZero();
+    }
+
+    @Test
+    void whenSlotsExistThenProfileAndReconciliationIncludeThem() {
+        Long authorId = Long.valueOf(author.getId());
+        slotRepository.addDelta(author.getId(), (short) 0, 2);
+        slotRepository.addDelta(author.getId(), (short) 1, 1);
+
+        assertThat(userRepository.findProfile(authorId))
+                .contains(new UserProfile(author.getId(), "celebrity", 3, 0, 0));
+
+        int fixed = userRepository.reconcileCounters(List.of(author.getId()));
+
+        assertThat(fixed).isEqualTo(1);
+        assertThat(userRepository.findFollowersCount(authorId)).contains(-3);
+        assertThat(userRepository.findProfile(authorId))
+                .contains(new UserProfile(author.getId(), "celebrity", 0, 0, 0));
+    }
+}
@@ -441,6 +441,20 @@ class FriendshipRepositoryTest {
         assertThat(found.get().getStatus()).isEqualTo(FriendshipStatus.REJECTED);
     }
 
+    @Test
+    void whenFindIdsByStatusAfterThenReturnIdOrderedChunk() {
+        List<Integer> first = friendshipRepository.findIdsByStatusAfter(
+                FriendshipStatus.ACCEPTED, 0, PageRequest.of(0, 1));
+        List<Integer> second = friendshipRepository.findIdsByStatusAfter(
+                FriendshipStatus.ACCEPTED, first.get(0), PageRequest.of(0, 1));
+        List<Integer> rest = friendshipRepository.findIdsByStatusAfter(
+                FriendshipStatus.ACCEPTED, second.get(0), PageRequest.of(0, 1));
+
+        assertThat(first).containsExactly(friendship2.getId());
+        assertThat(second).containsExactly(friendship3.getId());
+        assertThat(rest).isEmpty();
+    }
+
     private void createMultipleFriendshipsForUser(User requester, int count, FriendshipStatus status) {
         IntStream.rangeClosed(1, count).forEach(i -> {
             User newUser = User.builder()
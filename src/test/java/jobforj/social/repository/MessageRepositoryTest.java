@@ -1,5 +1,6 @@
 package jobforj.social.repository;
 
+import jobforj.social.model.Conversation;
 import jobforj.social.model.Message;
 import jobforj.social.model.User;
 import org.junit.jupiter.api.BeforeEach;
@@ -46,6 +47,9 @@ class MessageRepositoryTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ConversationRepository conversationRepository;
+
     @Autowired
     private TestEntityManager testEntityManager;
 
@@ -55,6 +59,8 @@ class MessageRepositoryTest {
     private User user1;
     private User user2;
     private User user3;
+    private Conversation conversation12;
+    private Conversation conversation13;
     private Message message1;
     private Message message2;
     private Message message3;
@@ -76,6 +82,7 @@ class MessageRepositoryTest {
     @BeforeEach
     void setUp() {
         messageRepository.deleteAll();
+        conversationRepository.deleteAll();
         userRepository.deleteAll();
 
         user1 = User.builder()
@@ -101,39 +108,57 @@ class MessageRepositoryTest {
 
         userRepository.saveAll(List.of(user1, user2, user3));
 
+        // user2 прочитал первое сообщение переписки с user1 (message3), остальные не прочитаны
+        conversation12 = conversationRepository.save(Conversation.builder()
+                .userLow(user1)
+                .userHigh(user2)
+                .lastSeq(3L)
+                .userHighReadSeq(1L)
+                .build());
+        conversation13 = conversationRepository.save(Conversation.builder()
+                .userLow(user1)
+                .userHigh(user3)
+                .lastSeq(2L)
+                .build());
+
         message1 = Message.builder()
                 .sender(user1)
                 .receiver(user2)
                 .content("Hello from user1 to user2")
-                .isRead(false)
+                .conversation(conversation12)
+                .seq(2L)
                 .build();
 
         message2 = Message.builder()
                 .sender(user2)
                 .receiver(user1)
                 .content("Reply from user2 to user1")
-                .isRead(false)
+                .conversation(conversation12)
+                .seq(3L)
                 .build();
 
         message3 = Message.builder()
                 .sender(user1)
                 .receiver(user2)
                 .content("Second message from user1 to user2")
-                .isRead(true)
+                .conversation(conversation12)
+                .seq(1L)
                 .build();
 
         message4 = Message.builder()
                 .sender(user1)
                 .receiver(user3)
                 .content("Message from user1 to user3")
-                .isRead(false)
+                .conversation(conversation13)
+                .seq(1L)
                 .build();
 
         message5 = Message.builder()
                 .sender(user3)
                 .receiver(user1)
                 .content("Reply from user3 to user1")
-                .isRead(false)
+                .conversation(conversation13)
+                .seq(2L)
                 .build();
 
         messageRepository.saveAll(List.of(message1, message2, message3, message4, message5));
@@ -261,7 +286,7 @@ class MessageRepositoryTest {
     }
 
     @Test
-    void whenMarkMessagesAsReadByReceiverAndSenderThenUpdateStatus() {
+    void whenMarkMessagesAsReadByReceiverAndSenderThenAdvanceWatermark() {
         int updatedCount = messageRepository.markMessagesAsRead(
                 Long.valueOf(user2.getId()),
                 Long.valueOf(user1.getId())
@@ -272,17 +297,19 @@ class MessageRepositoryTest {
 
         assertThat(updatedCount).isEqualTo(1); // только message1 было не прочитано
 
-        Message message = messageRepository.findById(Long.valueOf(message1.getId())).orElse(null);
-        assertThat(message).isNotNull();
-        assertThat(message.getIsRead()).isTrue();
+        Conversation conversation = conversationRepository.findByUsers(
+                Long.valueOf(user1.getId()), Long.valueOf(user2.getId())).orElseThrow();
+        assertThat(conversation.readSeqOf(user2.getId())).isEqualTo(3L);
+        assertThat(conversation.readSeqOf(user1.getId())).isZero();
 
-        Message otherMessage = messageRepository.findById(Long.valueOf(message2.getId())).orElse(null);
-        assertThat(otherMessage).isNotNull();
-        assertThat(otherMessage.getIsRead()).isFalse(); // это сообщение от user2, оно не должно измениться
+        assertThat(messageRepository.findAllUnreadMessages(Long.valueOf(user2.getId()))).isEmpty();
+        assertThat(messageRepository.findAllUnreadMessages(Long.valueOf(user1.getId())))
+                .extracting(Message::getContent)
+                .contains("Reply from user2 to user1"); // это сообщение от user2, оно не должно измениться
     }
 
     @Test
-    void whenMarkMessagesAsReadByMessageIdsThenUpdateStatus() {
+    void whenMarkMessagesAsReadByMessageIdsThenAdvanceWatermarks() {
         List<Long> messageIds = List.of(
                 Long.valueOf(message1.getId()),
                 Long.valueOf(message4.getId())
@@ -292,18 +319,30 @@ class MessageRepositoryTest {
         testEntityManager.flush();
         testEntityManager.clear();
 
-        Message msg1 = messageRepository.findById(Long.valueOf(message1.getId())).orElse(null);
-        Message msg4 = messageRepository.findById(Long.valueOf(message4.getId())).orElse(null);
-        Message msg2 = messageRepository.findById(Long.valueOf(message2.getId())).orElse(null);
+        assertThat(messageRepository.countUnreadMessages(Long.valueOf(user2.getId()))).isZero();
+        assertThat(messageRepository.countUnreadMessages(Long.valueOf(user3.getId()))).isZero();
+        assertThat(messageRepository.countUnreadMessages(Long.valueOf(user1.getId()))).isEqualTo(2);
+    }
 
-        assertThat(msg1).isNotNull();
-        assertThat(msg1.getIsRead()).isTrue();
+    @Test
+    void whenMarkMessagesAsReadByMessageIdThenEarlierMessagesAreReadToo() {
+        Message later = messageRepository.save(Message.builder()
+                .sender(user3)
+                .receiver(user1)
+                .content("Another reply from user3 to user1")
+                .conversation(conversationRepository.getReferenceById(
+                        Long.valueOf(message5.getConversation().getId())))
+                .seq(3L)
+                .build());
+        testEntityManager.flush();
 
-        assertThat(msg4).isNotNull();
-        assertThat(msg4.getIsRead()).isTrue();
+        messageRepository.markMessagesAsRead(List.of(Long.valueOf(later.getId())));
+        testEntityManager.flush();
+        testEntityManager.clear();
 
-        assertThat(msg2).isNotNull();
-        assertThat(msg2.getIsRead()).isFalse();
+        assertThat(messageRepository.findAllUnreadMessages(Long.valueOf(user1.getId())))
+                .extracting(Message::getContent)
+                .containsExactly("Reply from user2 to user1");
     }
 
     @Test
@@ -326,8 +365,6 @@ class MessageRepositoryTest {
                 .extracting(Message::getSender)
                 .extracting(User::getUsername)
                 .containsExactlyInAnyOrder("user2", "user3");
-        assertThat(unreadMessages)
-                .allMatch(m -> !m.getIsRead());
     }
 
     @Test
@@ -401,18 +438,45 @@ class MessageRepositoryTest {
         assertThat(messageRepository.count()).isEqualTo(5);
     }
 
+    @Test
+    void whenMarkMessagesAsReadThenDecrementUnreadCounters() {
+        userRepository.addUnreadMessages(Long.valueOf(user1.getId()), 2);
+        userRepository.addUnreadMessages(Long.valueOf(user2.getId()), 1);
+        userRepository.addUnreadMessages(Long.valueOf(user3.getId()), 1);
+
+        int updatedCount = messageRepository.markMessagesAsRead(
+                Long.valueOf(user1.getId()),
+                Long.valueOf(user2.getId())
+        );
+        messageRepository.markMessagesAsRead(List.of(
+                Long.valueOf(message1.getId()),
+                Long.valueOf(message3.getId()),
+                Long.valueOf(message4.getId())
+        ));
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        assertThat(updatedCount).isEqualTo(1);
+        assertThat(userRepository.findUnreadMessagesCount(Long.valueOf(user1.getId()))).contains(1);
+        assertThat(userRepository.findUnreadMessagesCount(Long.valueOf(user2.getId()))).contains(0);
+        assertThat(userRepository.findUnreadMessagesCount(Long.valueOf(user3.getId()))).contains(0);
+        assertThat(userRepository.findUnreadMessagesCount(Long.valueOf(user1.getId())).orElseThrow())
+                .isEqualTo(messageRepository.countUnreadMessages(Long.valueOf(user1.getId())));
+    }
+
     @Test
     void whenCreateMessageThenFieldsAreSetCorrectly() {
         Message newMessage = Message.builder()
                 .sender(user1)
                 .receiver(user3)
                 .content("Test message content")
+                .conversation(conversation13)
+                .seq(3L)
                 .build();
 
         messageRepository.save(newMessage);
         testEntityManager.flush();
 
-        assertThat(newMessage.getIsRead()).isFalse();
         assertThat(newMessage.getCreatedAt()).isNotNull();
 
         Message foundMessage = messageRepository.findById(Long.valueOf(newMessage.getId())).orElse(null);
@@ -433,18 +497,25 @@ class MessageRepositoryTest {
     }
 
     private void createMultipleMessagesForUser(User sender, User receiver, int count) {
+        Conversation conversation = conversationRepository.getReferenceById(
+                Long.valueOf(conversation12.getId()));
+        long lastSeq = conversation12.getLastSeq();
         IntStream.rangeClosed(1, count).forEach(i -> {
             Message message = Message.builder()
                     .sender(sender)
                     .receiver(receiver)
                     .content("Test message " + i)
-                    .isRead(false)
+                    .conversation(conversation)
+                    .seq(lastSeq + i)
                     .build();
             messageRepository.save(message);
         });
     }
 
     private void createMultipleMessagesForConversation(User user1, User user2, int count) {
+        Conversation conversation = conversationRepository.getReferenceById(
+                Long.valueOf(conversation12.getId()));
+        long lastSeq = conversation12.getLastSeq();
         IntStream.rangeClosed(1, count).forEach(i -> {
             Message message;
             if (i % 2 == 0) {
@@ -452,14 +523,16 @@ class MessageRepositoryTest {
                         .sender(user1)
                         .receiver(user2)
                         .content("Message from user1 " + i)
-                        .isRead(false)
+                        .conversation(conversation)
+                        .seq(lastSeq + i)
                         .build();
             } else {
                 message = Message.builder()
                         .sender(user2)
                         .receiver(user1)
                         .content("Message from user2 " + i)
-                        .isRead(false)
+                        .conversation(conversation)
+                        .seq(lastSeq + i)
                         .build();
             }
             messageRepository.save(message);
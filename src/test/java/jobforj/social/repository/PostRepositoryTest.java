@@ -1,5 +1,9 @@
 package jobforj.social.repository;
 
+import jobforj.social.dto.FeedItem;
+import jobforj.social.dto.PostCursor;
+import jobforj.social.dto.PostSummary;
+import jobforj.social.dto.SearchCursor;
 import jobforj.social.model.Post;
 import jobforj.social.model.Image;
 import jobforj.social.model.Subscription;
@@ -17,6 +21,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.jdbc.Sql;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
@@ -350,6 +355,37 @@ class PostRepositoryTest {
         assertThat(result.getContent()).isEmpty();
     }
 
+    @Test
+    void whenSoftDeleteTwiceThenOnlyFirstCallChangesPost() {
+        Long postId = Long.valueOf(post1.getId());
+
+        int first = postRepository.softDelete(postId);
+        int second = postRepository.softDelete(postId);
+        int byAuthor = postRepository.softDeleteUserPost(Long.valueOf(user1.getId()), postId);
+
+        assertThat(first).isEqualTo(1);
+        assertThat(second).isZero();
+        assertThat(byAuthor).isZero();
+        assertThat(postRepository.lockActiveAuthorIdById(postId)).isEmpty();
+    }
+
+    @Test
+    void whenLockActivePostThenAuthorIsReturned() {
+        assertThat(postRepository.lockActiveAuthorIdById(Long.valueOf(post1.getId())))
+                .contains(user1.getId());
+        assertThat(postRepository.lockActiveAuthorIdById(999L)).isEmpty();
+    }
+
+    @Test
+    void whenLockUserPostThenOnlyAuthorGetsDeletedFlag() {
+        Long postId = Long.valueOf(post1.getId());
+
+        assertThat(postRepository.lockDeletedFlagOfUserPost(Long.valueOf(user1.getId()), postId)).contains(false);
+        assertThat(postRepository.lockDeletedFlagOfUserPost(Long.valueOf(user2.getId()), postId)).isEmpty();
+        postRepository.softDelete(postId);
+        assertThat(postRepository.lockDeletedFlagOfUserPost(Long.valueOf(user1.getId()), postId)).contains(true);
+    }
+
     @Test
     void whenSoftDeleteNonExistentPostThenNoException() {
         postRepository.softDelete(999L);
@@ -633,4 +669,150 @@ class PostRepositoryTest {
         assertThat(post).isNotNull();
         assertThat(post.getIsDeleted()).isFalse();
     }
-}
\ No newline at end of file
+
+    @Test
+    void whenFindAllBeforeCursorThenPagesDoNotOverlap() {
+        createMultiplePostsForUser(user1, 5);
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        PostCursor start = PostCursor.decode(null);
+        List<Post> firstPage = postRepository.findAllBeforeCursor(
+                start.createdAt(), start.idAsLong(), PageRequest.of(0, 4));
+        PostCursor next = PostCursor.of(firstPage.get(firstPage.size() - 1));
+        List<Post> secondPage = postRepository.findAllBeforeCursor(
+                next.createdAt(), next.idAsLong(), PageRequest.of(0, 4));
+
+        assertThat(firstPage).hasSize(4);
+        assertThat(secondPage).hasSize(4);
+        assertThat(secondPage)
+                .extracting(Post::getId)
+                .doesNotContainAnyElementsOf(firstPage.stream().map(Post::getId).toList());
+        assertThat(secondPage).allMatch(p -> !p.getIsDeleted());
+    }
+
+    @Test
+    void whenFindPostsByUserIdsBeforeCursorThenReturnOnlyOlderPosts() {
+        List<Long> userIds = List.of(Long.valueOf(user1.getId()), Long.valueOf(user2.getId()));
+        PostCursor start = PostCursor.decode(null);
+        List<Post> all = postRepository.findPostsByUserIdsBeforeCursor(
+                userIds, start.createdAt(), start.idAsLong(), PageRequest.of(0, 10));
+        PostCursor afterFirst = PostCursor.of(all.get(0));
+
+        List<Post> rest = postRepository.findPostsByUserIdsBeforeCursor(
+                userIds, afterFirst.createdAt(), afterFirst.idAsLong(), PageRequest.of(0, 10));
+
+        assertThat(all)
+                .extracting(Post::getTitle)
+                .containsExactly("Third Post", "Second Post", "First Post");
+        assertThat(rest)
+                .extracting(Post::getTitle)
+                .containsExactly("Second Post", "First Post");
+    }
+
+    @Test
+    void whenFindPostsInDateRangeBeforeCursorThenExcludeDeletedPosts() {
+        PostCursor start = PostCursor.decode(null);
+        List<Post> result = postRepository.findPostsInDateRangeBeforeCursor(
+                LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1),
+                start.createdAt(), start.idAsLong(), PageRequest.of(0, 10));
+
+        assertThat(result).hasSize(3);
+        assertThat(result).allMatch(p -> !p.getIsDeleted());
+    }
+
+    @Test
+    void whenFindItemsByAuthorBeforeCursorThenReturnKeysNewestFirst() {
+        PostCursor start = PostCursor.decode(null);
+        List<FeedItem> items = postRepository.findItemsByAuthorBeforeCursor(
+                Long.valueOf(user1.getId()), start.createdAt(), start.idAsLong(), PageRequest.of(0, 10));
+
+        assertThat(items)
+                .extracting(FeedItem::postId)
+                .containsExactly(post2.getId(), post1.getId());
+    }
+
+    @Test
+    void whenFindActiveByIdsThenSkipDeletedPosts() {
+        List<Post> result = postRepository.findActiveByIds(List.of(
+                Long.valueOf(post1.getId()), Long.valueOf(post4.getId())));
+
+        assertThat(result)
+                .extracting(Post::getTitle)
+                .containsExactly("First Post");
+    }
+
+    @Test
+    void whenFindSummariesBeforeCursorThenReturnProjectionsWithImageCount() {
+        testEntityManager.persist(Image.builder()
+                .post(postRepository.getReferenceById(Long.valueOf(post2.getId())))
+                .url("https://example.com/image.jpg")
+                .fileName("image.jpg")
+                .build());
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        PostCursor start = PostCursor.decode(null);
+        List<PostSummary> summaries = postRepository.findSummariesBeforeCursor(
+                start.createdAt(), start.idAsLong(), 7, PageRequest.of(0, 10));
+
+        assertThat(summaries)
+                .extracting(PostSummary::title)
+                .containsExactly("Third Post", "Second Post", "First Post");
+        assertThat(summaries.get(1).authorUsername()).isEqualTo("user1");
+        assertThat(summaries.get(1).preview()).isEqualTo("Content");
+        assertThat(summaries.get(1).imageCount()).isEqualTo(1L);
+        assertThat(summaries.get(0).imageCount()).isZero();
+    }
+
+    @Test
+    void whenFindSummariesInOrderThenKeepFeedOrderAndSkipDeletedPosts() {
+        List<PostSummary> summaries = postRepository.findSummariesInOrder(List.of(
+                new FeedItem(post1.getId(), post1.getCreatedAt()),
+                new FeedItem(post4.getId(), post4.getCreatedAt()),
+                new FeedItem(post3.getId(), post3.getCreatedAt())));
+
+        assertThat(summaries)
+                .extracting(PostSummary::id)
+                .containsExactly(post1.getId(), post3.getId());
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/scripts/014_ddl_add_posts_search_vector.sql")
+    void whenSearchBeforeCursorThenRankMatchesAndSkipDeletedPosts() {
+        postRepository.saveAll(List.of(
+                Post.builder()
+                        .user(user1)
+                        .title("Лента новостей")
+                        .content("Как устроена лента подписок")
+                        .build(),
+                Post.builder()
+                        .user(user2)
+                        .title("Погода")
+                        .content("Завтра в ленте будет прогноз")
+                        .build(),
+                Post.builder()
+                        .user(user2)
+                        .title("Удаленная лента")
+                        .content("Лента")
+                        .isDeleted(true)
+                        .build()));
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        SearchCursor start = SearchCursor.decode(null);
+        List<PostRepository.SearchHit> firstPage = postRepository.searchBeforeCursor(
+                "лента", start.rank(), start.idAsLong(), 1);
+        PostRepository.SearchHit first = firstPage.get(0);
+        List<PostRepository.SearchHit> secondPage = postRepository.searchBeforeCursor(
+                "лента", first.getRank(), Long.valueOf(first.getId()), 10);
+
+        assertThat(firstPage).hasSize(1);
+        assertThat(postRepository.findById(Long.valueOf(first.getId())))
+                .get()
+                .extracting(Post::getTitle)
+                .isEqualTo("Лента новостей");
+        assertThat(secondPage).hasSize(1);
+        assertThat(secondPage.get(0).getRank()).isLessThanOrEqualTo(first.getRank());
+    }
+}
@@ -0,0 +1,612 @@
+package jobforj.social.repository;
+
+import jobforj.social.dto.SubscriptionPair;
+import jobforj.social.model.Friendship;
+import jobforj.social.model.User;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверяет, что запросы репозиториев обслуживаются индексами из миграций Liquibase.
+ * Схема создается миграциями, последовательное сканирование запрещается для планировщика,
+ * затем вызывается метод репозитория. SQL, который он отправил в базу, перехватывается
+ * вместе с привязанными параметрами, и план каждого такого запроса не должен содержать Seq Scan.
+ */
+@DataJpaTest
+@Testcontainers
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(QueryPlanTest.RecordingConfiguration.class)
+class QueryPlanTest {
+
+    /**
+     * Вторая страница: для пустого результата Spring Data выполняет и запрос количества.
+     */
+    private static final PageRequest PAGE = PageRequest.of(1, 20);
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private ImageRepository imageRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FriendshipRepository friendshipRepository;
+
+    @Autowired
+    private SubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private FeedEntryRepository feedEntryRepository;
+
+    @Autowired
+    private SubscriptionOutboxRepository outboxRepository;
+
+    @Autowired
+    private FollowerCountSlotRepository followerCountSlotRepository;
+
+    private User user1;
+    private User user2;
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.driver-class-name", postgres::getDriverClassName);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> "2");
+        registry.add("spring.datasource.hikari.connection-timeout", () -> "2000");
+        registry.add("spring.liquibase.enabled", () -> "true");
+        registry.add("spring.liquibase.change-log", () -> "classpath:db/dbchangelog.xml");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "none");
+    }
+
+    @BeforeEach
+    void setUp() {
+        user1 = userRepository.save(User.builder()
+                .username("user1")
+                .email("user1@example.com")
+                .passwordHash("password123")
+                .build());
+        user2 = userRepository.save(User.builder()
+                .username("user2")
+                .email("user2@example.com")
+                .passwordHash("password123")
+                .build());
+        entityManager.flush();
+        entityManager.createNativeQuery("SET LOCAL enable_seqscan = off").executeUpdate();
+    }
+
+    static Stream<Arguments> repositoryCalls() {
+        return Stream.of(
+                call("PostRepository.updatePost", test ->
+                        test.postRepository.updatePost("title", "content", 1L)),
+                call("PostRepository.deleteImageByIdAndPostId", test ->
+                        test.postRepository.deleteImageByIdAndPostId(1L, 1L)),
+                call("PostRepository.deletePost", test ->
+                        test.postRepository.deletePost(1L)),
+                call("PostRepository.findByUserOrderByCreatedAtDesc(User)", test ->
+                        test.postRepository.findByUserOrderByCreatedAtDesc(test.user1)),
+                call("PostRepository.findByCreatedAtBetweenOrderByCreatedAtDesc", test ->
+                        test.postRepository.findByCreatedAtBetweenOrderByCreatedAtDesc(
+                                LocalDateTime.now().minusDays(1), LocalDateTime.now())),
+                call("PostRepository.findAllByOrderByCreatedAtDesc", test ->
+                        test.postRepository.findAllByOrderByCreatedAtDesc(PAGE)),
+                call("PostRepository.findByUserOrderByCreatedAtDesc(User, Pageable)", test ->
+                        test.postRepository.findByUserOrderByCreatedAtDesc(test.user1, PAGE)),
+                call("PostRepository.findByUserIdOrderByCreatedAtDesc", test ->
+                        test.postRepository.findByUserIdOrderByCreatedAtDesc(test.user1Id(), PAGE)),
+                call("PostRepository.findPostsByUserIds", test ->
+                        test.postRepository.findPostsByUserIds(List.of(test.user1Id(), test.user2Id()), PAGE)),
+                call("PostRepository.findPostsByUsers", test ->
+                        test.postRepository.findPostsByUsers(List.of(test.user1, test.user2), PAGE)),
+                call("PostRepository.getFeedForUser(Long)", test ->
+                        test.postRepository.getFeedForUser(test.user1Id(), PAGE)),
+                call("PostRepository.getFeedForUser(User)", test ->
+                        test.postRepository.getFeedForUser(test.user1, PAGE)),
+                call("PostRepository.findAllBeforeCursor", test ->
+                        test.postRepository.findAllBeforeCursor(LocalDateTime.now(), 100L, PageRequest.of(0, 21))),
+                call("PostRepository.findPostsByUserIdsBeforeCursor", test ->
+                        test.postRepository.findPostsByUserIdsBeforeCursor(List.of(test.user1Id(), test.user2Id()),
+                                LocalDateTime.now(), 100L, PageRequest.of(0, 21))),
+                call("PostRepository.findPostsInDateRangeBeforeCursor", test ->
+                        test.postRepository.findPostsInDateRangeBeforeCursor(LocalDateTime.now().minusDays(1),
+                                LocalDateTime.now(), LocalDateTime.now(), 100L, PageRequest.of(0, 21))),
+                call("PostRepository.findItemsByAuthorBeforeCursor", test ->
+                        test.postRepository.findItemsByAuthorBeforeCursor(test.user1Id(), LocalDateTime.now(),
+                                100L, PageRequest.of(0, 64))),
+                call("PostRepository.findActiveByIds", test ->
+                        test.postRepository.findActiveByIds(List.of(1L, 2L, 3L))),
+                call("PostRepository.findSummariesBeforeCursor", test ->
+                        test.postRepository.findSummariesBeforeCursor(LocalDateTime.now(), 100L, 200,
+                                PageRequest.of(0, 21))),
+                call("PostRepository.findSummariesByUserIdBeforeCursor", test ->
+                        test.postRepository.findSummariesByUserIdBeforeCursor(test.user1Id(), LocalDateTime.now(),
+                                100L, 200, PageRequest.of(0, 21))),
+                call("PostRepository.findSummariesByIds", test ->
+                        test.postRepository.findSummariesByIds(List.of(1L, 2L, 3L), 200)),
+                call("PostRepository.searchBeforeCursor", test ->
+                        test.postRepository.searchBeforeCursor("лента", 1.0, 100L, 20)),
+                call("PostRepository.findActiveAuthorIdById", test ->
+                        test.postRepository.findActiveAuthorIdById(1L)),
+                call("PostRepository.lockActiveAuthorIdById", test ->
+                        test.postRepository.lockActiveAuthorIdById(1L)),
+                call("PostRepository.lockDeletedFlagOfUserPost", test ->
+                        test.postRepository.lockDeletedFlagOfUserPost(test.user1Id(), 1L)),
+                call("PostRepository.countActivePostsByUserId", test ->
+                        test.postRepository.countActivePostsByUserId(test.user1Id())),
+                call("PostRepository.softDelete", test ->
+                        test.postRepository.softDelete(1L)),
+                call("PostRepository.softDeleteAllByUserId", test ->
+                        test.postRepository.softDeleteAllByUserId(test.user1Id())),
+                call("PostRepository.findPostsInDateRange", test ->
+                        test.postRepository.findPostsInDateRange(LocalDateTime.now().minusDays(1),
+                                LocalDateTime.now(), PAGE)),
+                call("PostRepository.updateUserPost", test ->
+                        test.postRepository.updateUserPost(test.user1Id(), 1L, "title", "content")),
+                call("PostRepository.softDeleteUserPost", test ->
+                        test.postRepository.softDeleteUserPost(test.user1Id(), 1L)),
+                call("PostRepository.deleteUserPost", test ->
+                        test.postRepository.deleteUserPost(test.user1Id(), 1L)),
+                call("ImageRepository.findByPost", test ->
+                        test.imageRepository.findByPost(test.postRepository.getReferenceById(1L))),
+                call("ImageRepository.findByPostId", test ->
+                        test.imageRepository.findByPostId(1L)),
+                call("ImageRepository.findAllByPostIds", test ->
+                        test.imageRepository.findAllByPostIds(List.of(1L, 2L, 3L))),
+                call("ImageRepository.deleteAllByPostId", test ->
+                        test.imageRepository.deleteAllByPostId(1L)),
+                call("ImageRepository.deleteAllByIds", test ->
+                        test.imageRepository.deleteAllByIds(List.of(1L, 2L))),
+                call("ImageRepository.countByPostId", test ->
+                        test.imageRepository.countByPostId(1L)),
+                call("ImageRepository.attachImagesToPost", test ->
+                        test.imageRepository.attachImagesToPost(List.of(1L, 2L), 1L)),
+                call("MessageRepository.findBySenderOrderByCreatedAtDesc", test ->
+                        test.messageRepository.findBySenderOrderByCreatedAtDesc(test.user1, PAGE)),
+                call("MessageRepository.findByReceiverOrderByCreatedAtDesc", test ->
+                        test.messageRepository.findByReceiverOrderByCreatedAtDesc(test.user1, PAGE)),
+                call("MessageRepository.findConversation(User, User)", test ->
+                        test.messageRepository.findConversation(test.user1, test.user2, PAGE)),
+                call("MessageRepository.findConversation(Long, Long)", test ->
+                        test.messageRepository.findConversation(test.user1Id(), test.user2Id(), PAGE)),
+                call("MessageRepository.findConversationHistory", test ->
+                        test.messageRepository.findConversationHistory(1L, 100L, PageRequest.of(0, 20))),
+                call("MessageRepository.countUnreadMessages", test ->
+                        test.messageRepository.countUnreadMessages(test.user1Id())),
+                call("MessageRepository.markMessagesAsRead", test ->
+                        test.messageRepository.markMessagesAsRead(test.user1Id(), test.user2Id())),
+                call("MessageRepository.markMessagesAsReadById", test ->
+                        test.messageRepository.markMessagesAsReadById(List.of(1L, 2L))),
+                call("MessageRepository.findAllUnreadMessages", test ->
+                        test.messageRepository.findAllUnreadMessages(test.user1Id())),
+                call("ConversationRepository.findByUsers", test ->
+                        test.conversationRepository.findByUsers(test.user1Id(), test.user2Id())),
+                call("ConversationRepository.incrementMessageSlot", test ->
+                        test.conversationRepository.incrementMessageSlot(test.user1Id(), test.user2Id())),
+                call("ConversationRepository.createMessageSlot", test ->
+                        test.conversationRepository.createMessageSlot(test.user1Id(), test.user2Id())),
+                call("ConversationRepository.updateLastMessage", test ->
+                        test.conversationRepository.updateLastMessage(1L,
+                                test.messageRepository.getReferenceById(1L), LocalDateTime.now())),
+                call("ConversationRepository.findInboxAsUserLow", test ->
+                        test.conversationRepository.findInboxAsUserLow(test.user1Id(), PageRequest.of(0, 20))),
+                call("ConversationRepository.findInboxAsUserHigh", test ->
+                        test.conversationRepository.findInboxAsUserHigh(test.user1Id(), PageRequest.of(0, 20))),
+                call("UserRepository.findPostsByFollowing", test ->
+                        test.userRepository.findPostsByFollowing(test.user1Id(), PAGE)),
+                call("UserRepository.findFriendsByUserId", test ->
+                        test.userRepository.findFriendsByUserId(test.user1Id())),
+                call("UserRepository.findByUsernameAndPasswordHash", test ->
+                        test.userRepository.findByUsernameAndPasswordHash("user1", "password123")),
+                call("UserRepository.findFollowersByUserId", test ->
+                        test.userRepository.findFollowersByUserId(test.user1Id())),
+                call("UserRepository.findByUsername", test ->
+                        test.userRepository.findByUsername("user1")),
+                call("UserRepository.findByEmail", test ->
+                        test.userRepository.findByEmail("user1@example.com")),
+                call("UserRepository.existsByUsername", test ->
+                        test.userRepository.existsByUsername("user1")),
+                call("UserRepository.existsByEmail", test ->
+                        test.userRepository.existsByEmail("user1@example.com")),
+                call("UserRepository.searchUsers", test ->
+                        test.userRepository.searchUsers("smith", PAGE)),
+                call("UserRepository.findSuggestions", test ->
+                        test.userRepository.findSuggestions("smi%", "smi", PageRequest.of(0, 10))),
+                fullScan("UserRepository.findAllActiveUsers", "users", test ->
+                        test.userRepository.findAllActiveUsers()),
+                call("UserRepository.findUsersCreatedAfter", test ->
+                        test.userRepository.findUsersCreatedAfter(LocalDateTime.now().minusDays(1))),
+                call("UserRepository.deactivateUser", test ->
+                        test.userRepository.deactivateUser(test.user1Id())),
+                call("UserRepository.addUnreadMessages", test ->
+                        test.userRepository.addUnreadMessages(test.user1Id(), 1)),
+                call("UserRepository.findUnreadMessagesCount", test ->
+                        test.userRepository.findUnreadMessagesCount(test.user1Id())),
+                call("UserRepository.addSubscription", test ->
+                        test.userRepository.addSubscription(test.user1Id(), test.user2Id(), 1)),
+                call("UserRepository.addFollowers", test ->
+                        test.userRepository.addFollowers(List.of(test.user1.getId(), test.user2.getId()), 1)),
+                call("UserRepository.addFollowing", test ->
+                        test.userRepository.addFollowing(test.user1Id(), 1)),
+                call("UserRepository.addPosts", test ->
+                        test.userRepository.addPosts(test.user1Id(), 1)),
+                call("UserRepository.resetPosts", test ->
+                        test.userRepository.resetPosts(test.user1Id())),
+                call("UserRepository.findFollowersCount", test ->
+                        test.userRepository.findFollowersCount(test.user1Id())),
+                call("UserRepository.findFollowingCount", test ->
+                        test.userRepository.findFollowingCount(test.user1Id())),
+                call("UserRepository.findPostsCount", test ->
+                        test.userRepository.findPostsCount(test.user1Id())),
+                call("UserRepository.findProfile", test ->
+                        test.userRepository.findProfile(test.user1Id())),
+                call("UserRepository.lockIdChunk", test ->
+                        test.userRepository.lockIdChunk(0, 1000)),
+                call("UserRepository.reconcileCounters", test ->
+                        test.userRepository.reconcileCounters(List.of(test.user1.getId(), test.user2.getId()))),
+                call("UserRepository.reconcileCountersExceptFollowers", test ->
+                        test.userRepository.reconcileCountersExceptFollowers(
+                                List.of(test.user1.getId(), test.user2.getId()))),
+                call("FriendshipRepository.findByRequesterAndAddressee", test ->
+                        test.friendshipRepository.findByRequesterAndAddressee(test.user1, test.user2)),
+                call("FriendshipRepository.findByUserIds", test ->
+                        test.friendshipRepository.findByUserIds(test.user1Id(), test.user2Id())),
+                call("FriendshipRepository.findByRequesterAndStatus", test ->
+                        test.friendshipRepository.findByRequesterAndStatus(test.user1,
+                                Friendship.FriendshipStatus.PENDING)),
+                call("FriendshipRepository.findByAddresseeAndStatus", test ->
+                        test.friendshipRepository.findByAddresseeAndStatus(test.user1,
+                                Friendship.FriendshipStatus.PENDING)),
+                call("FriendshipRepository.findSentRequestsByStatus", test ->
+                        test.friendshipRepository.findSentRequestsByStatus(test.user1Id(),
+                                Friendship.FriendshipStatus.PENDING, PAGE)),
+                call("FriendshipRepository.findReceivedRequestsByStatus", test ->
+                        test.friendshipRepository.findReceivedRequestsByStatus(test.user1Id(),
+                                Friendship.FriendshipStatus.PENDING, PAGE)),
+                call("FriendshipRepository.areFriends", test ->
+                        test.friendshipRepository.areFriends(test.user1, test.user2)),
+                call("FriendshipRepository.findIdsByStatusAfter", test ->
+                        test.friendshipRepository.findIdsByStatusAfter(Friendship.FriendshipStatus.ACCEPTED, 0,
+                                PageRequest.of(0, 1000))),
+                call("FriendshipRepository.findPendingRequestsFromUsers", test ->
+                        test.friendshipRepository.findPendingRequestsFromUsers(test.user1)),
+                call("FriendshipRepository.deleteFriendshipBetweenUsers", test ->
+                        test.friendshipRepository.deleteFriendshipBetweenUsers(test.user1, test.user2)),
+                call("SubscriptionRepository.findByFollowerAndFollowing", test ->
+                        test.subscriptionRepository.findByFollowerAndFollowing(test.user1, test.user2)),
+                call("SubscriptionRepository.findByUserIds", test ->
+                        test.subscriptionRepository.findByUserIds(test.user1Id(), test.user2Id())),
+                call("SubscriptionRepository.findByFollower", test ->
+                        test.subscriptionRepository.findByFollower(test.user1, PAGE)),
+                call("SubscriptionRepository.findByFollowing", test ->
+                        test.subscriptionRepository.findByFollowing(test.user1, PAGE)),
+                call("SubscriptionRepository.findFollowedUsers", test ->
+                        test.subscriptionRepository.findFollowedUsers(test.user1Id(), PAGE)),
+                call("SubscriptionRepository.findFollowers", test ->
+                        test.subscriptionRepository.findFollowers(test.user1Id(), PAGE)),
+                call("SubscriptionRepository.countFollowing", test ->
+                        test.subscriptionRepository.countFollowing(test.user1Id())),
+                call("SubscriptionRepository.countFollowers", test ->
+                        test.subscriptionRepository.countFollowers(test.user1Id())),
+                call("SubscriptionRepository.findUserIdsWithFollowersAtLeast", test ->
+                        test.subscriptionRepository.findUserIdsWithFollowersAtLeast(10_000)),
+                call("SubscriptionRepository.findFollowedAmong", test ->
+                        test.subscriptionRepository.findFollowedAmong(test.user1Id(),
+                                List.of(test.user2.getId(), 100))),
+                call("SubscriptionRepository.streamAllPairs", test -> {
+                    try (Stream<SubscriptionPair> pairs = test.subscriptionRepository.streamAllPairs()) {
+                        pairs.count();
+                    }
+                }),
+                call("SubscriptionRepository.createMissingFriendSubscriptions", test ->
+                        test.subscriptionRepository.createMissingFriendSubscriptions(
+                                Friendship.FriendshipStatus.ACCEPTED.name(), 0, 1000, List.of(), 100)),
+                call("SubscriptionRepository.isFollowing", test ->
+                        test.subscriptionRepository.isFollowing(test.user1Id(), test.user2Id())),
+                call("SubscriptionRepository.deleteSubscription", test ->
+                        test.subscriptionRepository.deleteSubscription(test.user1, test.user2)),
+                call("SubscriptionRepository.insertIfAbsent", test ->
+                        test.subscriptionRepository.insertIfAbsent(test.user1Id(), test.user2Id(),
+                                LocalDateTime.now())),
+                call("SubscriptionRepository.deleteByUserIds", test ->
+                        test.subscriptionRepository.deleteByUserIds(test.user1Id(), test.user2Id())),
+                call("SubscriptionRepository.findTargetStates", test ->
+                        test.subscriptionRepository.findTargetStates(test.user1Id(), List.of(test.user2.getId()))),
+                call("SubscriptionRepository.insertAllIfAbsent", test ->
+                        test.subscriptionRepository.insertAllIfAbsent(test.user1Id(), List.of(test.user2.getId()),
+                                LocalDateTime.now())),
+                call("SubscriptionRepository.deleteAllByUserIds", test ->
+                        test.subscriptionRepository.deleteAllByUserIds(test.user1Id(), List.of(test.user2.getId()))),
+                call("SubscriptionOutboxRepository.enqueue", test ->
+                        test.outboxRepository.enqueue(test.user1Id(), test.user2Id(), LocalDateTime.now())),
+                call("SubscriptionOutboxRepository.lockNext", test ->
+                        test.outboxRepository.lockNext(LocalDateTime.now(), 5)),
+                call("SubscriptionOutboxRepository.deleteEntry", test ->
+                        test.outboxRepository.deleteEntry(1L)),
+                call("SubscriptionOutboxRepository.deleteQueued", test ->
+                        test.outboxRepository.deleteQueued(test.user1Id(), test.user2Id())),
+                call("SubscriptionOutboxRepository.deleteAllQueued", test ->
+                        test.outboxRepository.deleteAllQueued(test.user1Id(), List.of(test.user2.getId()))),
+                call("SubscriptionOutboxRepository.recordFailure", test ->
+                        test.outboxRepository.recordFailure(1L, "timeout", LocalDateTime.now())),
+                fullScan("SubscriptionOutboxRepository.deleteExhausted", "subscription_outbox", test ->
+                        test.outboxRepository.deleteExhausted(5, LocalDateTime.now())),
+                fullScan("SubscriptionOutboxRepository.countPending", "subscription_outbox", test ->
+                        test.outboxRepository.countPending(5)),
+                call("FeedEntryRepository.findFeedPosts", test ->
+                        test.feedEntryRepository.findFeedPosts(test.user1Id(), PAGE)),
+                call("FeedEntryRepository.findFeedPostsBeforeCursor", test ->
+                        test.feedEntryRepository.findFeedPostsBeforeCursor(test.user1Id(), LocalDateTime.now(),
+                                100L, PageRequest.of(0, 21))),
+                call("FeedEntryRepository.findFeedItemsBeforeCursor", test ->
+                        test.feedEntryRepository.findFeedItemsBeforeCursor(test.user1Id(), LocalDateTime.now(),
+                                100L, PageRequest.of(0, 21))),
+                call("FeedEntryRepository.countFeedPosts", test ->
+                        test.feedEntryRepository.countFeedPosts(test.user1Id())),
+                call("FeedEntryRepository.findMergedFeedRows", test ->
+                        test.feedEntryRepository.findMergedFeedRows(test.user1Id(), List.of(test.user2.getId()),
+                                0, 20)),
+                call("FeedEntryRepository.countMergedFeed", test ->
+                        test.feedEntryRepository.countMergedFeed(test.user1Id(), List.of(test.user2.getId()))),
+                call("FeedEntryRepository.fanOutPost", test ->
+                        test.feedEntryRepository.fanOutPost(1L, test.user2Id(), LocalDateTime.now())),
+                call("FeedEntryRepository.backfillFromAuthor", test ->
+                        test.feedEntryRepository.backfillFromAuthor(test.user1Id(), test.user2Id(), 100)),
+                call("FeedEntryRepository.backfillFromAuthors", test ->
+                        test.feedEntryRepository.backfillFromAuthors(test.user1Id(), List.of(test.user2.getId()),
+                                100)),
+                call("FeedEntryRepository.backfillFollowersOfAuthor", test ->
+                        test.feedEntryRepository.backfillFollowersOfAuthor(test.user2Id(), 100)),
+                call("FeedEntryRepository.deleteByFollowerAndAuthor", test ->
+                        test.feedEntryRepository.deleteByFollowerAndAuthor(test.user1Id(), test.user2Id())),
+                call("FeedEntryRepository.deleteByFollowerAndAuthors", test ->
+                        test.feedEntryRepository.deleteByFollowerAndAuthors(test.user1Id(),
+                                List.of(test.user2.getId()))),
+                call("FollowerCountSlotRepository.addDelta", test ->
+                        test.followerCountSlotRepository.addDelta(test.user1.getId(), (short) 0, 1)),
+                call("FollowerCountSlotRepository.sumDelta", test ->
+                        test.followerCountSlotRepository.sumDelta(test.user1Id()))
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositoryCalls")
+    void whenExplainRepositoryQueryThenNoSequentialScan(String method, String scannedTable, RepositoryCall call) {
+        StatementRecorder.start();
+        try {
+            call.run(this);
+            entityManager.flush();
+        } finally {
+            StatementRecorder.stop();
+        }
+        List<RecordedStatement> statements = StatementRecorder.statements();
+
+        assertThat(statements).as("Метод %s не выполнил ни одного запроса", method).isNotEmpty();
+        for (RecordedStatement statement : statements) {
+            List<String> plan = explain(statement);
+            assertThat(plan).as("План запроса %s:%n%s%n%s", method, statement.sql(), String.join("\n", plan))
+                    .noneMatch(line -> line.contains("Seq Scan")
+                            && (scannedTable == null || !line.contains("Seq Scan on " + scannedTable + " ")));
+        }
+    }
+
+    private List<String> explain(RecordedStatement statement) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            List<String> plan = new ArrayList<>();
+            try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + statement.sql())) {
+                for (ParameterBinding binding : statement.bindings()) {
+                    binding.applyTo(explain);
+                }
+                try (ResultSet resultSet = explain.executeQuery()) {
+                    while (resultSet.next()) {
+                        plan.add(resultSet.getString(1));
+                    }
+                }
+            }
+            return plan;
+        });
+    }
+
+    private Long user1Id() {
+        return Long.valueOf(user1.getId());
+    }
+
+    private Long user2Id() {
+        return Long.valueOf(user2.getId());
+    }
+
+    private static Arguments call(String method, RepositoryCall call) {
+        return Arguments.of(method, null, call);
+    }
+
+    /**
+     * Вызов, который по назначению читает всю таблицу: последовательное сканирование
+     * допускается только для нее.
+     */
+    private static Arguments fullScan(String method, String table, RepositoryCall call) {
+        return Arguments.of(method, table, call);
+    }
+
+    @FunctionalInterface
+    interface RepositoryCall {
+        void run(QueryPlanTest test);
+    }
+
+    /**
+     * Вызов метода PreparedStatement, привязывающий параметр, например {@code setLong(1, 42)}.
+     */
+    record ParameterBinding(Method method, Object[] args) {
+        void applyTo(PreparedStatement statement) {
+            try {
+                method.invoke(statement, args);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("Не удалось привязать параметр " + method.getName(), e);
+            }
+        }
+    }
+
+    record RecordedStatement(String sql, List<ParameterBinding> bindings) {
+    }
+
+    /**
+     * Запоминает запросы, выполненные через PreparedStatement, пока включена запись.
+     */
+    static final class StatementRecorder {
+        private static final List<RecordedStatement> STATEMENTS = new ArrayList<>();
+        private static boolean recording;
+
+        private StatementRecorder() {
+        }
+
+        static synchronized void start() {
+            STATEMENTS.clear();
+            recording = true;
+        }
+
+        static synchronized void stop() {
+            recording = false;
+        }
+
+        static synchronized List<RecordedStatement> statements() {
+            return List.copyOf(STATEMENTS);
+        }
+
+        static synchronized void record(String sql, List<ParameterBinding> bindings) {
+            if (recording) {
+                STATEMENTS.add(new RecordedStatement(sql, List.copyOf(bindings)));
+            }
+        }
+    }
+
+    /**
+     * Оборачивает источник данных так, чтобы каждый выполненный PreparedStatement
+     * попадал в {@link StatementRecorder} вместе с привязанными параметрами.
+     */
+    @TestConfiguration
+    static class RecordingConfiguration {
+
+        @Bean
+        static BeanPostProcessor recordingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource dataSource) {
+                        return proxy(DataSource.class, dataSource, (method, args, result) ->
+                                result instanceof Connection connection
+                                        ? proxy(Connection.class, connection, RecordingConfiguration::wrapStatement)
+                                        : result);
+                    }
+                    return bean;
+                }
+            };
+        }
+
+        private static Object wrapStatement(Method method, Object[] args, Object result) {
+            if (!(result instanceof PreparedStatement statement) || !method.getName().equals("prepareStatement")) {
+                return result;
+            }
+            return new StatementHandler(statement, (String) args[0]).proxy();
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, T target, ResultWrapper wrapper) {
+            InvocationHandler handler = (proxy, method, args) -> wrapper.wrap(method, args, invoke(target, method, args));
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        @FunctionalInterface
+        private interface ResultWrapper {
+            Object wrap(Method method, Object[] args, Object result);
+        }
+
+        private static final class StatementHandler implements InvocationHandler {
+            private final PreparedStatement target;
+            private final String sql;
+            private final List<ParameterBinding> bindings = new ArrayList<>();
+
+            private StatementHandler(PreparedStatement target, String sql) {
+                this.target = target;
+                this.sql = sql;
+            }
+
+            private PreparedStatement proxy() {
+                return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                        new Class<?>[]{PreparedStatement.class}, this);
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                    bindings.add(new ParameterBinding(method, args.clone()));
+                } else if (name.equals("clearParameters")) {
+                    bindings.clear();
+                } else if (name.startsWith("execute") || name.equals("addBatch")) {
+                    StatementRecorder.record(sql, bindings);
+                }
+                return RecordingConfiguration.invoke(target, method, args);
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package jobforj.social.repository;
+
+import jobforj.social.model.SubscriptionOutboxEntry;
+import jobforj.social.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Testcontainers
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class SubscriptionOutboxRepositoryTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @Autowired
+    private SubscriptionOutboxRepository outboxRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private Long firstId;
+    private Long secondId;
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.driver-class-name", postgres::getDriverClassName);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> "2");
+        registry.add("spring.datasource.hikari.connection-timeout", () -> "2000");
+        registry.add("spring.liquibase.enabled", () -> "false");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+    }
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository.deleteAll();
+        userRepository.deleteAll();
+        firstId = Long.valueOf(userRepository.save(User.builder()
+                .username("first")
+                .email("first@example.com")
+                .passwordHash("password123")
+                .build()).getId());
+        secondId = Long.valueOf(userRepository.save(User.builder()
+                .username("second")
+                .email("second@example.com")
+                .passwordHash("password123")
+                .build()).getId());
+        testEntityManager.flush();
+        testEntityManager.clear();
+    }
+
+    @Test
+    void whenEnqueueThenOldestEntryIsLockedFirst() {
+        LocalDateTime now = LocalDateTime.now();
+        outboxRepository.enqueue(firstId, secondId, now.minusSeconds(2));
+        outboxRepository.enqueue(secondId, firstId, now.minusSeconds(1));
+
+        Optional<SubscriptionOutboxEntry> next = outboxRepository.lockNext(now, 10);
+
+        assertThat(next).isPresent();
+        assertThat(next.get().getFollowerId()).isEqualTo(firstId.intValue());
+        assertThat(next.get().getFollowingId()).isEqualTo(secondId.intValue());
+        assertThat(next.get().getAttempts()).isZero();
+        assertThat(outboxRepository.countPending(10)).isEqualTo(2);
+    }
+
+    @Test
+    void whenFailureRecordedThenEntryIsPostponed() {
+        LocalDateTime now = LocalDateTime.now();
+        outboxRepository.enqueue(firstId, secondId, now.minusSeconds(1));
+        Long id = outboxRepository.lockNext(now, 10).orElseThrow().getId();
+
+        outboxRepository.recordFailure(id, "timeout", now.plusMinutes(1));
+        testEntityManager.clear();
+
+        assertThat(outboxRepository.lockNext(now, 10)).isEmpty();
+        SubscriptionOutboxEntry postponed = outboxRepository.lockNext(now.plusMinutes(2), 10).orElseThrow();
+        assertThat(postponed.getAttempts()).isEqualTo(1);
+        assertThat(postponed.getLastError()).isEqualTo("timeout");
+        assertThat(outboxRepository.lockNext(now.plusMinutes(2), 1)).isEmpty();
+        assertThat(outboxRepository.countPending(1)).isZero();
+    }
+
+    @Test
+    void whenEntryDeletedThenQueueIsEmpty() {
+        LocalDateTime now = LocalDateTime.now();
+        outboxRepository.enqueue(firstId, secondId, now.minusSeconds(1));
+        Long id = outboxRepository.lockNext(now, 10).orElseThrow().getId();
+
+        assertThat(outboxRepository.deleteEntry(id)).isEqualTo(1);
+        assertThat(outboxRepository.lockNext(now, 10)).isEmpty();
+    }
+
+    @Test
+    void whenExhaustedEntryExpiredThenOnlyItIsDeleted() {
+        LocalDateTime now = LocalDateTime.now();
+        outboxRepository.enqueue(firstId, secondId, now.minusDays(8));
+        outboxRepository.enqueue(secondId, firstId, now.minusDays(8));
+        Long exhaustedId = outboxRepository.lockNext(now, 10).orElseThrow().getId();
+        outboxRepository.recordFailure(exhaustedId, "timeout", now.minusDays(8));
+        testEntityManager.clear();
+
+        assertThat(outboxRepository.deleteExhausted(1, now.minusDays(9))).isZero();
+        assertThat(outboxRepository.deleteExhausted(1, now.minusDays(7))).isEqualTo(1);
+        assertThat(outboxRepository.findById(exhaustedId)).isEmpty();
+        assertThat(outboxRepository.countPending(1)).isEqualTo(1);
+    }
+}
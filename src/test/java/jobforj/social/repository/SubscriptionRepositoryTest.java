@@ -1,5 +1,6 @@
 package jobforj.social.repository;
 
+import jobforj.social.model.Friendship;
 import jobforj.social.model.Subscription;
 import jobforj.social.model.User;
 import org.junit.jupiter.api.BeforeEach;
@@ -20,6 +21,7 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -411,4 +413,199 @@ class SubscriptionRepositoryTest {
                 () -> subscriptionRepository.saveAndFlush(sub2)
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    void whenFindUserIdsWithFollowersAtLeastThenReturnOnlyPopularUsers() {
+        subscriptionRepository.saveAll(List.of(
+                Subscription.builder().follower(user1).following(user4).build(),
+                Subscription.builder().follower(user2).following(user4).build(),
+                Subscription.builder().follower(user3).following(user4).build(),
+                Subscription.builder().follower(user1).following(user2).build()));
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        List<Integer> popular = subscriptionRepository.findUserIdsWithFollowersAtLeast(3);
+
+        assertThat(popular).containsExactly(user4.getId());
+    }
+
+    @Test
+    void whenFindFollowedAmongThenReturnOnlyFollowedCandidates() {
+        subscriptionRepository.saveAll(List.of(
+                Subscription.builder().follower(user1).following(user2).build(),
+                Subscription.builder().follower(user1).following(user3).build()));
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        List<Integer> followed = subscriptionRepository.findFollowedAmong(
+                Long.valueOf(user1.getId()), List.of(user2.getId(), user4.getId()));
+
+        assertThat(followed).containsExactly(user2.getId());
+    }
+
+    @Test
+    void whenCreateMissingFriendSubscriptionsThenOnlyMissingDirectionIsCreated() {
+        Friendship accepted = testEntityManager.persist(Friendship.builder()
+                .requester(user1).addressee(user2).status(Friendship.FriendshipStatus.ACCEPTED).build());
+        testEntityManager.persist(Friendship.builder()
+                .requester(user3).addressee(user4).status(Friendship.FriendshipStatus.PENDING).build());
+        subscriptionRepository.save(Subscription.builder().follower(user1).following(user2).build());
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        List<SubscriptionRepository.MissingPair> created = subscriptionRepository.createMissingFriendSubscriptions(
+                Friendship.FriendshipStatus.ACCEPTED.name(), 0, accepted.getId(), List.of(), 100);
+        Object sequenceValue = subscriptionSequenceValue();
+        List<SubscriptionRepository.MissingPair> repeated = subscriptionRepository.createMissingFriendSubscriptions(
+                Friendship.FriendshipStatus.ACCEPTED.name(), 0, accepted.getId(), List.of(), 100);
+
+        assertThat(created).hasSize(1);
+        assertThat(created.get(0).getFollowerId()).isEqualTo(user2.getId());
+        assertThat(created.get(0).getFollowingId()).isEqualTo(user1.getId());
+        assertThat(repeated).isEmpty();
+        assertThat(subscriptionSequenceValue()).isEqualTo(sequenceValue);
+        assertThat(subscriptionRepository.isFollowing(Long.valueOf(user2.getId()), Long.valueOf(user1.getId())))
+                .isTrue();
+        assertThat(userRepository.findFollowingCount(Long.valueOf(user2.getId()))).contains(1);
+        assertThat(userRepository.findFollowersCount(Long.valueOf(user1.getId()))).contains(1);
+    }
+
+    @Test
+    void whenCreateMissingFriendSubscriptionsThenOneIdIsTakenPerCreatedRow() {
+        Friendship accepted = testEntityManager.persist(Friendship.builder()
+                .requester(user1).addressee(user2).status(Friendship.FriendshipStatus.ACCEPTED).build());
+        testEntityManager.flush();
+        testEntityManager.clear();
+        subscriptionRepository.insertIfAbsent(Long.valueOf(user3.getId()), Long.valueOf(user4.getId()),
+                LocalDateTime.now());
+        long sequenceValue = ((Number) subscriptionSequenceValue()).longValue();
+
+        List<SubscriptionRepository.MissingPair> created = subscriptionRepository.createMissingFriendSubscriptions(
+                Friendship.FriendshipStatus.ACCEPTED.name(), 0, accepted.getId(), List.of(), 100);
+
+        assertThat(created).hasSize(2);
+        assertThat(((Number) subscriptionSequenceValue()).longValue()).isEqualTo(sequenceValue + 2);
+    }
+
+    @Test
+    void whenCreateMissingSubscriptionToPullAuthorThenFollowersCountIsLeftToCounter() {
+        Friendship accepted = testEntityManager.persist(Friendship.builder()
+                .requester(user1).addressee(user2).status(Friendship.FriendshipStatus.ACCEPTED).build());
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        List<SubscriptionRepository.MissingPair> created = subscriptionRepository.createMissingFriendSubscriptions(
+                Friendship.FriendshipStatus.ACCEPTED.name(), 0, accepted.getId(), List.of(user2.getId()), 100);
+
+        assertThat(created).hasSize(2);
+        assertThat(userRepository.findFollowersCount(Long.valueOf(user2.getId()))).contains(0);
+        assertThat(userRepository.findFollowersCount(Long.valueOf(user1.getId()))).contains(1);
+        assertThat(userRepository.findFollowingCount(Long.valueOf(user1.getId()))).contains(1);
+    }
+
+    @Test
+    void whenInsertIfAbsentTwiceThenSecondInsertIsSkipped() {
+        Long followerId = Long.valueOf(user1.getId());
+        Long followingId = Long.valueOf(user2.getId());
+
+        int created = subscriptionRepository.insertIfAbsent(followerId, followingId, LocalDateTime.now());
+        Object sequenceValue = subscriptionSequenceValue();
+        int repeated = subscriptionRepository.insertIfAbsent(followerId, followingId, LocalDateTime.now());
+
+        assertThat(created).isEqualTo(1);
+        assertThat(repeated).isZero();
+        assertThat(subscriptionSequenceValue()).isEqualTo(sequenceValue);
+        assertThat(subscriptionRepository.isFollowing(followerId, followingId)).isTrue();
+        assertThat(subscriptionRepository.countFollowers(followingId)).isEqualTo(1);
+    }
+
+    @Test
+    void whenTwoFollowsInARowThenIdsAreAdjacent() {
+        Long followerId = Long.valueOf(user1.getId());
+        subscriptionRepository.insertIfAbsent(followerId, Long.valueOf(user2.getId()), LocalDateTime.now());
+        subscriptionRepository.insertIfAbsent(followerId, Long.valueOf(user3.getId()), LocalDateTime.now());
+
+        Integer first = subscriptionRepository.findByUserIds(followerId, Long.valueOf(user2.getId()))
+                .orElseThrow().getId();
+        Integer second = subscriptionRepository.findByUserIds(followerId, Long.valueOf(user3.getId()))
+                .orElseThrow().getId();
+
+        assertThat(second).isEqualTo(first + 1);
+    }
+
+    @Test
+    void whenDeleteByUserIdsThenReportWhetherSubscriptionExisted() {
+        subscriptionRepository.save(Subscription.builder().follower(user1).following(user2).build());
+        testEntityManager.flush();
+        testEntityManager.clear();
+        Long followerId = Long.valueOf(user1.getId());
+        Long followingId = Long.valueOf(user2.getId());
+
+        assertThat(subscriptionRepository.deleteByUserIds(followerId, followingId)).isEqualTo(1);
+        assertThat(subscriptionRepository.deleteByUserIds(followerId, followingId)).isZero();
+        assertThat(subscriptionRepository.isFollowing(followerId, followingId)).isFalse();
+    }
+
+    @Test
+    void whenFindTargetStatesThenReturnExistingUsersWithFollowFlag() {
+        subscriptionRepository.save(Subscription.builder().follower(user1).following(user2).build());
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        List<SubscriptionRepository.TargetState> states = subscriptionRepository.findTargetStates(
+                Long.valueOf(user1.getId()), List.of(user2.getId(), user3.getId(), -1));
+
+        assertThat(states).hasSize(2);
+        assertThat(states).filteredOn(state -> state.getUserId().equals(user2.getId()))
+                .singleElement().extracting(SubscriptionRepository.TargetState::getFollowing).isEqualTo(true);
+        assertThat(states).filteredOn(state -> state.getUserId().equals(user3.getId()))
+                .singleElement().extracting(SubscriptionRepository.TargetState::getFollowing).isEqualTo(false);
+    }
+
+    @Test
+    void whenInsertAllIfAbsentThenReturnOnlyNewlyFollowedUsers() {
+        subscriptionRepository.save(Subscription.builder().follower(user1).following(user2).build());
+        testEntityManager.flush();
+        testEntityManager.clear();
+        Long followerId = Long.valueOf(user1.getId());
+
+        List<Integer> created = subscriptionRepository.insertAllIfAbsent(followerId,
+                List.of(user2.getId(), user3.getId(), user4.getId(), user1.getId(), -1), LocalDateTime.now());
+
+        assertThat(created).containsExactlyInAnyOrder(user3.getId(), user4.getId());
+        assertThat(subscriptionRepository.countFollowing(followerId)).isEqualTo(3);
+    }
+
+    @Test
+    void whenInsertAllIfAbsentForFollowedUsersThenNoIdsAreTaken() {
+        Long followerId = Long.valueOf(user1.getId());
+        subscriptionRepository.insertAllIfAbsent(followerId, List.of(user2.getId(), user3.getId()),
+                LocalDateTime.now());
+        Object sequenceValue = subscriptionSequenceValue();
+
+        List<Integer> repeated = subscriptionRepository.insertAllIfAbsent(followerId,
+                List.of(user2.getId(), user3.getId()), LocalDateTime.now());
+
+        assertThat(repeated).isEmpty();
+        assertThat(subscriptionSequenceValue()).isEqualTo(sequenceValue);
+    }
+
+    @Test
+    void whenDeleteAllByUserIdsThenReturnOnlyRemovedUsers() {
+        subscriptionRepository.save(Subscription.builder().follower(user1).following(user2).build());
+        subscriptionRepository.save(Subscription.builder().follower(user1).following(user3).build());
+        testEntityManager.flush();
+        testEntityManager.clear();
+        Long followerId = Long.valueOf(user1.getId());
+
+        List<Integer> removed = subscriptionRepository.deleteAllByUserIds(followerId,
+                List.of(user2.getId(), user4.getId()));
+
+        assertThat(removed).containsExactly(user2.getId());
+        assertThat(subscriptionRepository.countFollowing(followerId)).isEqualTo(1);
+    }
+
+    private Object subscriptionSequenceValue() {
+        return entityManager.createNativeQuery("SELECT last_value FROM subscriptions_id_seq").getSingleResult();
+    }
+}
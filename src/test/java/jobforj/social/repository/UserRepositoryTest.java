@@ -1,5 +1,7 @@
 package jobforj.social.repository;
 
+import jobforj.social.dto.UserProfile;
+import jobforj.social.dto.UserSuggestion;
 import jobforj.social.model.Post;
 import jobforj.social.model.User;
 import jobforj.social.model.Subscription;
@@ -16,6 +18,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.jdbc.Sql;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
@@ -832,4 +835,95 @@ class UserRepositoryTest {
         assertThat(secondPageResults.getContent()).allMatch(p -> !p.getIsDeleted());
         assertThat(thirdPageResults.getContent()).allMatch(p -> !p.getIsDeleted());
     }
-}
\ No newline at end of file
+
+    @Test
+    @Sql(scripts = "classpath:db/scripts/015_ddl_create_users_trgm_indexes.sql")
+    void whenAutocompleteThenReturnActivePrefixMatchesBySimilarity() {
+        userRepository.saveAll(List.of(
+                User.builder()
+                        .username("smithson")
+                        .email("smithson@example.com")
+                        .passwordHash("password123")
+                        .build(),
+                User.builder()
+                        .username("smith")
+                        .email("smith@example.com")
+                        .passwordHash("password123")
+                        .build(),
+                User.builder()
+                        .username("john")
+                        .email("Smith.John@example.com")
+                        .passwordHash("password123")
+                        .build(),
+                User.builder()
+                        .username("smith_old")
+                        .email("old@example.com")
+                        .passwordHash("password123")
+                        .isActive(false)
+                        .build(),
+                User.builder()
+                        .username("blacksmith")
+                        .email("blacksmith@example.com")
+                        .passwordHash("password123")
+                        .build()));
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        List<UserSuggestion> suggestions = userRepository.autocomplete("SMI", 10);
+
+        assertThat(suggestions)
+                .extracting(UserSuggestion::username)
+                .containsExactlyInAnyOrder("smith", "smithson", "john");
+        assertThat(suggestions.get(0).username()).isEqualTo("smith");
+        assertThat(userRepository.autocomplete("smith_", 10)).isEmpty();
+    }
+
+    @Test
+    void whenAddSubscriptionThenBothCountersChangeAndProfileReadsThem() {
+        User follower = userRepository.save(User.builder()
+                .username("follower").email("follower@example.com").passwordHash("password123").build());
+        User author = userRepository.save(User.builder()
+                .username("author").email("author@example.com").passwordHash("password123").build());
+        testEntityManager.flush();
+        testEntityManager.clear();
+        Long followerId = Long.valueOf(follower.getId());
+        Long authorId = Long.valueOf(author.getId());
+
+        assertThat(userRepository.addSubscription(followerId, authorId, 1)).isEqualTo(2);
+        userRepository.addPosts(authorId, 2);
+        userRepository.addFollowers(List.of(author.getId()), 1);
+
+        assertThat(userRepository.findProfile(authorId))
+                .contains(new UserProfile(author.getId(), "author", 2, 0, 2));
+        assertThat(userRepository.findProfile(followerId))
+                .contains(new UserProfile(follower.getId(), "follower", 0, 1, 0));
+        assertThat(userRepository.findFollowingCount(followerId)).contains(1);
+        assertThat(userRepository.findPostsCount(authorId)).contains(2);
+    }
+
+    @Test
+    void whenReconcileCountersThenDriftedCountersMatchTables() {
+        User follower = userRepository.save(User.builder()
+                .username("follower").email("follower@example.com").passwordHash("password123").build());
+        User author = userRepository.save(User.builder()
+                .username("author").email("author@example.com").passwordHash("password123").build());
+        testEntityManager.persist(Subscription.builder().follower(follower).following(author).build());
+        testEntityManager.persist(Post.builder().user(author).title("Post").content("Content").build());
+        testEntityManager.persist(Post.builder().user(author).title("Deleted").content("Content")
+                .isDeleted(true).build());
+        testEntityManager.flush();
+        userRepository.addPosts(Long.valueOf(author.getId()), 5);
+        testEntityManager.clear();
+
+        List<Integer> ids = userRepository.lockIdChunk(0, 10);
+        int fixed = userRepository.reconcileCounters(ids);
+
+        assertThat(ids).containsExactly(follower.getId(), author.getId());
+        assertThat(fixed).isEqualTo(2);
+        assertThat(userRepository.findProfile(Long.valueOf(author.getId())))
+                .contains(new UserProfile(author.getId(), "author", 1, 0, 1));
+        assertThat(userRepository.findProfile(Long.valueOf(follower.getId())))
+                .contains(new UserProfile(follower.getId(), "follower", 0, 1, 0));
+        assertThat(userRepository.reconcileCounters(ids)).isZero();
+    }
+}
@@ -0,0 +1,64 @@
+package jobforj.social.service;
+
+import jobforj.social.dto.FeedItem;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FeedMergerTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Test
+    void whenMergeSortedSourcesThenResultIsNewestFirst() {
+        List<FeedItem> pushed = List.of(item(5, 50), item(3, 30), item(1, 10));
+        List<FeedItem> pulled = List.of(item(4, 40), item(2, 20));
+
+        List<FeedItem> merged = FeedMerger.mergeNewestFirst(List.of(pushed, pulled), 10);
+
+        assertThat(merged)
+                .extracting(FeedItem::postId)
+                .containsExactly(5, 4, 3, 2, 1);
+    }
+
+    @Test
+    void whenSamePostInSeveralSourcesThenItIsReturnedOnce() {
+        List<FeedItem> pushed = List.of(item(3, 30), item(1, 10));
+        List<FeedItem> pulled = List.of(item(3, 30), item(2, 20));
+
+        List<FeedItem> merged = FeedMerger.mergeNewestFirst(List.of(pushed, pulled), 10);
+
+        assertThat(merged)
+                .extracting(FeedItem::postId)
+                .containsExactly(3, 2, 1);
+    }
+
+    @Test
+    void whenLimitReachedThenMergeStops() {
+        List<FeedItem> pushed = List.of(item(3, 30), item(1, 10));
+        List<FeedItem> pulled = List.of(item(2, 20));
+
+        List<FeedItem> merged = FeedMerger.mergeNewestFirst(List.of(pushed, pulled, List.of()), 2);
+
+        assertThat(merged)
+                .extracting(FeedItem::postId)
+                .containsExactly(3, 2);
+    }
+
+    @Test
+    void whenTimestampsEqualThenHigherIdComesFirst() {
+        List<FeedItem> merged = FeedMerger.mergeNewestFirst(
+                List.of(List.of(item(1, 10)), List.of(item(2, 10))), 10);
+
+        assertThat(merged)
+                .extracting(FeedItem::postId)
+                .containsExactly(2, 1);
+    }
+
+    private static FeedItem item(int postId, int minutes) {
+        return new FeedItem(postId, NOW.plusMinutes(minutes));
+    }
+}
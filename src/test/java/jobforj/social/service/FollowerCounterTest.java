@@ -0,0 +1,222 @@
+package jobforj.social.service;
+
+import jobforj.social.repository.FollowerCountSlotRepository;
+import jobforj.social.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyShort;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FollowerCounterTest {
+    private static final Long FOLLOWER = 1L;
+    private static final Long CELEBRITY = 2L;
+    private static final Long REGULAR = 3L;
+
+    private UserRepository userRepository;
+    private FollowerCountSlotRepository slotRepository;
+    private CelebrityRegistry celebrityRegistry;
+    private TransactionTemplate transactionTemplate;
+    private FollowerCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        slotRepository = mock(FollowerCountSlotRepository.class);
+        celebrityRegistry = mock(CelebrityRegistry.class);
+        when(celebrityRegistry.isCelebrity(CELEBRITY.intValue())).thenReturn(true);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        counter = new FollowerCounter(userRepository, slotRepository, celebrityRegistry, transactionTemplate, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void whenRegularAuthorFollowedThenRowIsUpdatedDirectly() {
+        counter.addSubscription(FOLLOWER, REGULAR, 1);
+
+        verify(userRepository).addSubscription(FOLLOWER, REGULAR, 1);
+        assertThat(counter.flush()).isZero();
+        verify(slotRepository, never()).addDelta(any(), anyShort(), anyInt());
+    }
+
+    @Test
+    void whenCelebrityFollowedThenDeltaIsBufferedUntilFlush() {
+        when(userRepository.findFollowersCount(CELEBRITY)).thenReturn(Optional.of(10));
+
+        counter.addSubscription(FOLLOWER, CELEBRITY, 1);
+        counter.addSubscription(FOLLOWER + 10, CELEBRITY, 1);
+
+        verify(userRepository).addFollowing(FOLLOWER, 1);
+        verify(userRepository, never()).addSubscription(any(), any(), anyInt());
+        assertThat(counter.countFollowers(CELEBRITY)).isEqualTo(12);
+        assertThat(counter.findUnflushed(List.of(CELEBRITY.intValue(), REGULAR.intValue())))
+                .containsExactly(CELEBRITY.intValue());
+
+        assertThat(counter.flush()).isEqualTo(1);
+
+        verify(slotRepository).addDelta(eq(CELEBRITY.intValue()), anyShort(), eq(2));
+        assertThat(counter.findUnflushed(List.of(CELEBRITY.intValue()))).isEmpty();
+        assertThat(counter.flush()).isZero();
+    }
+
+    @Test
+    void whenFlushFailsThenDeltaIsMergedBack() {
+        counter.addSubscription(FOLLOWER, CELEBRITY, 1);
+        when(slotRepository.addDelta(eq(CELEBRITY.intValue()), anyShort(), anyInt()))
+                .thenThrow(new QueryTimeoutException("timeout"))
+                .thenReturn(1);
+
+        assertThat(counter.flush()).isZero();
+        counter.addSubscription(FOLLOWER + 10, CELEBRITY, 1);
+        assertThat(counter.flush()).isEqualTo(1);
+
+        verify(slotRepository).addDelta(eq(CELEBRITY.intValue()), anyShort(), eq(1));
+        verify(slotRepository).addDelta(eq(CELEBRITY.intValue()), anyShort(), eq(2));
+    }
+
+    @Test
+    void whenOneAuthorFailsThenOthersAreStillFlushed() {
+        Long otherCelebrity = 4L;
+        when(celebrityRegistry.isCelebrity(otherCelebrity.intValue())).thenReturn(true);
+        when(slotRepository.addDelta(eq(CELEBRITY.intValue()), anyShort(), anyInt()))
+                .thenThrow(new QueryTimeoutException("timeout"));
+        counter.addSubscription(FOLLOWER, CELEBRITY, 1);
+        counter.addSubscription(FOLLOWER, otherCelebrity, 1);
+
+        assertThat(counter.flush()).isEqualTo(1);
+
+        verify(slotRepository).addDelta(eq(otherCelebrity.intValue()), anyShort(), eq(1));
+        assertThat(counter.findUnflushed(List.of(CELEBRITY.intValue(), otherCelebrity.intValue())))
+                .containsExactly(CELEBRITY.intValue());
+    }
+
+    @Test
+    void whenAuthorRowIsGoneThenDeltaIsDiscarded() {
+        when(slotRepository.addDelta(eq(CELEBRITY.intValue()), anyShort(), anyInt()))
+                .thenThrow(new DataIntegrityViolationException("foreign key violation"));
+        counter.addSubscription(FOLLOWER, CELEBRITY, 1);
+
+        assertThat(counter.flush()).isZero();
+
+        assertThat(counter.findUnflushed(List.of(CELEBRITY.intValue()))).isEmpty();
+        assertThat(counter.flush()).isZero();
+        verify(slotRepository, times(1)).addDelta(any(), anyShort(), anyInt());
+    }
+
+    @Test
+    void whenShutdownThenBufferedDeltaIsFlushed() {
+        counter.addSubscription(FOLLOWER, CELEBRITY, 1);
+
+        counter.shutdown();
+
+        verify(slotRepository).addDelta(eq(CELEBRITY.intValue()), anyShort(), eq(1));
+        assertThat(counter.findUnflushed(List.of(CELEBRITY.intValue()))).isEmpty();
+    }
+
+    @Test
+    void whenTransactionOpenThenAuthorIsUnflushedUntilCompletion() {
+        TransactionSynchronizationManager.initSynchronization();
+        counter.addSubscription(FOLLOWER, CELEBRITY, 1);
+
+        assertThat(counter.findUnflushed(List.of(CELEBRITY.intValue()))).containsExactly(CELEBRITY.intValue());
+        assertThat(counter.flush()).isZero();
+
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(counter.findUnflushed(List.of(CELEBRITY.intValue()))).isEmpty();
+        assertThat(counter.flush()).isZero();
+    }
+
+    @Test
+    void whenDeltasPendingThenReconcilerSkipsFollowersOfThoseAuthors() {
+        List<Integer> chunk = List.of(CELEBRITY.intValue(), REGULAR.intValue());
+        when(userRepository.lockIdChunk(0, 100)).thenReturn(chunk);
+        when(userRepository.lockIdChunk(REGULAR.intValue(), 100)).thenReturn(List.of());
+        when(slotRepository.addDelta(any(), anyShort(), anyInt()))
+                .thenThrow(new QueryTimeoutException("timeout"));
+        CounterReconciler reconciler = new CounterReconciler(userRepository, counter, transactionTemplate, 100);
+        counter.addSubscription(FOLLOWER, CELEBRITY, 1);
+
+        reconciler.reconcile();
+
+        verify(userRepository).reconcileCounters(List.of(REGULAR.intValue()));
+        verify(userRepository).reconcileCountersExceptFollowers(Set.of(CELEBRITY.intValue()));
+        assertThat(counter.findUnflushed(chunk)).containsExactly(CELEBRITY.intValue());
+    }
+
+    @Test
+    void whenDeltaCommittedDuringReconciliationThenChunkIsRetried() {
+        List<Integer> chunk = List.of(CELEBRITY.intValue(), REGULAR.intValue());
+        when(userRepository.lockIdChunk(0, 100)).thenReturn(chunk);
+        when(userRepository.lockIdChunk(REGULAR.intValue(), 100)).thenReturn(List.of());
+        when(userRepository.reconcileCounters(chunk)).thenAnswer(invocation -> {
+            counter.addSubscription(FOLLOWER, CELEBRITY, 1);
+            return 0;
+        });
+        CounterReconciler reconciler = new CounterReconciler(userRepository, counter, transactionTemplate, 100);
+
+        reconciler.reconcile();
+
+        verify(userRepository, times(1)).reconcileCounters(chunk);
+        verify(userRepository).reconcileCounters(List.of(REGULAR.intValue()));
+        verify(userRepository).reconcileCountersExceptFollowers(Set.of(CELEBRITY.intValue()));
+        verify(slotRepository).addDelta(eq(CELEBRITY.intValue()), anyShort(), eq(1));
+        assertThat(counter.findUnflushed(chunk)).isEmpty();
+    }
+
+    @Test
+    void whenDeltasKeepAppearingThenChunkIsTriedThreeTimesBeforeFallback() {
+        List<Integer> chunk = List.of(CELEBRITY.intValue(), 5, 6, REGULAR.intValue());
+        when(celebrityRegistry.isCelebrity(5)).thenReturn(true);
+        when(celebrityRegistry.isCelebrity(6)).thenReturn(true);
+        when(userRepository.lockIdChunk(0, 100)).thenReturn(chunk);
+        when(userRepository.lockIdChunk(REGULAR.intValue(), 100)).thenReturn(List.of());
+        Iterator<Integer> followed = List.of(CELEBRITY.intValue(), 5, 6).iterator();
+        when(userRepository.reconcileCounters(any())).thenAnswer(invocation -> {
+            counter.addSubscription(FOLLOWER, Long.valueOf(followed.next()), 1);
+            return 0;
+        });
+        CounterReconciler reconciler = new CounterReconciler(userRepository, counter, transactionTemplate, 100);
+
+        reconciler.reconcile();
+
+        verify(userRepository, times(3)).reconcileCounters(any());
+        verify(userRepository, times(4)).lockIdChunk(0, 100);
+        verify(userRepository).reconcileCountersExceptFollowers(chunk);
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+}
@@ -0,0 +1,153 @@
+package jobforj.social.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jobforj.social.cache.RecentPostCache;
+import jobforj.social.dto.PostWithImages;
+import jobforj.social.model.Image;
+import jobforj.social.model.Post;
+import jobforj.social.model.User;
+import jobforj.social.repository.ImageRepository;
+import jobforj.social.repository.PostRepository;
+import jobforj.social.repository.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Проверяет, что страница постов с изображениями загружается фиксированным числом запросов.
+ */
+@DataJpaTest
+@Testcontainers
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class PostServiceImagesTest {
+    private static final int POSTS = 12;
+    private static final int IMAGES_PER_POST = 3;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private ImageRepository imageRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private PostService postService;
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.driver-class-name", postgres::getDriverClassName);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> "2");
+        registry.add("spring.datasource.hikari.connection-timeout", () -> "2000");
+        registry.add("spring.liquibase.enabled", () -> "false");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+        registry.add("spring.jpa.properties.hibernate.generate_statistics", () -> "true");
+    }
+
+    @BeforeEach
+    void setUp() {
+        imageRepository.deleteAll();
+        postRepository.deleteAll();
+        userRepository.deleteAll();
+        List<User> authors = userRepository.saveAll(List.of(
+                User.builder().username("first").email("first@example.com").passwordHash("password123").build(),
+                User.builder().username("second").email("second@example.com").passwordHash("password123").build()));
+        List<Image> images = new ArrayList<>();
+        for (int i = 0; i < POSTS; i++) {
+            Post post = postRepository.save(Post.builder()
+                    .user(authors.get(i % authors.size()))
+                    .title("post" + i)
+                    .content("content" + i)
+                    .build());
+            for (int j = 0; j < IMAGES_PER_POST; j++) {
+                images.add(Image.builder()
+                        .post(post)
+                        .url("https://example.com/post" + i + "-" + j + ".jpg")
+                        .fileName("post" + i + "-" + j + ".jpg")
+                        .fileSize(1024)
+                        .build());
+            }
+        }
+        imageRepository.saveAll(images);
+        testEntityManager.flush();
+        testEntityManager.clear();
+        postService = new PostService(postRepository, imageRepository, userRepository,
+                mock(FeedService.class), mock(RecentPostCache.class));
+    }
+
+    @Test
+    void whenPageOfPostsWithImagesLoadedThenStatementCountDoesNotDependOnPageSize() {
+        long smallPage = countStatements(3);
+        long largePage = countStatements(10);
+
+        assertThat(largePage).isEqualTo(smallPage);
+    }
+
+    @Test
+    void whenPageOfPostsWithImagesLoadedThenImagesAreGroupedByPost() {
+        Page<PostWithImages> page = postService.findAllWithImages(PageRequest.of(0, POSTS));
+
+        assertThat(page.getContent()).hasSize(POSTS);
+        for (PostWithImages item : page.getContent()) {
+            String title = item.post().getTitle();
+            assertThat(item.images())
+                    .extracting(Image::getFileName)
+                    .containsExactly(title + "-0.jpg", title + "-1.jpg", title + "-2.jpg");
+        }
+    }
+
+    /**
+     * Загружает страницу постов с изображениями, обращается к авторам и изображениям
+     * и возвращает число подготовленных за это время запросов.
+     */
+    private long countStatements(int pageSize) {
+        testEntityManager.clear();
+        Statistics statistics = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+        statistics.clear();
+        Page<PostWithImages> page = postService.findAllWithImages(PageRequest.of(0, pageSize));
+        page.getContent().forEach(item -> {
+            assertThat(item.post().getUser().getUsername()).isNotNull();
+            assertThat(item.images()).hasSize(IMAGES_PER_POST);
+        });
+        assertThat(page.getContent()).hasSize(pageSize);
+        return statistics.getPrepareStatementCount();
+    }
+}
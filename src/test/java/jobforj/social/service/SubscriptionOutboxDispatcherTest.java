@@ -0,0 +1,198 @@
+package jobforj.social.service;
+
+import jobforj.social.cache.UserCache;
+import jobforj.social.index.SocialGraphIndex;
+import jobforj.social.model.SubscriptionOutboxEntry;
+import jobforj.social.repository.FriendshipRepository;
+import jobforj.social.repository.SubscriptionOutboxRepository;
+import jobforj.social.repository.SubscriptionRepository;
+import jobforj.social.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SubscriptionOutboxDispatcherTest {
+    private static final Long FOLLOWER = 1L;
+    private static final Long FOLLOWING = 2L;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final List<SubscriptionOutboxEntry> queue = new ArrayList<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    private SubscriptionOutboxRepository outboxRepository;
+    private SubscriptionRepository subscriptionRepository;
+    private PlatformTransactionManager transactionManager;
+    private TransactionTemplate transactionTemplate;
+    private SubscriptionService subscriptionService;
+    private SubscriptionOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository = mock(SubscriptionOutboxRepository.class);
+        when(outboxRepository.lockNext(any(), anyInt())).thenAnswer(invocation -> lockNext(
+                invocation.getArgument(0), invocation.getArgument(1)));
+        when(outboxRepository.deleteEntry(anyLong())).thenAnswer(invocation -> delete(
+                entry -> entry.getId().equals(invocation.getArgument(0))));
+        when(outboxRepository.deleteQueued(anyLong(), anyLong())).thenAnswer(invocation -> delete(
+                entry -> isPair(entry, invocation.getArgument(0), invocation.getArgument(1))));
+        when(outboxRepository.recordFailure(anyLong(), anyString(), any())).thenAnswer(invocation -> {
+            queue.stream()
+                    .filter(entry -> entry.getId().equals(invocation.getArgument(0)))
+                    .forEach(entry -> {
+                        entry.setAttempts(entry.getAttempts() + 1);
+                        entry.setLastError(invocation.getArgument(1));
+                        entry.setAvailableAt(invocation.getArgument(2));
+                    });
+            return 1;
+        });
+        subscriptionRepository = mock(SubscriptionRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        subscriptionService = new SubscriptionService(subscriptionRepository, outboxRepository,
+                mock(UserRepository.class), mock(UserCache.class), mock(FollowerCounter.class),
+                mock(CelebrityRegistry.class), mock(FriendshipRepository.class), mock(FeedService.class),
+                mock(SocialGraphIndex.class), mock(ApplicationEventPublisher.class), transactionTemplate);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    void whenEntryDispatchedThenSubscriptionIsCreatedAndEntryDeleted() {
+        dispatcher = dispatcher(Duration.ofSeconds(1));
+        enqueue(FOLLOWER, FOLLOWING);
+        when(subscriptionRepository.insertIfAbsent(any(), any(), any())).thenReturn(1);
+
+        assertThat(dispatcher.dispatchPending()).isEqualTo(1);
+
+        verify(subscriptionRepository).insertIfAbsent(any(), any(), any());
+        assertThat(queue).isEmpty();
+        assertThat(dispatcher.getDispatched()).isEqualTo(1);
+        assertThat(dispatcher.getFailures()).isZero();
+    }
+
+    @Test
+    void whenDispatchFailsThenTransactionIsRolledBackAndRetryPostponed() {
+        dispatcher = dispatcher(Duration.ofSeconds(1));
+        enqueue(FOLLOWER, FOLLOWING).setAttempts(1);
+        when(subscriptionRepository.insertIfAbsent(any(), any(), any()))
+                .thenThrow(new QueryTimeoutException("timeout"));
+        LocalDateTime before = LocalDateTime.now();
+
+        assertThat(dispatcher.dispatchPending()).isEqualTo(1);
+
+        verify(transactionManager).rollback(any());
+        assertThat(queue).singleElement().satisfies(entry -> {
+            assertThat(entry.getAttempts()).isEqualTo(2);
+            assertThat(entry.getLastError()).isEqualTo("timeout");
+            assertThat(entry.getAvailableAt()).isAfterOrEqualTo(before.plusSeconds(2));
+        });
+        assertThat(dispatcher.getDispatched()).isZero();
+        assertThat(dispatcher.getFailures()).isEqualTo(1);
+    }
+
+    @Test
+    void whenAttemptsExhaustedThenEntryIsKeptButNoLongerDispatched() {
+        dispatcher = dispatcher(Duration.ZERO);
+        enqueue(FOLLOWER, FOLLOWING);
+        when(subscriptionRepository.insertIfAbsent(any(), any(), any()))
+                .thenThrow(new QueryTimeoutException("timeout"));
+
+        assertThat(dispatcher.dispatchPending()).isEqualTo(MAX_ATTEMPTS);
+        assertThat(dispatcher.dispatchPending()).isZero();
+
+        verify(subscriptionRepository, times(MAX_ATTEMPTS)).insertIfAbsent(any(), any(), any());
+        assertThat(queue).singleElement()
+                .extracting(SubscriptionOutboxEntry::getAttempts)
+                .isEqualTo(MAX_ATTEMPTS);
+        assertThat(dispatcher.getFailures()).isEqualTo(MAX_ATTEMPTS);
+    }
+
+    @Test
+    void whenUnfollowedBeforeDispatchThenSubscriptionIsNotCreated() {
+        dispatcher = dispatcher(Duration.ofSeconds(1));
+        enqueue(FOLLOWER, FOLLOWING);
+        enqueue(FOLLOWING, FOLLOWER);
+
+        assertThat(subscriptionService.unfollow(FOLLOWER, FOLLOWING)).isTrue();
+        when(subscriptionRepository.insertIfAbsent(any(), any(), any())).thenReturn(1);
+        assertThat(dispatcher.dispatchPending()).isEqualTo(1);
+
+        verify(subscriptionRepository, never()).insertIfAbsent(eq(FOLLOWER), eq(FOLLOWING), any());
+        verify(subscriptionRepository).insertIfAbsent(eq(FOLLOWING), eq(FOLLOWER), any());
+        assertThat(queue).isEmpty();
+    }
+
+    private SubscriptionOutboxDispatcher dispatcher(Duration retryDelay) {
+        return new SubscriptionOutboxDispatcher(outboxRepository, subscriptionService, transactionTemplate,
+                1, MAX_ATTEMPTS, retryDelay, Duration.ofDays(7));
+    }
+
+    private SubscriptionOutboxEntry enqueue(Long followerId, Long followingId) {
+        LocalDateTime now = LocalDateTime.now().minusSeconds(1);
+        SubscriptionOutboxEntry entry = SubscriptionOutboxEntry.builder()
+                .id(ids.incrementAndGet())
+                .followerId(followerId.intValue())
+                .followingId(followingId.intValue())
+                .createdAt(now)
+                .availableAt(now)
+                .build();
+        queue.add(entry);
+        return entry;
+    }
+
+    private Optional<SubscriptionOutboxEntry> lockNext(LocalDateTime now, int maxAttempts) {
+        return queue.stream()
+                .filter(entry -> !entry.getAvailableAt().isAfter(now) && entry.getAttempts() < maxAttempts)
+                .min(Comparator.comparing(SubscriptionOutboxEntry::getId))
+                .map(entry -> SubscriptionOutboxEntry.builder()
+                        .id(entry.getId())
+                        .followerId(entry.getFollowerId())
+                        .followingId(entry.getFollowingId())
+                        .attempts(entry.getAttempts())
+                        .createdAt(entry.getCreatedAt())
+                        .availableAt(entry.getAvailableAt())
+                        .build());
+    }
+
+    private int delete(Predicate<SubscriptionOutboxEntry> filter) {
+        int before = queue.size();
+        queue.removeIf(filter);
+        return before - queue.size();
+    }
+
+    private static boolean isPair(SubscriptionOutboxEntry entry, Long followerId, Long followingId) {
+        return entry.getFollowerId() == followerId.intValue() && entry.getFollowingId() == followingId.intValue();
+    }
+}